@@ -49,6 +49,9 @@ public class AnalogAppWidgetProvider extends AppWidgetProvider {
 
         final DataModel dm = DataModel.getDataModel();
         dm.updateWidgetCount(getClass(), widgetCount, R.string.category_analog_widget);
+
+        // The process may be stopped at any time once this broadcast is handled.
+        dm.flushPendingWrites();
     }
 
     /**
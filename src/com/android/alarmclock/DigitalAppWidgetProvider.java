@@ -159,6 +159,9 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         if (widgetIds.length > 0) {
             updateDayChangeCallback(context);
         }
+
+        // The process may be stopped at any time once this broadcast is handled.
+        dm.flushPendingWrites();
     }
 
     /**
@@ -313,6 +316,21 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
             nextAlarmIcon.setTypeface(UiDataModel.getUiDataModel().getAlarmIconTypeface());
         }
 
+        final Sizes sizes = findOptimalSizes(template, sizer);
+
+        // Render the alarm icon only at the chosen size rather than at each size measured.
+        if (nextAlarmIcon.getVisibility() == VISIBLE) {
+            sizes.mIconBitmap = getAlarmIconBitmap(sizes, nextAlarmIcon);
+        }
+
+        return sizes;
+    }
+
+    /**
+     * Binary search through the range of clock font sizes until the optimal sizes that fit within
+     * the widget bounds are located.
+     */
+    private static Sizes findOptimalSizes(Sizes template, View sizer) {
         // Measure the widget at the largest possible size.
         Sizes high = measure(template, template.getLargestClockFontSizePx(), sizer);
         if (!high.hasViolations()) {
@@ -343,6 +361,32 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         return low;
     }
 
+    /**
+     * Icons rendered for every widget at the same size are identical, so they are cached.
+     *
+     * @return a Bitmap of the alarm icon glyph drawn at the icon size of the given {@code sizes}
+     */
+    private static Bitmap getAlarmIconBitmap(Sizes sizes, TextView nextAlarmIcon) {
+        final UiDataModel uidm = UiDataModel.getUiDataModel();
+        final int color = nextAlarmIcon.getCurrentTextColor();
+        final Bitmap cached =
+                uidm.getRenderedBitmap(R.string.clock_emoji, sizes.mIconFontSizePx, color);
+        if (cached != null) {
+            return cached;
+        }
+
+        nextAlarmIcon.setTextSize(COMPLEX_UNIT_PX, sizes.mIconFontSizePx);
+        nextAlarmIcon.setPadding(sizes.mIconPaddingPx, 0, sizes.mIconPaddingPx, 0);
+        final int unspecified = View.MeasureSpec.makeMeasureSpec(0, UNSPECIFIED);
+        nextAlarmIcon.measure(unspecified, unspecified);
+        nextAlarmIcon.layout(0, 0, nextAlarmIcon.getMeasuredWidth(),
+                nextAlarmIcon.getMeasuredHeight());
+
+        final Bitmap bitmap = Utils.createBitmap(nextAlarmIcon);
+        uidm.putRenderedBitmap(R.string.clock_emoji, sizes.mIconFontSizePx, color, bitmap);
+        return bitmap;
+    }
+
     /**
      * Remove the existing day-change callback if it is not needed (no selected cities exist).
      * Add the day-change callback if it is needed (selected cities exist).
@@ -428,11 +472,6 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         measuredSizes.mMeasuredTextClockWidthPx = clock.getMeasuredWidth();
         measuredSizes.mMeasuredTextClockHeightPx = clock.getMeasuredHeight();
 
-        // If an alarm icon is required, generate one from the TextView with the special font.
-        if (nextAlarmIcon.getVisibility() == VISIBLE) {
-            measuredSizes.mIconBitmap = Utils.createBitmap(nextAlarmIcon);
-        }
-
         return measuredSizes;
     }
 
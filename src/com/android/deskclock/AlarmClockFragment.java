@@ -20,7 +20,6 @@ import android.app.LoaderManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
-import android.database.Cursor;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.SystemClock;
@@ -43,7 +42,7 @@ import com.android.deskclock.alarms.dataadapter.AlarmItemHolder;
 import com.android.deskclock.alarms.dataadapter.CollapsedAlarmViewHolder;
 import com.android.deskclock.alarms.dataadapter.ExpandedAlarmViewHolder;
 import com.android.deskclock.provider.Alarm;
-import com.android.deskclock.provider.AlarmInstance;
+import com.android.deskclock.provider.AlarmListLoader;
 import com.android.deskclock.uidata.UiDataModel;
 import com.android.deskclock.widget.EmptyViewController;
 import com.android.deskclock.widget.toast.SnackbarManager;
@@ -58,7 +57,7 @@ import static com.android.deskclock.uidata.UiDataModel.Tab.ALARMS;
  * A fragment that displays a list of alarm time and allows interaction with them.
  */
 public final class AlarmClockFragment extends DeskClockFragment implements
-        LoaderManager.LoaderCallbacks<Cursor>,
+        LoaderManager.LoaderCallbacks<List<AlarmListLoader.Item>>,
         ScrollHandler,
         TimePickerDialogFragment.OnTimeSetListener {
 
@@ -80,7 +79,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     private RecyclerView mRecyclerView;
 
     // Data
-    private Loader mCursorLoader;
+    private Loader mAlarmsLoader;
     private long mScrollToAlarmId = Alarm.INVALID_ID;
     private long mExpandedAlarmId = Alarm.INVALID_ID;
     private long mCurrentUpdateToken;
@@ -102,7 +101,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     @Override
     public void onCreate(Bundle savedState) {
         super.onCreate(savedState);
-        mCursorLoader = getLoaderManager().initLoader(0, null, this);
+        mAlarmsLoader = getLoaderManager().initLoader(0, null, this);
         if (savedState != null) {
             mExpandedAlarmId = savedState.getLong(KEY_EXPANDED_ID, Alarm.INVALID_ID);
         }
@@ -219,10 +218,10 @@ public final class AlarmClockFragment extends DeskClockFragment implements
             long alarmId = intent.getLongExtra(SCROLL_TO_ALARM_INTENT_EXTRA, Alarm.INVALID_ID);
             if (alarmId != Alarm.INVALID_ID) {
                 setSmoothScrollStableId(alarmId);
-                if (mCursorLoader != null && mCursorLoader.isStarted()) {
+                if (mAlarmsLoader != null && mAlarmsLoader.isStarted()) {
                     // We need to force a reload here to make sure we have the latest view
                     // of the data to scroll to.
-                    mCursorLoader.forceLoad();
+                    mAlarmsLoader.forceLoad();
                 }
             }
 
@@ -267,19 +266,17 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     }
 
     @Override
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        return Alarm.getAlarmsCursorLoader(getActivity());
+    public Loader<List<AlarmListLoader.Item>> onCreateLoader(int id, Bundle args) {
+        return Alarm.getAlarmsLoader(getActivity());
     }
 
     @Override
-    public void onLoadFinished(Loader<Cursor> cursorLoader, Cursor data) {
-        final List<AlarmItemHolder> itemHolders = new ArrayList<>(data.getCount());
-        for (data.moveToFirst(); !data.isAfterLast(); data.moveToNext()) {
-            final Alarm alarm = new Alarm(data);
-            final AlarmInstance alarmInstance = alarm.canPreemptivelyDismiss()
-                    ? new AlarmInstance(data, true /* joinedTable */) : null;
-            final AlarmItemHolder itemHolder =
-                    new AlarmItemHolder(alarm, alarmInstance, mAlarmTimeClickHandler);
+    public void onLoadFinished(Loader<List<AlarmListLoader.Item>> loader,
+            List<AlarmListLoader.Item> data) {
+        final List<AlarmItemHolder> itemHolders = new ArrayList<>(data.size());
+        for (AlarmListLoader.Item item : data) {
+            final AlarmItemHolder itemHolder = new AlarmItemHolder(item.getAlarm(),
+                    item.getInstance(), mAlarmTimeClickHandler);
             itemHolders.add(itemHolder);
         }
         setAdapterItems(itemHolders, SystemClock.elapsedRealtime());
@@ -374,7 +371,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     }
 
     @Override
-    public void onLoaderReset(Loader<Cursor> cursorLoader) {
+    public void onLoaderReset(Loader<List<AlarmListLoader.Item>> loader) {
     }
 
     @Override
@@ -137,6 +137,9 @@ public class AlarmInitReceiver extends BroadcastReceiver {
             }
         }
 
+        // The process may be stopped at any time once this broadcast is handled.
+        DataModel.getDataModel().flushPendingWrites();
+
         AsyncHandler.post(new Runnable() {
             @Override
             public void run() {
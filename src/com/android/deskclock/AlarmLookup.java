@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock;
+
+import android.support.v4.util.LongSparseArray;
+import android.util.SparseArray;
+
+import com.android.deskclock.provider.Alarm;
+import com.android.deskclock.provider.AlarmInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An immutable, in-memory view of a set of alarms and their next instances, indexed so the
+ * searches performed by voice and intent handlers need no further database queries. Alarms are
+ * indexed by the time of day at which they fire and by each word of their label.
+ */
+final class AlarmLookup {
+
+    private final List<Alarm> mAlarms;
+
+    /** Maps alarm id to the next instance of that alarm. */
+    private final LongSparseArray<AlarmInstance> mNextInstances;
+
+    /** Maps minute of the day to the alarms that fire at that minute. */
+    private final SparseArray<List<Alarm>> mAlarmsByMinute = new SparseArray<>();
+
+    /** Maps each lower case label word to the positions of the alarms whose label contains it. */
+    private final TreeMap<String, List<Integer>> mAlarmsByLabelWord = new TreeMap<>();
+
+    /**
+     * @param alarms the alarms to index, in the order they should be reported
+     * @param nextInstances maps alarm id to the next instance of each alarm that has one
+     */
+    AlarmLookup(List<Alarm> alarms, LongSparseArray<AlarmInstance> nextInstances) {
+        mAlarms = Collections.unmodifiableList(new ArrayList<>(alarms));
+        mNextInstances = nextInstances;
+
+        for (int position = 0; position < alarms.size(); position++) {
+            final Alarm alarm = alarms.get(position);
+            List<Alarm> minuteAlarms = mAlarmsByMinute.get(alarm.hour * 60 + alarm.minutes);
+            if (minuteAlarms == null) {
+                minuteAlarms = new ArrayList<>(1);
+                mAlarmsByMinute.put(alarm.hour * 60 + alarm.minutes, minuteAlarms);
+            }
+            minuteAlarms.add(alarm);
+
+            for (String word : getWords(alarm.label)) {
+                List<Integer> positions = mAlarmsByLabelWord.get(word);
+                if (positions == null) {
+                    positions = new ArrayList<>(1);
+                    mAlarmsByLabelWord.put(word, positions);
+                }
+                // Labels repeating a word must still only report the alarm once.
+                if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+                    positions.add(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return all indexed alarms
+     */
+    List<Alarm> getAlarms() {
+        return mAlarms;
+    }
+
+    /**
+     * @return the next instance of the given {@code alarm}; {@code null} if it has none
+     */
+    AlarmInstance getNextInstance(Alarm alarm) {
+        return mNextInstances.get(alarm.id);
+    }
+
+    /**
+     * @return the alarms whose next instance is in the given {@code state}
+     */
+    List<Alarm> getAlarmsInState(int state) {
+        final List<Alarm> result = new ArrayList<>();
+        for (Alarm alarm : mAlarms) {
+            final AlarmInstance instance = getNextInstance(alarm);
+            if (instance != null && instance.mAlarmState == state) {
+                result.add(alarm);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the alarms that fire at the given time of day
+     */
+    List<Alarm> getAlarmsAt(int hour24, int minutes) {
+        final List<Alarm> alarms = mAlarmsByMinute.get(hour24 * 60 + minutes);
+        return alarms == null ? Collections.<Alarm>emptyList() : alarms;
+    }
+
+    /**
+     * Spoken labels are whole words, so a label matches if it contains the given {@code label}
+     * starting at the beginning of one of its words.
+     *
+     * @return the alarms whose label contains the given {@code label}
+     */
+    List<Alarm> getAlarmsWithLabel(String label) {
+        final List<String> words = getWords(label);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Candidates have a label word that begins with the first word of the search.
+        final String first = words.get(0);
+        final SortedMap<String, List<Integer>> candidates =
+                mAlarmsByLabelWord.subMap(first, first + Character.MAX_VALUE);
+
+        // Keyed by position so matches are reported in the order of the indexed alarms.
+        final SparseArray<Alarm> matches = new SparseArray<>();
+        for (List<Integer> positions : candidates.values()) {
+            for (int position : positions) {
+                final Alarm alarm = mAlarms.get(position);
+                if (alarm.label.contains(label)) {
+                    matches.put(position, alarm);
+                }
+            }
+        }
+
+        final List<Alarm> result = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            result.add(matches.valueAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return the lower case words of the given {@code text}
+     */
+    private static List<String> getWords(String text) {
+        final List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+
+        final String lowerCase = text.toLowerCase(Locale.getDefault());
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            final boolean letter = i < lowerCase.length()
+                    && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (letter && start == -1) {
+                start = i;
+            } else if (!letter && start != -1) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -16,60 +16,94 @@
 
 package com.android.deskclock;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.support.v7.widget.AppCompatImageView;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
 import android.text.format.DateFormat;
 import android.util.AttributeSet;
-import android.widget.FrameLayout;
-import android.widget.ImageView;
+import android.util.SparseArray;
+import android.view.View;
+
+import com.android.deskclock.uidata.UiDataModel;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Map;
 import java.util.TimeZone;
-
-import static android.text.format.DateUtils.SECOND_IN_MILLIS;
+import java.util.WeakHashMap;
 
 /**
  * This widget display an analog clock with two hands for hours and minutes.
+ *
+ * <p>The dial and hands are drawn by this single view, rotating the canvas rather than laying out
+ * a child view per hand. Clocks of equal size and theme, e.g. the rows of the world clock list,
+ * share one set of drawables. Ticks are delivered by the shared periodic callbacks of
+ * {@link UiDataModel} and only while the clock is attached and visible; the content description is
+ * only reformatted once per minute.</p>
  */
-public class AnalogClock extends FrameLayout {
+public class AnalogClock extends View {
+
+    /**
+     * Maps a theme, which tints the second hand, and a clock size in pixels to the dial, hour,
+     * minute and second hand drawn at that size. Themes are weakly held so the drawables of a
+     * finished activity are released with it.
+     */
+    private static final Map<Resources.Theme, SparseArray<Drawable[]>> sDrawables =
+            new WeakHashMap<>();
+
+    private static final int DIAL = 0;
+    private static final int HOUR_HAND = 1;
+    private static final int MINUTE_HAND = 2;
+    private static final int SECOND_HAND = 3;
 
-    private final BroadcastReceiver mIntentReceiver = new BroadcastReceiver() {
+    private static final int[] DRAWABLE_IDS = {
+            R.drawable.clock_analog_dial,
+            R.drawable.clock_analog_hour,
+            R.drawable.clock_analog_minute,
+            R.drawable.clock_analog_second
+    };
+
+    /** Redraws the hands and updates the content description every minute. */
+    private final Runnable mMinuteTick = new Runnable() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            if (mTimeZone == null && Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
-                final String tz = intent.getStringExtra("time-zone");
-                mTime = Calendar.getInstance(TimeZone.getTimeZone(tz));
+        public void run() {
+            if (mTimeZone == null) {
+                // Follow changes to the default time zone.
+                mTime.setTimeZone(TimeZone.getDefault());
             }
-            onTimeChanged();
+            onTimeChanged(true /* updateDescription */);
         }
     };
 
-    private final Runnable mClockTick = new Runnable() {
+    /** Redraws the hands every second while seconds are displayed. */
+    private final Runnable mSecondTick = new Runnable() {
         @Override
         public void run() {
-            onTimeChanged();
-
-            if (mEnableSeconds) {
-                final long now = System.currentTimeMillis();
-                final long delay = SECOND_IN_MILLIS - now % SECOND_IN_MILLIS;
-                postDelayed(this, delay);
-            }
+            onTimeChanged(false /* updateDescription */);
         }
     };
 
-    private final ImageView mHourHand;
-    private final ImageView mMinuteHand;
-    private final ImageView mSecondHand;
+    private final Calendar mTime;
+    private final String mDescFormat;
+
+    /** The intrinsic size of the dial, used when the clock is sized to wrap its content. */
+    private final int mIntrinsicWidth;
+    private final int mIntrinsicHeight;
 
-    private Calendar mTime;
-    private String mDescFormat;
     private TimeZone mTimeZone;
     private boolean mEnableSeconds = true;
 
+    /** {@code true} while tick callbacks are registered. */
+    private boolean mTicking;
+
+    /** The drawables at the current size of the clock; {@code null} until first drawn. */
+    private Drawable[] mDrawables;
+
+    private float mHourAngle;
+    private float mMinuteAngle;
+    private float mSecondAngle;
+
     public AnalogClock(Context context) {
         this(context, null /* attrs */);
     }
@@ -84,85 +118,180 @@ public class AnalogClock extends FrameLayout {
         mTime = Calendar.getInstance();
         mDescFormat = ((SimpleDateFormat) DateFormat.getTimeFormat(context)).toLocalizedPattern();
 
-        // Must call mutate on these instances, otherwise the drawables will blur, because they're
-        // sharing their size characteristics with the (smaller) world cities analog clocks.
-        final ImageView dial = new AppCompatImageView(context);
-        dial.setImageResource(R.drawable.clock_analog_dial);
-        dial.getDrawable().mutate();
-        addView(dial);
-
-        mHourHand = new AppCompatImageView(context);
-        mHourHand.setImageResource(R.drawable.clock_analog_hour);
-        mHourHand.getDrawable().mutate();
-        addView(mHourHand);
+        final Drawable dial = Utils.getVectorDrawable(context, R.drawable.clock_analog_dial);
+        mIntrinsicWidth = dial.getIntrinsicWidth();
+        mIntrinsicHeight = dial.getIntrinsicHeight();
+    }
 
-        mMinuteHand = new AppCompatImageView(context);
-        mMinuteHand.setImageResource(R.drawable.clock_analog_minute);
-        mMinuteHand.getDrawable().mutate();
-        addView(mMinuteHand);
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = mIntrinsicWidth + getPaddingLeft() + getPaddingRight();
+        final int height = mIntrinsicHeight + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
 
-        mSecondHand = new AppCompatImageView(context);
-        mSecondHand.setImageResource(R.drawable.clock_analog_second);
-        mSecondHand.getDrawable().mutate();
-        addView(mSecondHand);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mDrawables = null;
     }
 
     @Override
-    protected void onAttachedToWindow() {
-        super.onAttachedToWindow();
+    protected void onDraw(Canvas canvas) {
+        final int left = getPaddingLeft();
+        final int top = getPaddingTop();
+        final int width = getWidth() - left - getPaddingRight();
+        final int height = getHeight() - top - getPaddingBottom();
+        final int size = Math.min(width, height);
+        if (size <= 0) {
+            return;
+        }
 
-        final IntentFilter filter = new IntentFilter();
-        filter.addAction(Intent.ACTION_TIME_TICK);
-        filter.addAction(Intent.ACTION_TIME_CHANGED);
-        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
-        getContext().registerReceiver(mIntentReceiver, filter);
+        if (mDrawables == null) {
+            mDrawables = getDrawables(getContext(), size);
+        }
 
-        // Refresh the calendar instance since the time zone may have changed while the receiver
-        // wasn't registered.
-        mTime = Calendar.getInstance(mTimeZone != null ? mTimeZone : TimeZone.getDefault());
-        onTimeChanged();
+        // Center the square dial within the content area, as an ImageView would.
+        final float centerX = left + width / 2f;
+        final float centerY = top + height / 2f;
+        final int saveCount = canvas.save();
+        canvas.translate(centerX - size / 2f, centerY - size / 2f);
 
-        // Tick every second.
+        mDrawables[DIAL].draw(canvas);
+        drawHand(canvas, mDrawables[HOUR_HAND], mHourAngle, size);
+        drawHand(canvas, mDrawables[MINUTE_HAND], mMinuteAngle, size);
         if (mEnableSeconds) {
-            mClockTick.run();
+            drawHand(canvas, mDrawables[SECOND_HAND], mSecondAngle, size);
         }
+
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        // Refresh the calendar instance since the time zone may have changed while detached.
+        mTime.setTimeZone(mTimeZone != null ? mTimeZone : TimeZone.getDefault());
+        updateTicking();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        updateTicking();
+    }
 
-        getContext().unregisterReceiver(mIntentReceiver);
-        removeCallbacks(mClockTick);
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateTicking();
     }
 
-    private void onTimeChanged() {
-        mTime.setTimeInMillis(System.currentTimeMillis());
-        final float hourAngle = mTime.get(Calendar.HOUR) * 30f;
-        mHourHand.setRotation(hourAngle);
-        final float minuteAngle = mTime.get(Calendar.MINUTE) * 6f;
-        mMinuteHand.setRotation(minuteAngle);
-        if (mEnableSeconds) {
-            final float secondAngle = mTime.get(Calendar.SECOND) * 6f;
-            mSecondHand.setRotation(secondAngle);
-        }
-        setContentDescription(DateFormat.format(mDescFormat, mTime));
-        invalidate();
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateTicking();
     }
 
     public void setTimeZone(String id) {
         mTimeZone = TimeZone.getTimeZone(id);
         mTime.setTimeZone(mTimeZone);
-        onTimeChanged();
+        onTimeChanged(true /* updateDescription */);
     }
 
     public void enableSeconds(boolean enable) {
+        if (mEnableSeconds == enable) {
+            return;
+        }
+
         mEnableSeconds = enable;
-        if (mEnableSeconds) {
-            mSecondHand.setVisibility(VISIBLE);
-            mClockTick.run();
+        if (mTicking) {
+            if (mEnableSeconds) {
+                UiDataModel.getUiDataModel().addSecondCallback(mSecondTick, 0);
+            } else {
+                UiDataModel.getUiDataModel().removePeriodicCallback(mSecondTick);
+            }
+        }
+        onTimeChanged(false /* updateDescription */);
+    }
+
+    /**
+     * Registers tick callbacks while this clock is attached and visible, and unregisters them
+     * otherwise.
+     */
+    private void updateTicking() {
+        // Visibility callbacks may arrive before construction completes.
+        if (mTime == null) {
+            return;
+        }
+
+        final boolean ticking = isAttachedToWindow() && isShown()
+                && getWindowVisibility() == VISIBLE;
+        if (mTicking == ticking) {
+            return;
+        }
+
+        mTicking = ticking;
+        final UiDataModel uiDataModel = UiDataModel.getUiDataModel();
+        if (mTicking) {
+            uiDataModel.addMinuteCallback(mMinuteTick, 0);
+            if (mEnableSeconds) {
+                uiDataModel.addSecondCallback(mSecondTick, 0);
+            }
+            // Catch up on the time that passed while not ticking.
+            onTimeChanged(true /* updateDescription */);
         } else {
-            mSecondHand.setVisibility(GONE);
+            uiDataModel.removePeriodicCallback(mMinuteTick);
+            uiDataModel.removePeriodicCallback(mSecondTick);
+        }
+    }
+
+    private void onTimeChanged(boolean updateDescription) {
+        mTime.setTimeInMillis(System.currentTimeMillis());
+        mHourAngle = mTime.get(Calendar.HOUR) * 30f;
+        mMinuteAngle = mTime.get(Calendar.MINUTE) * 6f;
+        if (mEnableSeconds) {
+            mSecondAngle = mTime.get(Calendar.SECOND) * 6f;
+        }
+        if (updateDescription) {
+            setContentDescription(DateFormat.format(mDescFormat, mTime));
+        }
+        invalidate();
+    }
+
+    private static void drawHand(Canvas canvas, Drawable hand, float angle, int size) {
+        final int saveCount = canvas.save();
+        canvas.rotate(angle, size / 2f, size / 2f);
+        hand.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Drawables are mutated so that each size renders into its own cache rather than blurring by
+     * sharing the cache of a differently sized clock.
+     *
+     * @return the dial and hand drawables of the theme of {@code context} with bounds of the given
+     *      {@code size}
+     */
+    private static Drawable[] getDrawables(Context context, int size) {
+        final Resources.Theme theme = context.getTheme();
+        SparseArray<Drawable[]> themeDrawables = sDrawables.get(theme);
+        if (themeDrawables == null) {
+            themeDrawables = new SparseArray<>();
+            sDrawables.put(theme, themeDrawables);
+        }
+
+        Drawable[] drawables = themeDrawables.get(size);
+        if (drawables == null) {
+            drawables = new Drawable[DRAWABLE_IDS.length];
+            for (int i = 0; i < DRAWABLE_IDS.length; i++) {
+                drawables[i] = Utils.getVectorDrawable(context, DRAWABLE_IDS[i]).mutate();
+                drawables[i].setBounds(0, 0, size, size);
+            }
+            themeDrawables.put(size, drawables);
         }
+        return drawables;
     }
 }
@@ -425,7 +425,7 @@ public final class AsyncRingtonePlayer {
             // The current volume of the crescendo is the percentage of the crescendo completed.
             final float volume = computeVolume(currentTime, mCrescendoStopTime, mCrescendoDuration);
             mMediaPlayer.setVolume(volume, volume);
-            LOGGER.i("MediaPlayer volume set to " + volume);
+            LOGGER.i("MediaPlayer volume set to %s", volume);
 
             // Schedule the next volume bump in the crescendo.
             return true;
@@ -29,8 +29,10 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.provider.Settings;
 import android.support.annotation.NonNull;
+import android.support.v4.util.ArrayMap;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.view.GestureDetector;
 import android.view.LayoutInflater;
@@ -49,8 +51,10 @@ import com.android.deskclock.events.Events;
 import com.android.deskclock.uidata.UiDataModel;
 import com.android.deskclock.worldclock.CitySelectionActivity;
 
-import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 import static android.app.AlarmManager.ACTION_NEXT_ALARM_CLOCK_CHANGED;
@@ -58,7 +62,6 @@ import static android.view.View.GONE;
 import static android.view.View.INVISIBLE;
 import static android.view.View.VISIBLE;
 import static com.android.deskclock.uidata.UiDataModel.Tab.CLOCKS;
-import static java.util.Calendar.DAY_OF_WEEK;
 
 /**
  * Fragment that shows the clock (analog or digital), the next alarm info and the world clock.
@@ -279,7 +282,7 @@ public final class ClockFragment extends DeskClockFragment {
     private final class QuarterHourRunnable implements Runnable {
         @Override
         public void run() {
-            mCityAdapter.notifyDataSetChanged();
+            mCityAdapter.refreshRows();
         }
     }
 
@@ -342,10 +345,21 @@ public final class ClockFragment extends DeskClockFragment {
         private final LayoutInflater mInflater;
         private final Context mContext;
         private final boolean mIsPortrait;
+        private final boolean mIsLandscape;
         private final boolean mShowHomeClock;
         private final String mDateFormat;
         private final String mDateFormatForAccessibility;
 
+        /** The time formats shared by all world clocks; they depend only on the locale. */
+        private final CharSequence mFormat12Hour;
+        private final CharSequence mFormat24Hour;
+
+        /** Maps city id to the state derived from that city's time zone. */
+        private final Map<String, CityState> mCityStates = new ArrayMap<>();
+
+        /** The local day number at which the main clock date was last bound. */
+        private long mMainClockDay;
+
         private SelectedCitiesAdapter(Context context, String dateFormat,
                 String dateFormatForAccessibility) {
             mContext = context;
@@ -353,7 +367,10 @@ public final class ClockFragment extends DeskClockFragment {
             mDateFormatForAccessibility = dateFormatForAccessibility;
             mInflater = LayoutInflater.from(context);
             mIsPortrait = Utils.isPortrait(context);
+            mIsLandscape = Utils.isLandscape(context);
             mShowHomeClock = DataModel.getDataModel().getShowHomeClock();
+            mFormat12Hour = Utils.get12ModeFormat(0.3f /* amPmRatio */, false);
+            mFormat24Hour = Utils.get24ModeFormat(false);
         }
 
         @Override
@@ -382,19 +399,16 @@ public final class ClockFragment extends DeskClockFragment {
             final int viewType = getItemViewType(position);
             switch (viewType) {
                 case WORLD_CLOCK:
-                    // Retrieve the city to bind.
-                    final City city;
-                    // If showing home clock, put it at the top
-                    if (mShowHomeClock && position == (mIsPortrait ? 1 : 0)) {
-                        city = getHomeCity();
-                    } else {
-                        final int positionAdjuster = (mIsPortrait ? 1 : 0)
-                                + (mShowHomeClock ? 1 : 0);
-                        city = getCities().get(position - positionAdjuster);
-                    }
-                    ((CityViewHolder) holder).bind(mContext, city, position, mIsPortrait);
+                    final City city = getCity(position);
+                    final long now = System.currentTimeMillis();
+                    final long localOffset = TimeZone.getDefault().getOffset(now);
+                    final CityState state = getCityState(city);
+                    state.update(mContext, city.getTimeZone(), now, localOffset, mIsLandscape);
+                    ((CityViewHolder) holder).bind(city, state, position, mIsPortrait,
+                            mFormat12Hour, mFormat24Hour);
                     break;
                 case MAIN_CLOCK:
+                    mMainClockDay = getLocalDay(System.currentTimeMillis());
                     ((MainClockViewHolder) holder).bind(mContext, mDateFormat,
                             mDateFormatForAccessibility, getItemCount() > 1);
                     break;
@@ -411,6 +425,51 @@ public final class ClockFragment extends DeskClockFragment {
             return mainClockCount + homeClockCount + worldClockCount;
         }
 
+        /**
+         * Rebinds only the rows whose displayed date or time difference has changed, e.g. because
+         * a day boundary or daylight saving time transition passed or the time zone changed.
+         */
+        private void refreshRows() {
+            final long now = System.currentTimeMillis();
+            final long localOffset = TimeZone.getDefault().getOffset(now);
+
+            for (int position = 0; position < getItemCount(); position++) {
+                if (getItemViewType(position) == MAIN_CLOCK) {
+                    if (mMainClockDay != getLocalDay(now)) {
+                        notifyItemChanged(position);
+                    }
+                    continue;
+                }
+
+                final City city = getCity(position);
+                final CityState state = getCityState(city);
+                if (state.update(mContext, city.getTimeZone(), now, localOffset, mIsLandscape)) {
+                    notifyItemChanged(position);
+                }
+            }
+        }
+
+        /**
+         * @return the world city displayed at the given {@code position}
+         */
+        private City getCity(int position) {
+            // If showing home clock, put it at the top
+            if (mShowHomeClock && position == (mIsPortrait ? 1 : 0)) {
+                return getHomeCity();
+            }
+            final int positionAdjuster = (mIsPortrait ? 1 : 0) + (mShowHomeClock ? 1 : 0);
+            return getCities().get(position - positionAdjuster);
+        }
+
+        private CityState getCityState(City city) {
+            CityState state = mCityStates.get(city.getId());
+            if (state == null) {
+                state = new CityState();
+                mCityStates.put(city.getId(), state);
+            }
+            return state;
+        }
+
         private City getHomeCity() {
             return DataModel.getDataModel().getHomeCity();
         }
@@ -427,9 +486,108 @@ public final class ClockFragment extends DeskClockFragment {
 
         @Override
         public void citiesChanged(List<City> oldCities, List<City> newCities) {
+            mCityStates.keySet().retainAll(getCityIds(newCities));
             notifyDataSetChanged();
         }
 
+        private Set<String> getCityIds(List<City> cities) {
+            final Set<String> cityIds = new HashSet<>(cities.size() + 1);
+            for (City city : cities) {
+                cityIds.add(city.getId());
+            }
+            if (mShowHomeClock) {
+                cityIds.add(getHomeCity().getId());
+            }
+            return cityIds;
+        }
+
+        /**
+         * @return the number of days between the epoch and the given {@code time} in a time zone
+         *      whose offset from UTC is {@code offset}
+         */
+        private static long getDay(long time, long offset) {
+            return (time + offset) / DateUtils.DAY_IN_MILLIS;
+        }
+
+        private static long getLocalDay(long time) {
+            return getDay(time, TimeZone.getDefault().getOffset(time));
+        }
+
+        /**
+         * The state displayed in a world clock row that is derived from the time zone of its city
+         * relative to the local time zone. It is recomputed only when the UTC offset of either
+         * zone changes or either zone crosses a day boundary.
+         */
+        private static final class CityState {
+
+            private boolean mValid;
+            private long mLocalOffset;
+            private long mCityOffset;
+            private long mLocalDay;
+            private long mCityDay;
+
+            /** {@code true} if the difference between the city and local time is displayed. */
+            private boolean mShowDifference;
+
+            /** The displayed difference between the city and local time. */
+            private String mDifference;
+
+            /**
+             * @return {@code true} if the displayed state changed
+             */
+            private boolean update(Context context, TimeZone cityTimeZone, long now,
+                    long localOffset, boolean isLandscape) {
+                final long cityOffset = cityTimeZone.getOffset(now);
+                final long localDay = getDay(now, localOffset);
+                final long cityDay = getDay(now, cityOffset);
+                if (mValid && mLocalOffset == localOffset && mCityOffset == cityOffset
+                        && mLocalDay == localDay && mCityDay == cityDay) {
+                    return false;
+                }
+
+                mValid = true;
+                mLocalOffset = localOffset;
+                mCityOffset = cityOffset;
+                mLocalDay = localDay;
+                mCityDay = cityDay;
+
+                // Compute if the city week day matches the weekday of the current timezone.
+                final boolean displayDayOfWeek = localDay != cityDay;
+
+                // Compare offset from UTC time on today's date (daylight savings time, etc.)
+                final long offsetDelta = cityOffset - localOffset;
+                final int hoursDifferent = (int) (offsetDelta / DateUtils.HOUR_IN_MILLIS);
+                final int minutesDifferent = (int) (offsetDelta / DateUtils.MINUTE_IN_MILLIS) % 60;
+                final boolean displayMinutes = offsetDelta % DateUtils.HOUR_IN_MILLIS != 0;
+                final boolean isAhead = hoursDifferent > 0 || (hoursDifferent == 0
+                        && minutesDifferent > 0);
+
+                final boolean showDifference;
+                final String difference;
+                if (!isLandscape) {
+                    // Show the number of hours ahead or behind, or hide if the time is the same.
+                    showDifference = hoursDifferent != 0 || displayMinutes;
+                    final String timeString = Utils.createHoursDifferentString(
+                            context, displayMinutes, isAhead, hoursDifferent, minutesDifferent);
+                    difference = displayDayOfWeek ?
+                            (context.getString(isAhead ? R.string.world_hours_tomorrow
+                                    : R.string.world_hours_yesterday, timeString))
+                            : timeString;
+                } else {
+                    // Only tomorrow/yesterday should be shown in landscape view.
+                    showDifference = displayDayOfWeek;
+                    difference = displayDayOfWeek ? context.getString(isAhead
+                            ? R.string.world_tomorrow : R.string.world_yesterday) : null;
+                }
+
+                final boolean changed = showDifference != mShowDifference
+                        || !TextUtils.equals(difference, mDifference);
+                mShowDifference = showDifference;
+                mDifference = difference;
+                return changed;
+            }
+        }
+
         private static final class CityViewHolder extends RecyclerView.ViewHolder {
 
             private final TextView mName;
@@ -446,7 +604,8 @@ public final class ClockFragment extends DeskClockFragment {
                 mHoursAhead = (TextView) itemView.findViewById(R.id.hours_ahead);
             }
 
-            private void bind(Context context, City city, int position, boolean isPortrait) {
+            private void bind(City city, CityState state, int position, boolean isPortrait,
+                    CharSequence format12Hour, CharSequence format24Hour) {
                 final String cityTimeZoneId = city.getTimeZone().getID();
 
                 // Configure the digital clock or analog clock depending on the user preference.
@@ -459,13 +618,12 @@ public final class ClockFragment extends DeskClockFragment {
                     mAnalogClock.setVisibility(GONE);
                     mDigitalClock.setVisibility(VISIBLE);
                     mDigitalClock.setTimeZone(cityTimeZoneId);
-                    mDigitalClock.setFormat12Hour(Utils.get12ModeFormat(0.3f /* amPmRatio */,
-                            false));
-                    mDigitalClock.setFormat24Hour(Utils.get24ModeFormat(false));
+                    mDigitalClock.setFormat12Hour(format12Hour);
+                    mDigitalClock.setFormat24Hour(format24Hour);
                 }
 
                 // Supply top and bottom padding dynamically.
-                final Resources res = context.getResources();
+                final Resources res = itemView.getResources();
                 final int padding = res.getDimensionPixelSize(R.dimen.medium_space_top);
                 final int top = position == 0 && !isPortrait ? 0 : padding;
                 final int left = itemView.getPaddingLeft();
@@ -476,43 +634,10 @@ public final class ClockFragment extends DeskClockFragment {
                 // Bind the city name.
                 mName.setText(city.getName());
 
-                // Compute if the city week day matches the weekday of the current timezone.
-                final Calendar localCal = Calendar.getInstance(TimeZone.getDefault());
-                final Calendar cityCal = Calendar.getInstance(city.getTimeZone());
-                final boolean displayDayOfWeek =
-                        localCal.get(DAY_OF_WEEK) != cityCal.get(DAY_OF_WEEK);
-
-                // Compare offset from UTC time on today's date (daylight savings time, etc.)
-                final TimeZone currentTimeZone = TimeZone.getDefault();
-                final TimeZone cityTimeZone = TimeZone.getTimeZone(cityTimeZoneId);
-                final long currentTimeMillis = System.currentTimeMillis();
-                final long currentUtcOffset = currentTimeZone.getOffset(currentTimeMillis);
-                final long cityUtcOffset = cityTimeZone.getOffset(currentTimeMillis);
-                final long offsetDelta = cityUtcOffset - currentUtcOffset;
-
-                final int hoursDifferent = (int) (offsetDelta / DateUtils.HOUR_IN_MILLIS);
-                final int minutesDifferent = (int) (offsetDelta / DateUtils.MINUTE_IN_MILLIS) % 60;
-                final boolean displayMinutes = offsetDelta % DateUtils.HOUR_IN_MILLIS != 0;
-                final boolean isAhead = hoursDifferent > 0 || (hoursDifferent == 0
-                        && minutesDifferent > 0);
-                if (!Utils.isLandscape(context)) {
-                    // Bind the number of hours ahead or behind, or hide if the time is the same.
-                    final boolean displayDifference = hoursDifferent != 0 || displayMinutes;
-                    mHoursAhead.setVisibility(displayDifference ? VISIBLE : GONE);
-                    final String timeString = Utils.createHoursDifferentString(
-                            context, displayMinutes, isAhead, hoursDifferent, minutesDifferent);
-                    mHoursAhead.setText(displayDayOfWeek ?
-                            (context.getString(isAhead ? R.string.world_hours_tomorrow
-                                    : R.string.world_hours_yesterday, timeString))
-                            : timeString);
-                } else {
-                    // Only tomorrow/yesterday should be shown in landscape view.
-                    mHoursAhead.setVisibility(displayDayOfWeek ? View.VISIBLE : View.GONE);
-                    if (displayDayOfWeek) {
-                        mHoursAhead.setText(context.getString(isAhead ? R.string.world_tomorrow
-                                : R.string.world_yesterday));
-                    }
-
+                // Bind the number of hours ahead or behind, or tomorrow/yesterday.
+                mHoursAhead.setVisibility(state.mShowDifference ? VISIBLE : GONE);
+                if (state.mDifference != null) {
+                    mHoursAhead.setText(state.mDifference);
                 }
             }
         }
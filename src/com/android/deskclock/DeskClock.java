@@ -25,6 +25,8 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.StringRes;
 import android.support.design.widget.Snackbar;
 import android.support.design.widget.TabLayout;
@@ -37,6 +39,7 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -45,16 +48,22 @@ import com.android.deskclock.actionbarmenu.MenuItemControllerFactory;
 import com.android.deskclock.actionbarmenu.NightModeMenuItemController;
 import com.android.deskclock.actionbarmenu.OptionsMenuManager;
 import com.android.deskclock.actionbarmenu.SettingsMenuItemController;
+import com.android.deskclock.alarms.AlarmNotifications;
+import com.android.deskclock.controller.Controller;
 import com.android.deskclock.data.DataModel;
 import com.android.deskclock.data.DataModel.SilentSetting;
 import com.android.deskclock.data.OnSilentSettingsListener;
 import com.android.deskclock.events.Events;
 import com.android.deskclock.LogUtils;
 import com.android.deskclock.provider.Alarm;
+import com.android.deskclock.provider.AlarmScheduleIndex;
 import com.android.deskclock.uidata.TabListener;
 import com.android.deskclock.uidata.UiDataModel;
 import com.android.deskclock.widget.toast.SnackbarManager;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 import static android.support.v4.view.ViewPager.SCROLL_STATE_DRAGGING;
 import static android.support.v4.view.ViewPager.SCROLL_STATE_IDLE;
 import static android.support.v4.view.ViewPager.SCROLL_STATE_SETTLING;
@@ -144,6 +153,8 @@ public class DeskClock extends BaseActivity
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.recordLaunch("DeskClock");
+        final StartupTrace.Phase createPhase = StartupTrace.beginPhase("DeskClock.onCreate");
         super.onCreate(savedInstanceState);
 
         setContentView(R.layout.desk_clock);
@@ -286,8 +297,15 @@ public class DeskClock extends BaseActivity
         // Customize the view pager.
         mFragmentTabPagerAdapter = new FragmentTabPagerAdapter(this);
         mFragmentTabPager = (ViewPager) findViewById(R.id.desk_clock_pager);
-        // Keep all four tabs to minimize jank.
-        mFragmentTabPager.setOffscreenPageLimit(3);
+        if (savedInstanceState == null) {
+            // Only build the selected tab before the first frame; the fragment manager already
+            // holds every tab when restoring, so there is nothing to defer in that case.
+            mFragmentTabPagerAdapter.setDeferUnselectedTabs(true);
+            mFragmentTabPager.getViewTreeObserver().addOnPreDrawListener(new StartupPreloader());
+        } else {
+            // Keep all four tabs to minimize jank.
+            mFragmentTabPager.setOffscreenPageLimit(3);
+        }
         // Set Accessibility Delegate to null so view pager doesn't intercept movements and
         // prevent the fab from being selected.
         mFragmentTabPager.setAccessibilityDelegate(null);
@@ -313,6 +331,8 @@ public class DeskClock extends BaseActivity
 
         // Honor changes to the selected tab from outside entities.
         UiDataModel.getUiDataModel().addTabListener(mTabChangeWatcher);
+
+        createPhase.end();
     }
 
     @Override
@@ -320,6 +340,7 @@ public class DeskClock extends BaseActivity
         super.onStart();
         DataModel.getDataModel().addSilentSettingsListener(mSilentSettingChangeWatcher);
         DataModel.getDataModel().setApplicationInForeground(true);
+        Controller.getController().publishDeferredShortcuts();
     }
 
     @Override
@@ -359,6 +380,9 @@ public class DeskClock extends BaseActivity
             mDropShadowController = null;
         }
 
+        // The process may be stopped at any time once it leaves the foreground.
+        DataModel.getDataModel().flushPendingWrites();
+
         super.onPause();
     }
 
@@ -378,6 +402,29 @@ public class DeskClock extends BaseActivity
         super.onDestroy();
     }
 
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Recent log records:");
+        LogUtils.dump(writer);
+        writer.print(prefix);
+        writer.println("Alarm schedule index:");
+        AlarmScheduleIndex.getIndex().dump(getContentResolver(), writer);
+        writer.print(prefix);
+        writer.println("Posted alarm notifications:");
+        AlarmNotifications.dump(writer);
+        writer.print(prefix);
+        writer.println("Preference writes:");
+        DataModel.getDataModel().dumpPreferenceWrites(writer);
+        writer.print(prefix);
+        writer.println("Startup trace:");
+        StartupTrace.dump(writer);
+        writer.print(prefix);
+        writer.println("Tracked events:");
+        Controller.getController().dumpEvents(writer);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         mOptionsMenuManager.onCreateOptionsMenu(menu);
@@ -552,6 +599,11 @@ public class DeskClock extends BaseActivity
 
         @Override
         public void onPageScrollStateChanged(int state) {
+            // The user is revealing a neighboring tab; it must be built now.
+            if (state == SCROLL_STATE_DRAGGING) {
+                mFragmentTabPagerAdapter.showAllTabs();
+            }
+
             if (mPriorState == SCROLL_STATE_IDLE && state == SCROLL_STATE_SETTLING) {
                 // The user has tapped a tab button; play the hide and show animations linearly.
                 mHideAnimation.addListener(mAutoStartShowListener);
@@ -596,6 +648,52 @@ public class DeskClock extends BaseActivity
         @Override
         public void onPageSelected(int position) {
             mFragmentTabPagerAdapter.getDeskClockFragment(position).selectTab();
+            if (mFragmentTabPagerAdapter.isDeferred(position)) {
+                mFragmentTabPagerAdapter.showAllTabs();
+            }
+        }
+    }
+
+    /**
+     * Once the first frame has been drawn, waits for the main thread to become idle and then
+     * refreshes the notifications and builds the tabs and models that were deferred to shorten
+     * startup, the latter as far as allowed by the preload limit.
+     */
+    private final class StartupPreloader implements ViewTreeObserver.OnPreDrawListener,
+            Runnable, MessageQueue.IdleHandler {
+
+        @Override
+        public boolean onPreDraw() {
+            mFragmentTabPager.getViewTreeObserver().removeOnPreDrawListener(this);
+            // Runs after the first frame has been drawn.
+            mFragmentTabPager.post(this);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            StartupTrace.recordMilestone("DeskClock.firstFrame");
+            StartupTrace.endStartup();
+            Looper.myQueue().addIdleHandler(this);
+        }
+
+        @Override
+        public boolean queueIdle() {
+            if (isFinishing() || isDestroyed()) {
+                return false;
+            }
+
+            DataModel.getDataModel().updateDeferredNotifications();
+
+            final int preloadLimit = getResources().getInteger(R.integer.tab_preload_limit);
+            if (preloadLimit > 0) {
+                final StartupTrace.Phase phase = StartupTrace.beginPhase("DeskClock.preload");
+                mFragmentTabPager.setOffscreenPageLimit(preloadLimit);
+                mFragmentTabPagerAdapter.showAllTabs();
+                DataModel.getDataModel().preloadModels();
+                phase.end();
+            }
+            return false;
         }
     }
 
@@ -25,41 +25,69 @@ import android.preference.PreferenceManager;
 
 import com.android.deskclock.controller.Controller;
 import com.android.deskclock.data.DataModel;
+import com.android.deskclock.data.WriteBehindPreferences;
+import com.android.deskclock.events.FileEventSink;
 import com.android.deskclock.events.LogEventTracker;
 import com.android.deskclock.uidata.UiDataModel;
 
 public class DeskClockApplication extends Application {
 
+    /** Name of the preferences file storing frequently changing timer and stopwatch state. */
+    private static final String STATE_PREFERENCES_NAME = "state";
+
     @Override
     public void onCreate() {
+        StartupTrace.startApplication();
         super.onCreate();
+        final StartupTrace.Phase applicationPhase = StartupTrace.beginPhase("Application");
 
+        StartupTrace.Phase phase = StartupTrace.beginPhase("Preferences");
         final Context applicationContext = getApplicationContext();
-        final SharedPreferences prefs = getDefaultSharedPreferences(applicationContext);
+        final Context storageContext = getStorageContext(applicationContext);
+        final WriteBehindPreferences prefs = new WriteBehindPreferences(
+                PreferenceManager.getDefaultSharedPreferences(storageContext));
+        final WriteBehindPreferences statePrefs = new WriteBehindPreferences(
+                storageContext.getSharedPreferences(STATE_PREFERENCES_NAME, MODE_PRIVATE));
+        phase.end();
+
+        phase = StartupTrace.beginPhase("DataModel.init");
+        DataModel.getDataModel().init(applicationContext, prefs, statePrefs);
+        phase.end();
 
-        DataModel.getDataModel().init(applicationContext, prefs);
+        phase = StartupTrace.beginPhase("UiDataModel.init");
         UiDataModel.getUiDataModel().init(applicationContext, prefs);
+        phase.end();
+
+        phase = StartupTrace.beginPhase("Controller.init");
         Controller.getController().setContext(applicationContext);
         Controller.getController().addEventTracker(new LogEventTracker(applicationContext));
+        Controller.getController().addEventSink(new FileEventSink(applicationContext));
+        phase.end();
+
+        applicationPhase.end();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        UiDataModel.getUiDataModel().onTrimMemory(level);
     }
 
     /**
-     * Returns the default {@link SharedPreferences} instance from the underlying storage context.
+     * Returns the context whose storage area holds the {@link SharedPreferences} files.
      */
     @TargetApi(Build.VERSION_CODES.N)
-    private static SharedPreferences getDefaultSharedPreferences(Context context) {
-        final Context storageContext;
+    private static Context getStorageContext(Context context) {
         if (Utils.isNOrLater()) {
             // All N devices have split storage areas. Migrate the existing preferences into the new
             // device encrypted storage area if that has not yet occurred.
             final String name = PreferenceManager.getDefaultSharedPreferencesName(context);
-            storageContext = context.createDeviceProtectedStorageContext();
+            final Context storageContext = context.createDeviceProtectedStorageContext();
             if (!storageContext.moveSharedPreferencesFrom(context, name)) {
                 LogUtils.wtf("Failed to migrate shared preferences");
             }
-        } else {
-            storageContext = context;
+            return storageContext;
         }
-        return PreferenceManager.getDefaultSharedPreferences(storageContext);
+        return context;
     }
-}
\ No newline at end of file
+}
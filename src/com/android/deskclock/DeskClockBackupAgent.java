@@ -31,11 +31,9 @@ import android.support.annotation.NonNull;
 import com.android.deskclock.alarms.AlarmStateManager;
 import com.android.deskclock.data.DataModel;
 import com.android.deskclock.provider.Alarm;
-import com.android.deskclock.provider.AlarmInstance;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Calendar;
 import java.util.List;
 
 public class DeskClockBackupAgent extends BackupAgent {
@@ -45,6 +43,9 @@ public class DeskClockBackupAgent extends BackupAgent {
     public static final String ACTION_COMPLETE_RESTORE =
             "com.android.deskclock.action.COMPLETE_RESTORE";
 
+    /** The number of restored alarm instances between progress log messages. */
+    private static final int PROGRESS_INTERVAL = 50;
+
     @Override
     public void onBackup(ParcelFileDescriptor oldState, BackupDataOutput data,
             ParcelFileDescriptor newState) throws IOException { }
@@ -114,28 +115,22 @@ public class DeskClockBackupAgent extends BackupAgent {
 
         LOGGER.i("processRestoredData() started");
 
-        // Now that alarms have been restored, schedule new instances in AlarmManager.
+        // Now that alarms have been restored, replace their instances with new ones scheduled in
+        // AlarmManager. This occurs in bulk so the next alarm is computed only once.
         final ContentResolver contentResolver = context.getContentResolver();
         final List<Alarm> alarms = Alarm.getAlarms(contentResolver, null);
-
-        final Calendar now = Calendar.getInstance();
-        for (Alarm alarm : alarms) {
-            // Remove any instances that may currently exist for the alarm;
-            // these aren't relevant on the restore device and we'll recreate them below.
-            AlarmStateManager.deleteAllInstances(context, alarm.id);
-
-            if (alarm.enabled) {
-                // Create the next alarm instance to schedule.
-                AlarmInstance alarmInstance = alarm.createInstanceAfter(now);
-
-                // Add the next alarm instance to the database.
-                alarmInstance = AlarmInstance.addInstance(contentResolver, alarmInstance);
-
-                // Schedule the next alarm instance in AlarmManager.
-                AlarmStateManager.registerInstance(context, alarmInstance, true);
-                LOGGER.i("DeskClockBackupAgent scheduled alarm instance: %s", alarmInstance);
-            }
-        }
+        final int instanceCount = AlarmStateManager.restoreInstances(context, alarms,
+                new AlarmStateManager.RestoreProgressListener() {
+                    @Override
+                    public void onRestoreProgress(int restored, int total) {
+                        if (restored == total || restored % PROGRESS_INTERVAL == 0) {
+                            LOGGER.i("Scheduled %d of %d restored alarm instances",
+                                    restored, total);
+                        }
+                    }
+                });
+
+        LOGGER.i("Scheduled %d instances for %d restored alarms", instanceCount, alarms.size());
 
         // Remove the preference to avoid executing this logic multiple times.
         DataModel.getDataModel().setRestoreBackupFinished(false);
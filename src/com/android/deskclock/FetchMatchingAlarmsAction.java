@@ -17,7 +17,6 @@
 package com.android.deskclock;
 
 import android.app.Activity;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Looper;
@@ -42,12 +41,12 @@ import java.util.List;
 class FetchMatchingAlarmsAction implements Runnable {
 
     private final Context mContext;
-    private final List<Alarm> mAlarms;
+    private final AlarmLookup mAlarms;
     private final Intent mIntent;
     private final List<Alarm> mMatchingAlarms = new ArrayList<>();
     private final Activity mActivity;
 
-    public FetchMatchingAlarmsAction(Context context, List<Alarm> alarms, Intent intent,
+    public FetchMatchingAlarmsAction(Context context, AlarmLookup alarms, Intent intent,
                                      Activity activity) {
         mContext = context;
         // only enabled alarms are passed
@@ -63,11 +62,10 @@ class FetchMatchingAlarmsAction implements Runnable {
         final String searchMode = mIntent.getStringExtra(AlarmClock.EXTRA_ALARM_SEARCH_MODE);
         // if search mode isn't specified show all alarms in the UI picker
         if (searchMode == null) {
-            mMatchingAlarms.addAll(mAlarms);
+            mMatchingAlarms.addAll(mAlarms.getAlarms());
             return;
         }
 
-        final ContentResolver cr = mContext.getContentResolver();
         switch (searchMode) {
             case AlarmClock.ALARM_SEARCH_MODE_TIME:
                 // at least one of these has to be specified in this search mode.
@@ -91,11 +89,7 @@ class FetchMatchingAlarmsAction implements Runnable {
                 final int hour24 = Boolean.TRUE.equals(isPm) && hour < 12 ? (hour + 12) : hour;
 
                 // there might me multiple alarms at the same time
-                for (Alarm alarm : mAlarms) {
-                    if (alarm.hour == hour24 && alarm.minutes == minutes) {
-                        mMatchingAlarms.add(alarm);
-                    }
-                }
+                mMatchingAlarms.addAll(mAlarms.getAlarmsAt(hour24, minutes));
                 if (mMatchingAlarms.isEmpty()) {
                     final String reason = mContext.getString(R.string.no_alarm_at, hour24, minutes);
                     notifyFailureAndLog(reason, mActivity);
@@ -104,14 +98,7 @@ class FetchMatchingAlarmsAction implements Runnable {
                 break;
             case AlarmClock.ALARM_SEARCH_MODE_NEXT:
                 // Match currently firing alarms before scheduled alarms.
-                for (Alarm alarm : mAlarms) {
-                    final AlarmInstance alarmInstance =
-                            AlarmInstance.getNextUpcomingInstanceByAlarmId(cr, alarm.id);
-                    if (alarmInstance != null
-                            && alarmInstance.mAlarmState == AlarmInstance.FIRED_STATE) {
-                        mMatchingAlarms.add(alarm);
-                    }
-                }
+                mMatchingAlarms.addAll(mAlarms.getAlarmsInState(AlarmInstance.FIRED_STATE));
                 if (!mMatchingAlarms.isEmpty()) {
                     // return the matched firing alarms
                     return;
@@ -126,13 +113,13 @@ class FetchMatchingAlarmsAction implements Runnable {
 
                 // get time from nextAlarm and see if there are any other alarms matching this time
                 final Calendar nextTime = nextAlarm.getAlarmTime();
-                final List<Alarm> alarmsFiringAtSameTime = getAlarmsByHourMinutes(
-                        nextTime.get(Calendar.HOUR_OF_DAY), nextTime.get(Calendar.MINUTE), cr);
+                final List<Alarm> alarmsFiringAtSameTime = mAlarms.getAlarmsAt(
+                        nextTime.get(Calendar.HOUR_OF_DAY), nextTime.get(Calendar.MINUTE));
                 // there might me multiple alarms firing next
                 mMatchingAlarms.addAll(alarmsFiringAtSameTime);
                 break;
             case AlarmClock.ALARM_SEARCH_MODE_ALL:
-                mMatchingAlarms.addAll(mAlarms);
+                mMatchingAlarms.addAll(mAlarms.getAlarms());
                 break;
             case AlarmClock.ALARM_SEARCH_MODE_LABEL:
                 // EXTRA_MESSAGE has to be set in this mode
@@ -144,11 +131,7 @@ class FetchMatchingAlarmsAction implements Runnable {
                 }
 
                 // there might me multiple alarms with this label
-                for (Alarm alarm : mAlarms) {
-                    if (alarm.label.contains(label)) {
-                        mMatchingAlarms.add(alarm);
-                    }
-                }
+                mMatchingAlarms.addAll(mAlarms.getAlarmsWithLabel(label));
 
                 if (mMatchingAlarms.isEmpty()) {
                     final String reason = mContext.getString(R.string.no_alarms_with_label);
@@ -159,14 +142,6 @@ class FetchMatchingAlarmsAction implements Runnable {
         }
     }
 
-    private List<Alarm> getAlarmsByHourMinutes(int hour24, int minutes, ContentResolver cr) {
-        // if we want to dismiss we should only add enabled alarms
-        final String selection = String.format("%s=? AND %s=? AND %s=?",
-                Alarm.HOUR, Alarm.MINUTES, Alarm.ENABLED);
-        final String[] args = { String.valueOf(hour24), String.valueOf(minutes), "1" };
-        return Alarm.getAlarms(cr, selection, args);
-    }
-
     public List<Alarm> getMatchingAlarms() {
         return mMatchingAlarms;
     }
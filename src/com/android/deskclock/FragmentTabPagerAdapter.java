@@ -27,7 +27,9 @@ import android.view.ViewGroup;
 
 import com.android.deskclock.uidata.UiDataModel;
 
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This adapter produces the DeskClockFragments that are the content of the DeskClock tabs. The
@@ -35,6 +37,11 @@ import java.util.Map;
  * current locale. To prevent issues when switching between LTR and RTL, fragments are registered
  * with the manager using position-independent tags, which is an important departure from
  * FragmentPagerAdapter.
+ *
+ * <p>While unselected tabs are deferred, each page other than the selected one is represented by
+ * its {@link UiDataModel.Tab} rather than by a fragment, so that starting the application only
+ * builds the fragment the user actually sees. The deferred pages are replaced by their fragments
+ * once {@link #showAllTabs()} is called.</p>
  */
 final class FragmentTabPagerAdapter extends PagerAdapter {
 
@@ -52,6 +59,12 @@ final class FragmentTabPagerAdapter extends PagerAdapter {
     /** The current fragment displayed to the user. */
     private Fragment mCurrentPrimaryItem;
 
+    /** The tabs whose pages currently hold a placeholder in place of a fragment. */
+    private final Set<UiDataModel.Tab> mDeferredTabs = EnumSet.noneOf(UiDataModel.Tab.class);
+
+    /** {@code true} if unselected tabs are given placeholders when their pages are created. */
+    private boolean mDeferUnselectedTabs;
+
     FragmentTabPagerAdapter(DeskClock deskClock) {
         mDeskClock = deskClock;
         mFragmentCache = new ArrayMap<>(getCount());
@@ -95,6 +108,42 @@ final class FragmentTabPagerAdapter extends PagerAdapter {
         return fragment;
     }
 
+    /**
+     * @param defer {@code true} to build only the fragment of the selected tab until
+     *      {@link #showAllTabs()} is called; must be called before the adapter is first used
+     */
+    void setDeferUnselectedTabs(boolean defer) {
+        mDeferUnselectedTabs = defer;
+    }
+
+    /**
+     * @return {@code true} if the page at the given {@code position} holds a placeholder
+     */
+    boolean isDeferred(int position) {
+        return mDeferredTabs.contains(UiDataModel.getUiDataModel().getTabAt(position));
+    }
+
+    /**
+     * Stops deferring unselected tabs and replaces all placeholders with their fragments.
+     */
+    void showAllTabs() {
+        if (mDeferUnselectedTabs) {
+            mDeferUnselectedTabs = false;
+            if (!mDeferredTabs.isEmpty()) {
+                notifyDataSetChanged();
+            }
+        }
+    }
+
+    @Override
+    public int getItemPosition(Object object) {
+        // Placeholders are discarded, and rebuilt as fragments, once deferral ends.
+        if (object instanceof UiDataModel.Tab && !mDeferUnselectedTabs) {
+            return POSITION_NONE;
+        }
+        return POSITION_UNCHANGED;
+    }
+
     @Override
     public void startUpdate(ViewGroup container) {
         if (container.getId() == View.NO_ID) {
@@ -108,8 +157,14 @@ final class FragmentTabPagerAdapter extends PagerAdapter {
             mCurrentTransaction = mFragmentManager.beginTransaction();
         }
 
-        // Use the fragment located in the fragment manager if one exists.
+        // Defer building the fragments of unselected tabs if requested.
         final UiDataModel.Tab tab = UiDataModel.getUiDataModel().getTabAt(position);
+        if (mDeferUnselectedTabs && tab != UiDataModel.getUiDataModel().getSelectedTab()) {
+            mDeferredTabs.add(tab);
+            return tab;
+        }
+
+        // Use the fragment located in the fragment manager if one exists.
         Fragment fragment = mFragmentManager.findFragmentByTag(tab.name());
         if (fragment != null) {
             mCurrentTransaction.attach(fragment);
@@ -128,6 +183,11 @@ final class FragmentTabPagerAdapter extends PagerAdapter {
 
     @Override
     public void destroyItem(ViewGroup container, int position, Object object) {
+        if (object instanceof UiDataModel.Tab) {
+            mDeferredTabs.remove(object);
+            return;
+        }
+
         if (mCurrentTransaction == null) {
             mCurrentTransaction = mFragmentManager.beginTransaction();
         }
@@ -138,7 +198,7 @@ final class FragmentTabPagerAdapter extends PagerAdapter {
 
     @Override
     public void setPrimaryItem(ViewGroup container, int position, Object object) {
-        final Fragment fragment = (Fragment) object;
+        final Fragment fragment = object instanceof Fragment ? (Fragment) object : null;
         if (fragment != mCurrentPrimaryItem) {
             if (mCurrentPrimaryItem != null) {
                 FragmentCompat.setMenuVisibility(mCurrentPrimaryItem, false);
@@ -163,6 +223,6 @@ final class FragmentTabPagerAdapter extends PagerAdapter {
 
     @Override
     public boolean isViewFromObject(View view, Object object) {
-        return ((Fragment) object).getView() == view;
+        return object instanceof Fragment && ((Fragment) object).getView() == view;
     }
 }
\ No newline at end of file
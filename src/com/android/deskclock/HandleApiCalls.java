@@ -26,6 +26,7 @@ import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.provider.AlarmClock;
+import android.support.v4.util.LongSparseArray;
 import android.text.TextUtils;
 import android.text.format.DateFormat;
 
@@ -108,6 +109,8 @@ public class HandleApiCalls extends Activity {
         } catch (Exception e) {
             LOGGER.wtf(e);
         } finally {
+            // The process may be stopped at any time once this invisible activity finishes.
+            DataModel.getDataModel().flushPendingWrites();
             finish();
         }
     }
@@ -179,8 +182,8 @@ public class HandleApiCalls extends Activity {
 
         @Override
         protected Void doInBackground(Void... parameters) {
-            final ContentResolver cr = mContext.getContentResolver();
-            final List<Alarm> alarms = getEnabledAlarms(mContext);
+            final LongSparseArray<AlarmInstance> nextInstances = new LongSparseArray<>();
+            final List<Alarm> alarms = getEnabledAlarms(mContext, nextInstances);
             if (alarms.isEmpty()) {
                 final String reason = mContext.getString(R.string.no_scheduled_alarms);
                 Controller.getController().notifyVoiceFailure(mActivity, reason);
@@ -190,8 +193,7 @@ public class HandleApiCalls extends Activity {
 
             // remove Alarms in MISSED, DISMISSED, and PREDISMISSED states
             for (Iterator<Alarm> i = alarms.iterator(); i.hasNext();) {
-                final AlarmInstance instance = AlarmInstance.getNextUpcomingInstanceByAlarmId(
-                        cr, i.next().id);
+                final AlarmInstance instance = nextInstances.get(i.next().id);
                 if (instance == null || instance.mAlarmState > FIRED_STATE) {
                     i.remove();
                 }
@@ -212,8 +214,9 @@ public class HandleApiCalls extends Activity {
             }
 
             // fetch the alarms that are specified by the intent
+            final AlarmLookup lookup = new AlarmLookup(alarms, nextInstances);
             final FetchMatchingAlarmsAction fmaa =
-                    new FetchMatchingAlarmsAction(mContext, alarms, mIntent, mActivity);
+                    new FetchMatchingAlarmsAction(mContext, lookup, mIntent, mActivity);
             fmaa.run();
             final List<Alarm> matchingAlarms = fmaa.getMatchingAlarms();
 
@@ -233,16 +236,22 @@ public class HandleApiCalls extends Activity {
 
             // Apply the action to the matching alarms
             for (Alarm alarm : matchingAlarms) {
-                dismissAlarm(alarm, mActivity);
+                dismissAlarmInstance(lookup.getNextInstance(alarm), mActivity);
                 LOGGER.i("Alarm dismissed: " + alarm);
             }
             return null;
         }
 
-        private static List<Alarm> getEnabledAlarms(Context context) {
+        /**
+         * @param nextInstances receives the next instance of each enabled alarm that has one
+         * @return all enabled alarms, fetched along with their next instances in two queries
+         */
+        private static List<Alarm> getEnabledAlarms(Context context,
+                LongSparseArray<AlarmInstance> nextInstances) {
             final String selection = String.format("%s=?", Alarm.ENABLED);
             final String[] args = { "1" };
-            return Alarm.getAlarms(context.getContentResolver(), selection, args);
+            return Alarm.getAlarmsWithNextInstance(context.getContentResolver(), nextInstances,
+                    selection, args);
         }
     }
 
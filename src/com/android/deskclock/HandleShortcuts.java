@@ -20,6 +20,7 @@ import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
 
+import com.android.deskclock.data.DataModel;
 import com.android.deskclock.events.Events;
 import com.android.deskclock.stopwatch.StopwatchService;
 import com.android.deskclock.uidata.UiDataModel;
@@ -64,6 +65,8 @@ public class HandleShortcuts extends Activity {
             LOGGER.e("Error handling intent: " + intent, e);
             setResult(RESULT_CANCELED);
         } finally {
+            // The process may be stopped at any time once this invisible activity finishes.
+            DataModel.getDataModel().flushPendingWrites();
             finish();
         }
     }
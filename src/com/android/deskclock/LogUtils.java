@@ -19,6 +19,8 @@ package com.android.deskclock;
 import android.os.Build;
 import android.util.Log;
 
+import java.io.PrintWriter;
+
 public class LogUtils {
 
     /**
@@ -26,6 +28,9 @@ public class LogUtils {
      */
     private final static Logger DEFAULT_LOGGER = new Logger("AlarmClock");
 
+    /** Retains the most recent log records of every logger so they can be dumped on demand. */
+    private final static RingLog RING_LOG = new RingLog(1024);
+
     public static void v(String message, Object... args) {
         DEFAULT_LOGGER.v(message, args);
     }
@@ -58,6 +63,14 @@ public class LogUtils {
         DEFAULT_LOGGER.wtf(e);
     }
 
+    /**
+     * Writes the most recent log records of all loggers, including those below the enabled logcat
+     * level, to the given {@code writer}.
+     */
+    public static void dump(PrintWriter writer) {
+        RING_LOG.dump(writer);
+    }
+
     public final static class Logger {
 
         /**
@@ -67,6 +80,12 @@ public class LogUtils {
                 || "eng".equals(Build.TYPE)
                 || "userdebug".equals(Build.TYPE);
 
+        private static final int KINDS_LONG_LONG =
+                RingLog.kinds(RingLog.KIND_LONG, RingLog.KIND_LONG, RingLog.KIND_NONE);
+
+        private static final int KINDS_DOUBLE_DOUBLE_DOUBLE =
+                RingLog.kinds(RingLog.KIND_DOUBLE, RingLog.KIND_DOUBLE, RingLog.KIND_DOUBLE);
+
         public final String logTag;
 
         public Logger(String logTag) {
@@ -82,35 +101,165 @@ public class LogUtils {
 
         public void v(String message, Object... args) {
             if (isVerboseLoggable()) {
-                Log.v(logTag, args == null || args.length == 0
+                println(Log.VERBOSE, args == null || args.length == 0
                         ? message : String.format(message, args));
             }
         }
 
+        public void v(String message, Object arg) {
+            if (isVerboseLoggable()) {
+                println(Log.VERBOSE, String.format(message, arg));
+            }
+        }
+
+        /**
+         * Logs at verbose level without allocating unless the message is actually printed. The
+         * unformatted message is always retained in the in-memory ring log.
+         */
+        public void v(String message, long arg) {
+            record(Log.VERBOSE, message, RingLog.KIND_LONG, arg, 0, 0);
+            if (isVerboseLoggable()) {
+                Log.v(logTag, String.format(message, arg));
+            }
+        }
+
+        /**
+         * A {@code char} argument widens to its numeric value here, so it must be formatted with
+         * {@code %d} rather than {@code %c}.
+         */
+        public void v(String message, long arg0, long arg1) {
+            record(Log.VERBOSE, message, KINDS_LONG_LONG, arg0, arg1, 0);
+            if (isVerboseLoggable()) {
+                Log.v(logTag, String.format(message, arg0, arg1));
+            }
+        }
+
+        public void v(String message, char arg) {
+            record(Log.VERBOSE, message, RingLog.KIND_CHAR, arg, 0, 0);
+            if (isVerboseLoggable()) {
+                Log.v(logTag, String.format(message, arg));
+            }
+        }
+
+        public void v(String message, float arg) {
+            record(Log.VERBOSE, message, RingLog.KIND_FLOAT, floatBits(arg), 0, 0);
+            if (isVerboseLoggable()) {
+                Log.v(logTag, String.format(message, arg));
+            }
+        }
+
+        public void v(String message, double arg) {
+            record(Log.VERBOSE, message, RingLog.KIND_DOUBLE, bits(arg), 0, 0);
+            if (isVerboseLoggable()) {
+                Log.v(logTag, String.format(message, arg));
+            }
+        }
+
+        public void v(String message, double arg0, double arg1, double arg2) {
+            record(Log.VERBOSE, message, KINDS_DOUBLE_DOUBLE_DOUBLE, bits(arg0), bits(arg1),
+                    bits(arg2));
+            if (isVerboseLoggable()) {
+                Log.v(logTag, String.format(message, arg0, arg1, arg2));
+            }
+        }
+
         public void d(String message, Object... args) {
             if (isDebugLoggable()) {
-                Log.d(logTag, args == null || args.length == 0 ? message
+                println(Log.DEBUG, args == null || args.length == 0 ? message
                         : String.format(message, args));
             }
         }
 
+        public void d(String message, Object arg) {
+            if (isDebugLoggable()) {
+                println(Log.DEBUG, String.format(message, arg));
+            }
+        }
+
+        /**
+         * Logs at debug level without allocating unless the message is actually printed. The
+         * unformatted message is always retained in the in-memory ring log.
+         */
+        public void d(String message, long arg) {
+            record(Log.DEBUG, message, RingLog.KIND_LONG, arg, 0, 0);
+            if (isDebugLoggable()) {
+                Log.d(logTag, String.format(message, arg));
+            }
+        }
+
+        /**
+         * A {@code char} argument widens to its numeric value here, so it must be formatted with
+         * {@code %d} rather than {@code %c}.
+         */
+        public void d(String message, long arg0, long arg1) {
+            record(Log.DEBUG, message, KINDS_LONG_LONG, arg0, arg1, 0);
+            if (isDebugLoggable()) {
+                Log.d(logTag, String.format(message, arg0, arg1));
+            }
+        }
+
+        public void d(String message, char arg) {
+            record(Log.DEBUG, message, RingLog.KIND_CHAR, arg, 0, 0);
+            if (isDebugLoggable()) {
+                Log.d(logTag, String.format(message, arg));
+            }
+        }
+
         public void i(String message, Object... args) {
             if (isInfoLoggable()) {
-                Log.i(logTag, args == null || args.length == 0 ? message
+                println(Log.INFO, args == null || args.length == 0 ? message
                         : String.format(message, args));
             }
         }
 
+        public void i(String message, Object arg) {
+            if (isInfoLoggable()) {
+                println(Log.INFO, String.format(message, arg));
+            }
+        }
+
+        /**
+         * Logs at info level without allocating unless the message is actually printed. The
+         * unformatted message is always retained in the in-memory ring log.
+         */
+        public void i(String message, long arg) {
+            record(Log.INFO, message, RingLog.KIND_LONG, arg, 0, 0);
+            if (isInfoLoggable()) {
+                Log.i(logTag, String.format(message, arg));
+            }
+        }
+
+        public void i(String message, char arg) {
+            record(Log.INFO, message, RingLog.KIND_CHAR, arg, 0, 0);
+            if (isInfoLoggable()) {
+                Log.i(logTag, String.format(message, arg));
+            }
+        }
+
+        public void i(String message, float arg) {
+            record(Log.INFO, message, RingLog.KIND_FLOAT, floatBits(arg), 0, 0);
+            if (isInfoLoggable()) {
+                Log.i(logTag, String.format(message, arg));
+            }
+        }
+
+        public void i(String message, double arg) {
+            record(Log.INFO, message, RingLog.KIND_DOUBLE, bits(arg), 0, 0);
+            if (isInfoLoggable()) {
+                Log.i(logTag, String.format(message, arg));
+            }
+        }
+
         public void w(String message, Object... args) {
             if (isWarnLoggable()) {
-                Log.w(logTag, args == null || args.length == 0 ? message
+                println(Log.WARN, args == null || args.length == 0 ? message
                         : String.format(message, args));
             }
         }
 
         public void e(String message, Object... args) {
             if (isErrorLoggable()) {
-                Log.e(logTag, args == null || args.length == 0 ? message
+                println(Log.ERROR, args == null || args.length == 0 ? message
                         : String.format(message, args));
             }
         }
@@ -133,5 +282,26 @@ public class LogUtils {
                 Log.wtf(logTag, e);
             }
         }
+
+        /**
+         * Prints an already formatted message to logcat and retains it in the ring log.
+         */
+        private void println(int level, String message) {
+            Log.println(level, logTag, message);
+            RING_LOG.record(level, logTag, message);
+        }
+
+        private void record(int level, String message, int kinds, long arg0, long arg1,
+                long arg2) {
+            RING_LOG.record(level, logTag, message, kinds, arg0, arg1, arg2);
+        }
+
+        private static long bits(double value) {
+            return Double.doubleToRawLongBits(value);
+        }
+
+        private static long floatBits(float value) {
+            return Float.floatToRawIntBits(value);
+        }
     }
 }
\ No newline at end of file
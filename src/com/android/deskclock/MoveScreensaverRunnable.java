@@ -17,29 +17,53 @@
 package com.android.deskclock;
 
 import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
+import android.animation.ValueAnimator;
 import android.view.View;
+import android.view.ViewTreeObserver.OnDrawListener;
 import android.view.animation.AccelerateInterpolator;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
 
+import com.android.deskclock.data.DataModel;
 import com.android.deskclock.uidata.UiDataModel;
 
+import static android.text.format.DateUtils.HOUR_IN_MILLIS;
+import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
 import static com.android.deskclock.AnimatorUtils.getAlphaAnimator;
-import static com.android.deskclock.AnimatorUtils.getScaleAnimator;
 
 /**
  * This runnable chooses a random initial position for {@link #mSaverView} within
  * {@link #mContentView} if {@link #mSaverView} is transparent. It also schedules itself to run
  * each minute, at which time {@link #mSaverView} is faded out, set to a new random location, and
  * faded in.
+ *
+ * <p>In low power mode {@link #mSaverView} is not animated at all. Instead it jumps each minute,
+ * as the displayed time changes, to the next of a small ring of positions around a randomly chosen
+ * anchor, which is itself moved once an hour; this shifts every lit pixel often enough to prevent
+ * burn-in while rendering a single frame per minute. The number of frames rendered is logged each
+ * hour in either mode.</p>
  */
 public final class MoveScreensaverRunnable implements Runnable {
 
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("MoveScreensaver");
+
     /** The duration over which the fade in/out animations occur. */
     private static final long FADE_TIME = 3000L;
 
+    /** The scale of the saver view when fully faded out. */
+    private static final float HIDDEN_SCALE = 0.85f;
+
+    /** The distance between adjacent positions of the burn-in ring, in density-independent px. */
+    private static final float SHIFT_DISTANCE_DP = 4f;
+
+    /** The offsets of the positions in the burn-in ring, in multiples of the shift distance. */
+    private static final int[] SHIFT_X = {0, 1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] SHIFT_Y = {0, 0, 1, 1, 1, 0, -1, -1, -1};
+
+    /** The number of moves in low power mode after which a new anchor is chosen. */
+    private static final int MOVES_PER_ANCHOR = (int) (HOUR_IN_MILLIS / MINUTE_IN_MILLIS);
+
     /** Accelerate the hide animation. */
     private final Interpolator mAcceleration = new AccelerateInterpolator();
 
@@ -52,9 +76,55 @@ public final class MoveScreensaverRunnable implements Runnable {
     /** The display within the {@link #mContentView} that is randomly positioned. */
     private final View mSaverView;
 
+    /** Fades in the saver view at its initial position; reused for every start. */
+    private final Animator mFadeInAnimator;
+
+    /**
+     * Fades out and shrinks the saver view, moves it, then fades it in and grows it again; reused
+     * for every move.
+     */
+    private final ValueAnimator mMoveAnimator;
+
+    /** Counts the frames rendered by the content view. */
+    private final OnDrawListener mFrameCounter = new OnDrawListener() {
+        @Override
+        public void onDraw() {
+            mFrameCount++;
+        }
+    };
+
+    /** Logs the frames rendered by the content view each hour. */
+    private final Runnable mFrameReporter = new Runnable() {
+        @Override
+        public void run() {
+            reportFrames();
+        }
+    };
+
     /** Tracks the currently executing animation if any; used to gracefully stop the animation. */
     private Animator mActiveAnimator;
 
+    /** {@code true} if the saver view should jump rather than animate to each new position. */
+    private boolean mLowPowerMode;
+
+    /** The position to which {@link #mMoveAnimator} moves the saver view while it is hidden. */
+    private float mNewX;
+    private float mNewY;
+
+    /** {@code true} once {@link #mMoveAnimator} has moved the saver view in its current run. */
+    private boolean mMoved;
+
+    /** The center of the burn-in ring in low power mode. */
+    private float mAnchorX;
+    private float mAnchorY;
+
+    /** The number of moves made in low power mode since the anchor was chosen. */
+    private int mMoveCount;
+
+    /** The frames rendered since the last report and the time of that report. */
+    private int mFrameCount;
+    private long mFrameCountStart;
+
     /**
      * @param contentView contains the {@code saverView}
      * @param saverView a child view of {@code contentView} that periodically moves around
@@ -62,6 +132,20 @@ public final class MoveScreensaverRunnable implements Runnable {
     public MoveScreensaverRunnable(View contentView, View saverView) {
         mContentView = contentView;
         mSaverView = saverView;
+
+        mFadeInAnimator = getAlphaAnimator(mSaverView, 0f, 1f);
+        mFadeInAnimator.setDuration(FADE_TIME);
+        mFadeInAnimator.setInterpolator(mDeceleration);
+
+        mMoveAnimator = ValueAnimator.ofFloat(0f, 1f);
+        mMoveAnimator.setDuration(2 * FADE_TIME);
+        mMoveAnimator.setInterpolator(new LinearInterpolator());
+        mMoveAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                updateMove(animation.getAnimatedFraction());
+            }
+        });
     }
 
     /**
@@ -71,14 +155,24 @@ public final class MoveScreensaverRunnable implements Runnable {
         // Stop any existing animations or callbacks.
         stop();
 
+        mLowPowerMode = DataModel.getDataModel().getScreensaverLowPowerModeOn();
+
         // Reset the alpha to 0 so saver view will be randomly positioned within the new bounds.
         mSaverView.setAlpha(0);
 
         // Execute the position updater runnable to choose the first random position of saver view.
         run();
 
-        // Schedule callbacks every minute to adjust the position of mSaverView.
-        UiDataModel.getUiDataModel().addMinuteCallback(this, -FADE_TIME);
+        // Schedule callbacks every minute to adjust the position of mSaverView. Animated moves
+        // begin early so they complete as the minute changes; jumps coincide with the change so
+        // that the move and the new time are rendered in the same frame.
+        final long offset = mLowPowerMode ? 0 : -FADE_TIME;
+        UiDataModel.getUiDataModel().addMinuteCallback(this, offset);
+
+        mFrameCount = 0;
+        mFrameCountStart = System.currentTimeMillis();
+        mContentView.getViewTreeObserver().addOnDrawListener(mFrameCounter);
+        UiDataModel.getUiDataModel().addHourCallback(mFrameReporter, 0);
     }
 
     /**
@@ -92,6 +186,13 @@ public final class MoveScreensaverRunnable implements Runnable {
             mActiveAnimator.end();
             mActiveAnimator = null;
         }
+
+        if (mFrameCountStart != 0) {
+            reportFrames();
+            mFrameCountStart = 0;
+            mContentView.getViewTreeObserver().removeOnDrawListener(mFrameCounter);
+            UiDataModel.getUiDataModel().removePeriodicCallback(mFrameReporter);
+        }
     }
 
     @Override
@@ -110,48 +211,95 @@ public final class MoveScreensaverRunnable implements Runnable {
 
             mSaverView.setX(newX);
             mSaverView.setY(newY);
-            mActiveAnimator = getAlphaAnimator(mSaverView, 0f, 1f);
-            mActiveAnimator.setDuration(FADE_TIME);
-            mActiveAnimator.setInterpolator(mDeceleration);
-            mActiveAnimator.start();
+            if (mLowPowerMode) {
+                mAnchorX = newX;
+                mAnchorY = newY;
+                mMoveCount = 0;
+                mSaverView.setAlpha(1f);
+            } else {
+                mActiveAnimator = mFadeInAnimator;
+                mActiveAnimator.start();
+            }
+        } else if (mLowPowerMode) {
+            jumpToNextPosition();
         } else {
             // Select a new random position anywhere in mContentView that will fit mSaverView.
-            final float newX = getRandomPoint(mContentView.getWidth() - mSaverView.getWidth());
-            final float newY = getRandomPoint(mContentView.getHeight() - mSaverView.getHeight());
-
-            // Fade out and shrink the saver view.
-            final AnimatorSet hide = new AnimatorSet();
-            hide.setDuration(FADE_TIME);
-            hide.setInterpolator(mAcceleration);
-            hide.play(getAlphaAnimator(mSaverView, 1f, 0f))
-                    .with(getScaleAnimator(mSaverView, 1f, 0.85f));
-
-            // Fade in and grow the saver view after altering its position.
-            final AnimatorSet show = new AnimatorSet();
-            show.setDuration(FADE_TIME);
-            show.setInterpolator(mDeceleration);
-            show.play(getAlphaAnimator(mSaverView, 0f, 1f))
-                    .with(getScaleAnimator(mSaverView, 0.85f, 1f));
-            show.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationStart(Animator animation) {
-                    mSaverView.setX(newX);
-                    mSaverView.setY(newY);
-                }
-            });
-
-            // Execute hide followed by show.
-            final AnimatorSet all = new AnimatorSet();
-            all.play(show).after(hide);
-            mActiveAnimator = all;
+            mNewX = getRandomPoint(mContentView.getWidth() - mSaverView.getWidth());
+            mNewY = getRandomPoint(mContentView.getHeight() - mSaverView.getHeight());
+            mMoved = false;
+
+            // Fade out and shrink the saver view, move it, then fade in and grow it.
+            mActiveAnimator = mMoveAnimator;
             mActiveAnimator.start();
         }
     }
 
+    /**
+     * Applies the state of the move animation at the given {@code fraction} of its duration.
+     */
+    private void updateMove(float fraction) {
+        final float alpha;
+        final float scale;
+        if (fraction < 0.5f) {
+            final float hidden = mAcceleration.getInterpolation(fraction * 2f);
+            alpha = 1f - hidden;
+            scale = 1f - (1f - HIDDEN_SCALE) * hidden;
+        } else {
+            if (!mMoved) {
+                mSaverView.setX(mNewX);
+                mSaverView.setY(mNewY);
+                mMoved = true;
+            }
+            final float shown = mDeceleration.getInterpolation((fraction - 0.5f) * 2f);
+            alpha = shown;
+            scale = HIDDEN_SCALE + (1f - HIDDEN_SCALE) * shown;
+        }
+
+        mSaverView.setAlpha(alpha);
+        mSaverView.setScaleX(scale);
+        mSaverView.setScaleY(scale);
+    }
+
+    /**
+     * Moves the saver view, without animation, to the next position of the burn-in ring.
+     */
+    private void jumpToNextPosition() {
+        final float maxX = mContentView.getWidth() - mSaverView.getWidth();
+        final float maxY = mContentView.getHeight() - mSaverView.getHeight();
+
+        mMoveCount++;
+        if (mMoveCount >= MOVES_PER_ANCHOR) {
+            mMoveCount = 0;
+            mAnchorX = getRandomPoint(maxX);
+            mAnchorY = getRandomPoint(maxY);
+        }
+
+        final float distance = SHIFT_DISTANCE_DP
+                * mContentView.getResources().getDisplayMetrics().density;
+        final int shift = mMoveCount % SHIFT_X.length;
+        final float newX = mAnchorX + SHIFT_X[shift] * distance;
+        final float newY = mAnchorY + SHIFT_Y[shift] * distance;
+
+        mSaverView.setX(Math.max(0f, Math.min(maxX, newX)));
+        mSaverView.setY(Math.max(0f, Math.min(maxY, newY)));
+    }
+
+    /**
+     * Logs the number of frames rendered since the last report and starts a new count.
+     */
+    private void reportFrames() {
+        final long now = System.currentTimeMillis();
+        final long minutes = (now - mFrameCountStart) / MINUTE_IN_MILLIS;
+        LOGGER.i("Rendered %d frames in %d minutes (low power mode: %b)",
+                mFrameCount, minutes, mLowPowerMode);
+        mFrameCount = 0;
+        mFrameCountStart = now;
+    }
+
     /**
      * @return a random integer between 0 and the {@code maximum} exclusive.
      */
     private static float getRandomPoint(float maximum) {
         return (int) (Math.random() * maximum);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock;
+
+import android.text.format.DateFormat;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.IllegalFormatException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size, in-memory log of recent diagnostic messages. Each record stores a reference to the
+ * unformatted message template plus up to three primitive arguments in parallel arrays; formatting
+ * is deferred until the log is {@link #dump dumped}. Recording therefore neither formats nor
+ * allocates, which allows verbose diagnostics to be captured in production builds even when the
+ * corresponding logcat level is disabled. Records are overwritten oldest-first once the log is
+ * full.
+ *
+ * <p>Recording is lock-free; a record being written while the log is dumped may appear torn. This
+ * is acceptable for a diagnostic aid.</p>
+ */
+final class RingLog {
+
+    static final int KIND_NONE = 0;
+    static final int KIND_LONG = 1;
+    static final int KIND_DOUBLE = 2;
+    static final int KIND_FLOAT = 3;
+    static final int KIND_CHAR = 4;
+
+    /** The number of bits used to describe the kind of each argument. */
+    private static final int KIND_BITS = 3;
+
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private static final int MAX_ARGS = 3;
+
+    private final int mMask;
+
+    private final long[] mTimes;
+    private final byte[] mLevels;
+    private final String[] mTags;
+    private final String[] mMessages;
+    private final int[] mArgKinds;
+    private final long[] mArgs;
+
+    /** The total number of records ever written. */
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    /**
+     * @param capacity the number of records retained; must be a power of two
+     */
+    RingLog(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mMask = capacity - 1;
+        mTimes = new long[capacity];
+        mLevels = new byte[capacity];
+        mTags = new String[capacity];
+        mMessages = new String[capacity];
+        mArgKinds = new int[capacity];
+        mArgs = new long[capacity * MAX_ARGS];
+    }
+
+    /**
+     * Records a message with no arguments, e.g. one that was already formatted.
+     */
+    void record(int level, String tag, String message) {
+        record(level, tag, message, KIND_NONE, 0, 0, 0);
+    }
+
+    /**
+     * Records a message template and its primitive arguments.
+     *
+     * @param kinds the kind of each argument, packed {@link #KIND_BITS} bits per argument with the
+     *      first argument in the lowest bits; see {@link #kinds}
+     * @param arg0 the first argument; doubles and floats are stored as their raw bits
+     */
+    void record(int level, String tag, String message, int kinds, long arg0, long arg1,
+            long arg2) {
+        final int slot = (int) (mNextSequence.getAndIncrement() & mMask);
+        mTimes[slot] = System.currentTimeMillis();
+        mLevels[slot] = (byte) level;
+        mTags[slot] = tag;
+        mMessages[slot] = message;
+        mArgKinds[slot] = kinds;
+        final int argIndex = slot * MAX_ARGS;
+        mArgs[argIndex] = arg0;
+        mArgs[argIndex + 1] = arg1;
+        mArgs[argIndex + 2] = arg2;
+    }
+
+    /**
+     * Formats and writes all retained records, oldest first, to the given {@code writer}.
+     */
+    void dump(PrintWriter writer) {
+        final long end = mNextSequence.get();
+        final long start = Math.max(0, end - (mMask + 1));
+        writer.printf("%d records (%d overwritten)%n", end - start, start);
+
+        for (long sequence = start; sequence < end; sequence++) {
+            final int slot = (int) (sequence & mMask);
+            writer.print(DateFormat.format("MM-dd HH:mm:ss", mTimes[slot]));
+            writer.print(' ');
+            writer.print(getLevelName(mLevels[slot]));
+            writer.print('/');
+            writer.print(mTags[slot]);
+            writer.print(": ");
+            writer.println(format(slot));
+        }
+    }
+
+    private String format(int slot) {
+        final String message = mMessages[slot];
+        final int kinds = mArgKinds[slot];
+        if (kinds == KIND_NONE || message == null) {
+            return message;
+        }
+
+        final Object[] args = new Object[MAX_ARGS];
+        int count = 0;
+        for (int i = 0; i < MAX_ARGS; i++) {
+            final int kind = (kinds >> (i * KIND_BITS)) & KIND_MASK;
+            final long value = mArgs[slot * MAX_ARGS + i];
+            if (kind == KIND_LONG) {
+                args[count++] = value;
+            } else if (kind == KIND_DOUBLE) {
+                args[count++] = Double.longBitsToDouble(value);
+            } else if (kind == KIND_FLOAT) {
+                args[count++] = Float.intBitsToFloat((int) value);
+            } else if (kind == KIND_CHAR) {
+                args[count++] = (char) value;
+            }
+        }
+
+        try {
+            return String.format(message, args);
+        } catch (IllegalFormatException e) {
+            return message;
+        }
+    }
+
+    /**
+     * @return the packed description of up to three argument kinds for {@link #record}
+     */
+    static int kinds(int kind0, int kind1, int kind2) {
+        return kind0 | (kind1 << KIND_BITS) | (kind2 << (2 * KIND_BITS));
+    }
+
+    private static char getLevelName(int level) {
+        switch (level) {
+            case Log.VERBOSE: return 'V';
+            case Log.DEBUG: return 'D';
+            case Log.INFO: return 'I';
+            case Log.WARN: return 'W';
+            case Log.ERROR: return 'E';
+            default: return 'A';
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Records the wall and main-thread CPU time of the phases of starting the application and its
+ * components, e.g. initializing each model in {@link DeskClockApplication} or creating
+ * {@link DeskClock}, along with the component whose launch started the process. Each phase is
+ * also emitted as a systrace section.
+ *
+ * <p>In debug builds, disk reads and writes on the main thread are logged by {@link StrictMode}
+ * from the start of the application until {@link #endStartup} is called, or for at most
+ * {@link #MAX_STARTUP_MS} when the process was started by a component that never calls it, so
+ * the phase that performs them can be identified from the log.</p>
+ *
+ * <p>The records are written by {@link #dump} one per line in a fixed format, e.g.
+ * {@code phase=DataModel.init wall=12 cpu=9}, so that dumps taken before and after a change can
+ * be compared by a script to catch startup regressions.</p>
+ */
+public final class StartupTrace {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("StartupTrace");
+
+    /** The maximum number of retained records; the oldest records are discarded first. */
+    private static final int MAX_RECORDS = 64;
+
+    /** Startup ends automatically this long after the application starts. */
+    private static final long MAX_STARTUP_MS = 5000;
+
+    /** A launch counts as the cold start only if it occurs this soon after application start. */
+    private static final long COLD_START_WINDOW_MS = 1000;
+
+    /** Ends startup on behalf of components that never call {@link #endStartup}. */
+    private static final Runnable sEndStartupRunnable = new Runnable() {
+        @Override
+        public void run() {
+            endStartup();
+        }
+    };
+
+    /** The retained records, oldest first. */
+    private static final ArrayDeque<Record> sRecords = new ArrayDeque<>(MAX_RECORDS);
+
+    /** The uptime at which the application started; 0 until {@link #startApplication}. */
+    private static long sApplicationStartTime;
+
+    /** The component whose launch started the process; {@code null} if none was recorded. */
+    private static String sColdStartComponent;
+
+    /** {@code true} once the first launch after application start has been recorded. */
+    private static boolean sLaunchRecorded;
+
+    /** The thread policy in effect before startup began; restored when startup ends. */
+    private static StrictMode.ThreadPolicy sPriorThreadPolicy;
+
+    private StartupTrace() {}
+
+    /**
+     * Marks the start of the application process. Must be called first in
+     * {@link DeskClockApplication#onCreate}, i.e. on the main thread.
+     */
+    public static synchronized void startApplication() {
+        sApplicationStartTime = SystemClock.uptimeMillis();
+
+        if (LogUtils.Logger.DEBUG) {
+            sPriorThreadPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder(sPriorThreadPolicy)
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+            new Handler(Looper.getMainLooper()).postDelayed(sEndStartupRunnable, MAX_STARTUP_MS);
+        }
+    }
+
+    /**
+     * Records the launch of a component. The first component launched right after the
+     * application started is the one that started the process, i.e. the cold start; a process
+     * started by an untraced component, e.g. a widget provider, has no cold start component.
+     *
+     * @param component names the launched activity, receiver or service
+     */
+    public static synchronized void recordLaunch(String component) {
+        final long sinceStart = SystemClock.uptimeMillis() - sApplicationStartTime;
+        final boolean coldStart = !sLaunchRecorded && sinceStart <= COLD_START_WINDOW_MS;
+        sLaunchRecorded = true;
+        if (coldStart) {
+            sColdStartComponent = component;
+        }
+        addRecord(new Record("launch", component, sinceStart, -1));
+        if (coldStart) {
+            LOGGER.i("Cold start by %s %d ms after application start", component, sinceStart);
+        }
+    }
+
+    /**
+     * Records the time since the application started at which a milestone, e.g. the first frame
+     * of an activity, was reached.
+     *
+     * @param name identifies the milestone in dumps
+     */
+    public static synchronized void recordMilestone(String name) {
+        final long sinceStart = SystemClock.uptimeMillis() - sApplicationStartTime;
+        addRecord(new Record("milestone", name, sinceStart, -1));
+        LOGGER.i("%s reached %d ms after application start", name, sinceStart);
+    }
+
+    /**
+     * Ends the startup period, restoring the thread policy that detected main-thread disk access.
+     * Later calls have no effect.
+     */
+    public static synchronized void endStartup() {
+        if (sPriorThreadPolicy != null) {
+            StrictMode.setThreadPolicy(sPriorThreadPolicy);
+            sPriorThreadPolicy = null;
+        }
+    }
+
+    /**
+     * @param name identifies the phase in dumps and systrace
+     * @return a phase that is being timed; it must be {@link Phase#end ended} on the same thread
+     */
+    public static Phase beginPhase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Writes the cold start component and the retained records to the given {@code writer}.
+     */
+    public static synchronized void dump(PrintWriter writer) {
+        writer.printf(Locale.US, "cold_start=%s%n", sColdStartComponent);
+        for (Record record : sRecords) {
+            record.dump(writer);
+        }
+    }
+
+    private static synchronized void addRecord(Record record) {
+        if (sRecords.size() == MAX_RECORDS) {
+            sRecords.removeFirst();
+        }
+        sRecords.addLast(record);
+    }
+
+    /**
+     * A phase of startup whose duration is being measured.
+     */
+    public static final class Phase {
+
+        private final String mName;
+        private final long mStartTime;
+        private final long mStartCpuTime;
+
+        private Phase(String name) {
+            mName = name;
+            mStartTime = SystemClock.uptimeMillis();
+            mStartCpuTime = SystemClock.currentThreadTimeMillis();
+            Trace.beginSection(name);
+        }
+
+        /**
+         * Stops timing this phase and records its duration.
+         */
+        public void end() {
+            Trace.endSection();
+            final long wall = SystemClock.uptimeMillis() - mStartTime;
+            final long cpu = SystemClock.currentThreadTimeMillis() - mStartCpuTime;
+            addRecord(new Record("phase", mName, wall, cpu));
+            LOGGER.v("%s took %d ms", mName, wall);
+        }
+    }
+
+    /**
+     * A single measurement; {@code cpu} is negative if CPU time was not measured.
+     */
+    private static final class Record {
+
+        private final String mKind;
+        private final String mName;
+        private final long mWall;
+        private final long mCpu;
+
+        private Record(String kind, String name, long wall, long cpu) {
+            mKind = kind;
+            mName = name;
+            mWall = wall;
+            mCpu = cpu;
+        }
+
+        private void dump(PrintWriter writer) {
+            if (mCpu < 0) {
+                writer.printf(Locale.US, "%s=%s wall=%d%n", mKind, mName, mWall);
+            } else {
+                writer.printf(Locale.US, "%s=%s wall=%d cpu=%d%n", mKind, mName, mWall, mCpu);
+            }
+        }
+    }
+}
@@ -494,7 +494,7 @@ public class Utils {
      * @return a vector-drawable inflated from the given {@code resId}
      */
     public static VectorDrawableCompat getVectorDrawable(Context context, @DrawableRes int resId) {
-        return VectorDrawableCompat.create(context.getResources(), resId, context.getTheme());
+        return UiDataModel.getUiDataModel().getVectorDrawable(context, resId);
     }
 
     /**
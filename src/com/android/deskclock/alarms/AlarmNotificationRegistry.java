@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.alarms;
+
+import android.annotation.TargetApi;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.service.notification.StatusBarNotification;
+import android.support.v4.util.ArrayMap;
+import android.util.SparseArray;
+
+import com.android.deskclock.LogUtils;
+
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Mirrors the alarm notifications this process has posted, grouped by notification group and
+ * ordered by sort key within each group, along with the summary notification posted for each
+ * group. This allows group summaries to be maintained without asking the NotificationManager for
+ * all active notifications on every alarm state change. The mirror is seeded from the active
+ * notifications once per process, since notifications outlive the process that posted them.
+ *
+ * <p>Instances are not thread-safe; {@link AlarmNotifications} guards all access.</p>
+ */
+final class AlarmNotificationRegistry {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("AlarmNotifRegistry");
+
+    /** Orders entries by sort key; ids break ties between alarms that fire at the same time. */
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            final int result = e1.mSortKey.compareTo(e2.mSortKey);
+            return result != 0 ? result : Integer.compare(e1.mId, e2.mId);
+        }
+    };
+
+    /** Maps notification id to the entry of each posted alarm notification. */
+    private final SparseArray<Entry> mEntries = new SparseArray<>();
+
+    /** Maps group key to the entries of the alarm notifications posted in that group. */
+    private final Map<String, TreeSet<Entry>> mGroups = new ArrayMap<>(2);
+
+    /** Maps group key to the summary notification posted for that group. */
+    private final Map<String, Notification> mSummaries = new ArrayMap<>(2);
+
+    /** {@code true} once the registry has been seeded from the active notifications. */
+    private boolean mReconciled;
+
+    /**
+     * Seeds the registry with the active notifications in the given {@code groups} if this has
+     * not yet been done by this process. Notifications posted by a previous process are otherwise
+     * unknown to the registry.
+     *
+     * @param summaryIds the notification id of the summary of each of the {@code groups}
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    void reconcile(Context context, String[] groups, int[] summaryIds) {
+        if (mReconciled) {
+            return;
+        }
+        mReconciled = true;
+
+        final NotificationManager nm =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        for (StatusBarNotification statusBarNotification : nm.getActiveNotifications()) {
+            final Notification n = statusBarNotification.getNotification();
+            final int id = statusBarNotification.getId();
+            for (int i = 0; i < groups.length; i++) {
+                if (!groups[i].equals(n.getGroup())) {
+                    continue;
+                }
+                if (id == summaryIds[i]) {
+                    mSummaries.put(groups[i], n);
+                } else if (!isGroupSummary(n) && n.getSortKey() != null) {
+                    onPosted(groups[i], id, n.getSortKey(), n);
+                }
+            }
+        }
+        LOGGER.v("Reconciled %d active alarm notifications", mEntries.size());
+    }
+
+    /**
+     * Records that the given {@code notification} was posted with the given {@code id}, replacing
+     * any notification previously recorded with that id, even if it belonged to another group.
+     */
+    void onPosted(String group, int id, String sortKey, Notification notification) {
+        onCanceled(id);
+
+        final Entry entry = new Entry(id, group, sortKey, notification);
+        TreeSet<Entry> entries = mGroups.get(group);
+        if (entries == null) {
+            entries = new TreeSet<>(ENTRY_COMPARATOR);
+            mGroups.put(group, entries);
+        }
+        entries.add(entry);
+        mEntries.put(id, entry);
+    }
+
+    /**
+     * Records that the notification with the given {@code id} was canceled.
+     */
+    void onCanceled(int id) {
+        final Entry entry = mEntries.get(id);
+        if (entry != null) {
+            mEntries.remove(id);
+            mGroups.get(entry.mGroup).remove(entry);
+        }
+    }
+
+    /**
+     * @return the posted notification in the given {@code group} with the lowest sort key;
+     *      {@code null} if the group is empty
+     */
+    Notification getFirstNotification(String group) {
+        final TreeSet<Entry> entries = mGroups.get(group);
+        return entries == null || entries.isEmpty() ? null : entries.first().mNotification;
+    }
+
+    /**
+     * @return the summary notification posted for the given {@code group}; {@code null} if none
+     */
+    Notification getSummaryNotification(String group) {
+        return mSummaries.get(group);
+    }
+
+    /**
+     * Records that the given {@code summary} was posted for the given {@code group}.
+     */
+    void onSummaryPosted(String group, Notification summary) {
+        mSummaries.put(group, summary);
+    }
+
+    /**
+     * Records that the summary of the given {@code group} was canceled.
+     */
+    void onSummaryCanceled(String group) {
+        mSummaries.remove(group);
+    }
+
+    /**
+     * Writes the recorded notifications of each group, in sort key order, to {@code writer}.
+     */
+    void dump(PrintWriter writer) {
+        writer.printf("reconciled=%b%n", mReconciled);
+        for (Map.Entry<String, TreeSet<Entry>> group : mGroups.entrySet()) {
+            writer.printf("group %s: summary=%b%n", group.getKey(),
+                    mSummaries.containsKey(group.getKey()));
+            for (Entry entry : group.getValue()) {
+                writer.printf("  %d %s%n", entry.mId, entry.mSortKey);
+            }
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static boolean isGroupSummary(Notification n) {
+        return (n.flags & Notification.FLAG_GROUP_SUMMARY) == Notification.FLAG_GROUP_SUMMARY;
+    }
+
+    /**
+     * A single posted alarm notification.
+     */
+    private static final class Entry {
+
+        private final int mId;
+        private final String mGroup;
+        private final String mSortKey;
+        private final Notification mNotification;
+
+        private Entry(int id, String group, String sortKey, Notification notification) {
+            mId = id;
+            mGroup = group;
+            mSortKey = sortKey;
+            mNotification = notification;
+        }
+    }
+}
@@ -15,16 +15,12 @@
  */
 package com.android.deskclock.alarms;
 
-import android.annotation.TargetApi;
 import android.app.Notification;
-import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.os.Build;
-import android.service.notification.StatusBarNotification;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.NotificationManagerCompat;
 import android.support.v4.content.ContextCompat;
@@ -35,9 +31,11 @@ import com.android.deskclock.DeskClock;
 import com.android.deskclock.LogUtils;
 import com.android.deskclock.R;
 import com.android.deskclock.Utils;
+import com.android.deskclock.data.DataModel;
 import com.android.deskclock.provider.Alarm;
 import com.android.deskclock.provider.AlarmInstance;
 
+import java.io.PrintWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
@@ -82,10 +80,20 @@ public final class AlarmNotifications {
      */
     private static final int ALARM_FIRING_NOTIFICATION_ID = Integer.MAX_VALUE - 7;
 
+    /** Tracks the posted alarm notifications so group summaries can be maintained locally. */
+    private static final AlarmNotificationRegistry sRegistry = new AlarmNotificationRegistry();
+
     static synchronized void showLowPriorityNotification(Context context,
             AlarmInstance instance) {
         LogUtils.v("Displaying low priority notification for alarm instance: " + instance.mId);
 
+        final int id = instance.hashCode();
+        final long fingerprint = createFingerprint(instance);
+        if (DataModel.getDataModel().isAlarmNotificationPosted(id, fingerprint)) {
+            LogUtils.v("Notification for alarm instance is unchanged: " + instance.mId);
+            return;
+        }
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
                 .setShowWhen(false)
                 .setContentTitle(context.getString(
@@ -108,7 +116,6 @@ public final class AlarmNotifications {
         Intent hideIntent = AlarmStateManager.createStateChangeIntent(context,
                 AlarmStateManager.ALARM_DELETE_TAG, instance,
                 AlarmInstance.HIDE_NOTIFICATION_STATE);
-        final int id = instance.hashCode();
         builder.setDeleteIntent(PendingIntent.getService(context, id,
                 hideIntent, PendingIntent.FLAG_UPDATE_CURRENT));
 
@@ -125,16 +132,23 @@ public final class AlarmNotifications {
         builder.setContentIntent(PendingIntent.getActivity(context, id,
                 viewAlarmIntent, PendingIntent.FLAG_UPDATE_CURRENT));
 
-        NotificationManagerCompat nm = NotificationManagerCompat.from(context);
         final Notification notification = builder.build();
-        nm.notify(id, notification);
-        updateUpcomingAlarmGroupNotification(context, -1, notification);
+        DataModel.getDataModel().postAlarmNotification(id, fingerprint, notification);
+        onAlarmNotificationPosted(context, UPCOMING_GROUP_KEY, id, createSortKey(instance),
+                notification);
     }
 
     static synchronized void showHighPriorityNotification(Context context,
             AlarmInstance instance) {
         LogUtils.v("Displaying high priority notification for alarm instance: " + instance.mId);
 
+        final int id = instance.hashCode();
+        final long fingerprint = createFingerprint(instance);
+        if (DataModel.getDataModel().isAlarmNotificationPosted(id, fingerprint)) {
+            LogUtils.v("Notification for alarm instance is unchanged: " + instance.mId);
+            return;
+        }
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
                 .setShowWhen(false)
                 .setContentTitle(context.getString(R.string.alarm_alert_predismiss_title))
@@ -155,7 +169,6 @@ public final class AlarmNotifications {
         // Setup up dismiss action
         Intent dismissIntent = AlarmStateManager.createStateChangeIntent(context,
                 AlarmStateManager.ALARM_DISMISS_TAG, instance, AlarmInstance.PREDISMISSED_STATE);
-        final int id = instance.hashCode();
         builder.addAction(R.drawable.ic_alarm_off_24dp,
                 context.getString(R.string.alarm_alert_dismiss_text),
                 PendingIntent.getService(context, id,
@@ -166,137 +179,87 @@ public final class AlarmNotifications {
         builder.setContentIntent(PendingIntent.getActivity(context, id,
                 viewAlarmIntent, PendingIntent.FLAG_UPDATE_CURRENT));
 
-        NotificationManagerCompat nm = NotificationManagerCompat.from(context);
         final Notification notification = builder.build();
-        nm.notify(id, notification);
-        updateUpcomingAlarmGroupNotification(context, -1, notification);
-    }
-
-    @TargetApi(Build.VERSION_CODES.N)
-    private static boolean isGroupSummary(Notification n) {
-        return (n.flags & Notification.FLAG_GROUP_SUMMARY) == Notification.FLAG_GROUP_SUMMARY;
+        DataModel.getDataModel().postAlarmNotification(id, fingerprint, notification);
+        onAlarmNotificationPosted(context, UPCOMING_GROUP_KEY, id, createSortKey(instance),
+                notification);
     }
 
     /**
-     * Method which returns the first active notification for a given group. If a notification was
-     * just posted, provide it to make sure it is included as a potential result. If a notification
-     * was just canceled, provide the id so that it is not included as a potential result. These
-     * extra parameters are needed due to a race condition which exists in
-     * {@link NotificationManager#getActiveNotifications()}.
-     *
-     * @param context Context from which to grab the NotificationManager
-     * @param group The group key to query for notifications
-     * @param canceledNotificationId The id of the just-canceled notification (-1 if none)
-     * @param postedNotification The notification that was just posted
-     * @return The first active notification for the group
+     * Records the just-posted alarm notification in the registry and updates the group summaries
+     * to match. Both summaries are updated because the notification may have moved between groups,
+     * e.g. when an alarm is missed.
      */
-    @TargetApi(Build.VERSION_CODES.N)
-    private static Notification getFirstActiveNotification(Context context, String group,
-            int canceledNotificationId, Notification postedNotification) {
-        final NotificationManager nm =
-                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        final StatusBarNotification[] notifications = nm.getActiveNotifications();
-        Notification firstActiveNotification = postedNotification;
-        for (StatusBarNotification statusBarNotification : notifications) {
-            final Notification n = statusBarNotification.getNotification();
-            if (!isGroupSummary(n)
-                    && group.equals(n.getGroup())
-                    && statusBarNotification.getId() != canceledNotificationId) {
-                if (firstActiveNotification == null
-                        || n.getSortKey().compareTo(firstActiveNotification.getSortKey()) < 0) {
-                    firstActiveNotification = n;
-                }
-            }
-        }
-        return firstActiveNotification;
-    }
-
-    @TargetApi(Build.VERSION_CODES.N)
-    private static Notification getActiveGroupSummaryNotification(Context context, String group) {
-        final NotificationManager nm =
-                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        final StatusBarNotification[] notifications = nm.getActiveNotifications();
-        for (StatusBarNotification statusBarNotification : notifications) {
-            final Notification n = statusBarNotification.getNotification();
-            if (isGroupSummary(n) && group.equals(n.getGroup())) {
-                return n;
-            }
-        }
-        return null;
-    }
-
-    private static void updateUpcomingAlarmGroupNotification(Context context,
-            int canceledNotificationId, Notification postedNotification) {
+    private static void onAlarmNotificationPosted(Context context, String group, int id,
+            String sortKey, Notification notification) {
         if (!Utils.isNOrLater()) {
             return;
         }
 
-        final NotificationManagerCompat nm = NotificationManagerCompat.from(context);
-
-        final Notification firstUpcoming = getFirstActiveNotification(context, UPCOMING_GROUP_KEY,
-                canceledNotificationId, postedNotification);
-        if (firstUpcoming == null) {
-            nm.cancel(ALARM_GROUP_NOTIFICATION_ID);
-            return;
-        }
-
-        Notification summary = getActiveGroupSummaryNotification(context, UPCOMING_GROUP_KEY);
-        if (summary == null
-                || !Objects.equals(summary.contentIntent, firstUpcoming.contentIntent)) {
-            summary = new NotificationCompat.Builder(context)
-                    .setShowWhen(false)
-                    .setContentIntent(firstUpcoming.contentIntent)
-                    .setColor(ContextCompat.getColor(context, R.color.default_background))
-                    .setSmallIcon(R.drawable.stat_notify_alarm)
-                    .setGroup(UPCOMING_GROUP_KEY)
-                    .setGroupSummary(true)
-                    .setPriority(NotificationCompat.PRIORITY_HIGH)
-                    .setCategory(NotificationCompat.CATEGORY_ALARM)
-                    .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-                    .setLocalOnly(true)
-                    .build();
-            nm.notify(ALARM_GROUP_NOTIFICATION_ID, summary);
-        }
+        getRegistry(context).onPosted(group, id, sortKey, notification);
+        updateGroupSummaryNotification(context, UPCOMING_GROUP_KEY, ALARM_GROUP_NOTIFICATION_ID);
+        updateGroupSummaryNotification(context, MISSED_GROUP_KEY,
+                ALARM_GROUP_MISSED_NOTIFICATION_ID);
     }
 
-    private static void updateMissedAlarmGroupNotification(Context context,
-            int canceledNotificationId, Notification postedNotification) {
-        if (!Utils.isNOrLater()) {
-            return;
-        }
-
+    /**
+     * Posts, replaces or cancels the summary of the given {@code group} so that it opens the same
+     * content as the first alarm notification in that group.
+     */
+    private static void updateGroupSummaryNotification(Context context, String group,
+            int summaryId) {
+        final AlarmNotificationRegistry registry = getRegistry(context);
         final NotificationManagerCompat nm = NotificationManagerCompat.from(context);
 
-        final Notification firstMissed = getFirstActiveNotification(context, MISSED_GROUP_KEY,
-                canceledNotificationId, postedNotification);
-        if (firstMissed == null) {
-            nm.cancel(ALARM_GROUP_MISSED_NOTIFICATION_ID);
+        final Notification first = registry.getFirstNotification(group);
+        final Notification summary = registry.getSummaryNotification(group);
+        if (first == null) {
+            if (summary != null) {
+                nm.cancel(summaryId);
+                registry.onSummaryCanceled(group);
+            }
             return;
         }
 
-        Notification summary = getActiveGroupSummaryNotification(context, MISSED_GROUP_KEY);
-        if (summary == null
-                || !Objects.equals(summary.contentIntent, firstMissed.contentIntent)) {
-            summary = new NotificationCompat.Builder(context)
+        if (summary == null || !Objects.equals(summary.contentIntent, first.contentIntent)) {
+            final Notification newSummary = new NotificationCompat.Builder(context)
                     .setShowWhen(false)
-                    .setContentIntent(firstMissed.contentIntent)
+                    .setContentIntent(first.contentIntent)
                     .setColor(ContextCompat.getColor(context, R.color.default_background))
                     .setSmallIcon(R.drawable.stat_notify_alarm)
-                    .setGroup(MISSED_GROUP_KEY)
+                    .setGroup(group)
                     .setGroupSummary(true)
                     .setPriority(NotificationCompat.PRIORITY_HIGH)
                     .setCategory(NotificationCompat.CATEGORY_ALARM)
                     .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                     .setLocalOnly(true)
                     .build();
-            nm.notify(ALARM_GROUP_MISSED_NOTIFICATION_ID, summary);
+            nm.notify(summaryId, newSummary);
+            registry.onSummaryPosted(group, newSummary);
         }
     }
 
+    /**
+     * @return the registry of posted alarm notifications, seeded from the active notifications
+     *      the first time it is used by this process
+     */
+    private static AlarmNotificationRegistry getRegistry(Context context) {
+        sRegistry.reconcile(context, new String[] { UPCOMING_GROUP_KEY, MISSED_GROUP_KEY },
+                new int[] { ALARM_GROUP_NOTIFICATION_ID, ALARM_GROUP_MISSED_NOTIFICATION_ID });
+        return sRegistry;
+    }
+
     static synchronized void showSnoozeNotification(Context context,
             AlarmInstance instance) {
         LogUtils.v("Displaying snoozed notification for alarm instance: " + instance.mId);
 
+        final int id = instance.hashCode();
+        final long fingerprint = createFingerprint(instance);
+        if (DataModel.getDataModel().isAlarmNotificationPosted(id, fingerprint)) {
+            LogUtils.v("Notification for alarm instance is unchanged: " + instance.mId);
+            return;
+        }
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
                 .setShowWhen(false)
                 .setContentTitle(instance.getLabelOrDefault(context))
@@ -318,7 +281,6 @@ public final class AlarmNotifications {
         // Setup up dismiss action
         Intent dismissIntent = AlarmStateManager.createStateChangeIntent(context,
                 AlarmStateManager.ALARM_DISMISS_TAG, instance, AlarmInstance.DISMISSED_STATE);
-        final int id = instance.hashCode();
         builder.addAction(R.drawable.ic_alarm_off_24dp,
                 context.getString(R.string.alarm_alert_dismiss_text),
                 PendingIntent.getService(context, id,
@@ -329,16 +291,23 @@ public final class AlarmNotifications {
         builder.setContentIntent(PendingIntent.getActivity(context, id,
                 viewAlarmIntent, PendingIntent.FLAG_UPDATE_CURRENT));
 
-        NotificationManagerCompat nm = NotificationManagerCompat.from(context);
         final Notification notification = builder.build();
-        nm.notify(id, notification);
-        updateUpcomingAlarmGroupNotification(context, -1, notification);
+        DataModel.getDataModel().postAlarmNotification(id, fingerprint, notification);
+        onAlarmNotificationPosted(context, UPCOMING_GROUP_KEY, id, createSortKey(instance),
+                notification);
     }
 
     static synchronized void showMissedNotification(Context context,
             AlarmInstance instance) {
         LogUtils.v("Displaying missed notification for alarm instance: " + instance.mId);
 
+        final int id = instance.hashCode();
+        final long fingerprint = createFingerprint(instance);
+        if (DataModel.getDataModel().isAlarmNotificationPosted(id, fingerprint)) {
+            LogUtils.v("Notification for alarm instance is unchanged: " + instance.mId);
+            return;
+        }
+
         String label = instance.mLabel;
         String alarmTime = AlarmUtils.getFormattedTime(context, instance.getAlarmTime());
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
@@ -358,8 +327,6 @@ public final class AlarmNotifications {
             builder.setGroup(MISSED_GROUP_KEY);
         }
 
-        final int id = instance.hashCode();
-
         // Setup dismiss intent
         Intent dismissIntent = AlarmStateManager.createStateChangeIntent(context,
                 AlarmStateManager.ALARM_DISMISS_TAG, instance, AlarmInstance.DISMISSED_STATE);
@@ -374,10 +341,10 @@ public final class AlarmNotifications {
         builder.setContentIntent(PendingIntent.getBroadcast(context, id,
                 showAndDismiss, PendingIntent.FLAG_UPDATE_CURRENT));
 
-        NotificationManagerCompat nm = NotificationManagerCompat.from(context);
         final Notification notification = builder.build();
-        nm.notify(id, notification);
-        updateMissedAlarmGroupNotification(context, -1, notification);
+        DataModel.getDataModel().postAlarmNotification(id, fingerprint, notification);
+        onAlarmNotificationPosted(context, MISSED_GROUP_KEY, id, createSortKey(instance),
+                notification);
     }
 
     static synchronized void showAlarmNotification(Service service, AlarmInstance instance) {
@@ -438,13 +405,30 @@ public final class AlarmNotifications {
         service.startForeground(ALARM_FIRING_NOTIFICATION_ID, notification.build());
     }
 
-    public static synchronized void clearNotification(Context context, AlarmInstance instance) {
+    public static void clearNotification(Context context, AlarmInstance instance) {
         LogUtils.v("Clearing notifications for alarm instance: " + instance.mId);
-        NotificationManagerCompat nm = NotificationManagerCompat.from(context);
-        final int id = instance.hashCode();
-        nm.cancel(id);
-        updateUpcomingAlarmGroupNotification(context, id, null);
-        updateMissedAlarmGroupNotification(context, id, null);
+        clearNotification(context, instance.hashCode());
+    }
+
+    /**
+     * Cancels the alarm notification with the given {@code id} and updates the group summaries.
+     */
+    static synchronized void clearNotification(Context context, int id) {
+        DataModel.getDataModel().cancelAlarmNotification(id);
+        if (Utils.isNOrLater()) {
+            getRegistry(context).onCanceled(id);
+            updateGroupSummaryNotification(context, UPCOMING_GROUP_KEY,
+                    ALARM_GROUP_NOTIFICATION_ID);
+            updateGroupSummaryNotification(context, MISSED_GROUP_KEY,
+                    ALARM_GROUP_MISSED_NOTIFICATION_ID);
+        }
+    }
+
+    /**
+     * Writes the alarm notifications recorded as posted by this process to {@code writer}.
+     */
+    public static synchronized void dump(PrintWriter writer) {
+        sRegistry.dump(writer);
     }
 
     /**
@@ -469,6 +453,19 @@ public final class AlarmNotifications {
         }
     }
 
+    /**
+     * @param instance the alarm instance for which the notification is generated
+     * @return a value that changes whenever the visible content of the alarm notification changes
+     */
+    private static long createFingerprint(AlarmInstance instance) {
+        long fingerprint = instance.mId;
+        fingerprint = 31 * fingerprint + instance.mAlarmState;
+        fingerprint = 31 * fingerprint + instance.getAlarmTime().getTimeInMillis();
+        fingerprint = 31 * fingerprint + Objects.hashCode(instance.mLabel);
+        fingerprint = 31 * fingerprint + (DataModel.getDataModel().is24HourFormat() ? 1 : 0);
+        return fingerprint;
+    }
+
     static Intent createViewAlarmIntent(Context context, AlarmInstance instance) {
         final long alarmId = instance.mAlarmId == null ? Alarm.INVALID_ID : instance.mAlarmId;
         return Alarm.createIntent(context, DeskClock.class, alarmId)
@@ -17,11 +17,11 @@ package com.android.deskclock.alarms;
 
 import android.app.Service;
 import android.content.BroadcastReceiver;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Binder;
+import android.os.Handler;
 import android.os.IBinder;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
@@ -29,6 +29,8 @@ import android.telephony.TelephonyManager;
 import com.android.deskclock.AlarmAlertWakeLock;
 import com.android.deskclock.LogUtils;
 import com.android.deskclock.R;
+import com.android.deskclock.StartupTrace;
+import com.android.deskclock.data.DataModel;
 import com.android.deskclock.events.Events;
 import com.android.deskclock.provider.AlarmInstance;
 
@@ -62,6 +64,9 @@ public class AlarmService extends Service {
     /** Private action used to stop an alarm with this service. */
     public static final String STOP_ALARM_ACTION = "STOP_ALARM";
 
+    /** Completes the transition of a firing alarm once it sounds. */
+    private final Handler mHandler = new Handler();
+
     /** Binder given to AlarmActivity. */
     private final IBinder mBinder = new Binder();
 
@@ -190,31 +195,45 @@ public class AlarmService extends Service {
             return Service.START_NOT_STICKY;
         }
 
+        StartupTrace.recordLaunch("AlarmService");
         final long instanceId = AlarmInstance.getId(intent.getData());
         switch (intent.getAction()) {
             case AlarmStateManager.CHANGE_STATE_ACTION:
-                AlarmStateManager.handleIntent(this, intent);
-
-                // If state is changed to firing, actually fire the alarm!
                 final int alarmState = intent.getIntExtra(AlarmStateManager.ALARM_STATE_EXTRA, -1);
-                if (alarmState == AlarmInstance.FIRED_STATE) {
-                    final ContentResolver cr = this.getContentResolver();
-                    final AlarmInstance instance = AlarmInstance.getInstance(cr, instanceId);
-                    if (instance == null) {
-                        LogUtils.e("No instance found to start alarm: %d", instanceId);
-                        if (mCurrentAlarm != null) {
-                            // Only release lock if we are not firing alarm
-                            AlarmAlertWakeLock.releaseCpuLock();
-                        }
-                        break;
-                    }
+                if (alarmState != AlarmInstance.FIRED_STATE) {
+                    AlarmStateManager.handleIntent(this, intent);
+                    break;
+                }
 
-                    if (mCurrentAlarm != null && mCurrentAlarm.mId == instanceId) {
-                        LogUtils.e("Alarm already started for instance: %d", instanceId);
-                        break;
+                if (mCurrentAlarm != null && mCurrentAlarm.mId == instanceId) {
+                    LogUtils.e("Alarm already started for instance: %d", instanceId);
+                    break;
+                }
+
+                // If state is changed to firing, actually fire the alarm! Only the instance row is
+                // read and updated before the alarm sounds; the rest of the transition follows.
+                final AlarmInstance instance = AlarmStateManager.beginFiredState(this, intent);
+                if (instance == null) {
+                    LogUtils.e("No instance found to start alarm: %d", instanceId);
+                    if (mCurrentAlarm != null) {
+                        // Only release lock if we are not firing alarm
+                        AlarmAlertWakeLock.releaseCpuLock();
                     }
-                    startAlarm(instance);
+                    break;
                 }
+
+                startAlarm(instance);
+                final long latency =
+                        System.currentTimeMillis() - instance.getAlarmTime().getTimeInMillis();
+                LogUtils.i("Alarm %d sounding %d ms after its scheduled time", instanceId, latency);
+                StartupTrace.recordMilestone("AlarmService.alarmSounding");
+
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        AlarmStateManager.completeFiredState(AlarmService.this, instance);
+                    }
+                });
                 break;
             case STOP_ALARM_ACTION:
                 if (mCurrentAlarm != null && mCurrentAlarm.mId != instanceId) {
@@ -226,6 +245,7 @@ public class AlarmService extends Service {
                 stopSelf();
         }
 
+        StartupTrace.endStartup();
         return Service.START_NOT_STICKY;
     }
 
@@ -241,6 +261,8 @@ public class AlarmService extends Service {
             unregisterReceiver(mActionsReceiver);
             mIsRegistered = false;
         }
+
+        DataModel.getDataModel().flushPendingWrites();
     }
 
     private final class PhoneStateChangeListener extends PhoneStateListener {
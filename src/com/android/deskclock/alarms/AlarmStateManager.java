@@ -20,15 +20,18 @@ import android.app.AlarmManager;
 import android.app.AlarmManager.AlarmClockInfo;
 import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
 import android.os.PowerManager;
+import android.os.RemoteException;
 import android.provider.Settings;
-import android.support.v4.app.NotificationManagerCompat;
 import android.text.format.DateFormat;
 import android.widget.Toast;
 
@@ -39,12 +42,16 @@ import com.android.deskclock.AsyncHandler;
 import com.android.deskclock.DeskClock;
 import com.android.deskclock.LogUtils;
 import com.android.deskclock.R;
+import com.android.deskclock.StartupTrace;
 import com.android.deskclock.Utils;
 import com.android.deskclock.data.DataModel;
 import com.android.deskclock.events.Events;
 import com.android.deskclock.provider.Alarm;
 import com.android.deskclock.provider.AlarmInstance;
+import com.android.deskclock.provider.AlarmScheduleIndex;
+import com.android.deskclock.provider.ClockContract;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
@@ -197,16 +204,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
      */
     public static AlarmInstance getNextFiringAlarm(Context context) {
         final ContentResolver cr = context.getContentResolver();
-        final String activeAlarmQuery = AlarmInstance.ALARM_STATE + "<" + AlarmInstance.FIRED_STATE;
-        final List<AlarmInstance> alarmInstances = AlarmInstance.getInstances(cr, activeAlarmQuery);
-
-        AlarmInstance nextAlarm = null;
-        for (AlarmInstance instance : alarmInstances) {
-            if (nextAlarm == null || instance.getAlarmTime().before(nextAlarm.getAlarmTime())) {
-                nextAlarm = instance;
-            }
-        }
-        return nextAlarm;
+        return AlarmScheduleIndex.getIndex().getNextFiringInstance(cr);
     }
 
     /**
@@ -456,13 +454,58 @@ public final class AlarmStateManager extends BroadcastReceiver {
      * @param instance to set state to
      */
     public static void setFiredState(Context context, AlarmInstance instance) {
+        recordFiredState(context, instance);
+        completeFiredState(context, instance);
+    }
+
+    /**
+     * Reads the instance targeted by a {@link #CHANGE_STATE_ACTION} intent that fires an alarm and
+     * performs only the part of the transition to the FIRED_STATE that must precede sounding the
+     * alarm. The caller must then sound the alarm and call {@link #completeFiredState}.
+     *
+     * @param context application context
+     * @param intent  the state change intent with a FIRED_STATE {@link #ALARM_STATE_EXTRA}
+     * @return the fired instance; {@code null} if the intent is stale or the instance is unknown
+     */
+    public static AlarmInstance beginFiredState(Context context, Intent intent) {
+        if (!isCurrentIntent(intent)) {
+            return null;
+        }
+
+        final Uri uri = intent.getData();
+        final AlarmInstance instance = AlarmInstance.getInstance(context.getContentResolver(),
+                AlarmInstance.getId(uri));
+        if (instance == null) {
+            LogUtils.e("Can not change state for unknown instance: " + uri);
+            return null;
+        }
+
+        recordFiredState(context, instance);
+        return instance;
+    }
+
+    /**
+     * Records the FIRED_STATE of the {@code instance} so that the alarm activity and notification
+     * observe a firing alarm.
+     */
+    private static void recordFiredState(Context context, AlarmInstance instance) {
         LogUtils.i("Setting fire state to instance " + instance.mId);
 
         // Update alarm state in db
-        ContentResolver contentResolver = context.getContentResolver();
         instance.mAlarmState = AlarmInstance.FIRED_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        AlarmInstance.updateInstance(context.getContentResolver(), instance);
+    }
 
+    /**
+     * Performs the part of the transition to the FIRED_STATE that may follow sounding the alarm:
+     * removing other instances of the alarm, scheduling the missed timeout and updating the next
+     * alarm.
+     *
+     * @param context  application context
+     * @param instance the instance returned by {@link #beginFiredState}
+     */
+    public static void completeFiredState(Context context, AlarmInstance instance) {
+        final ContentResolver contentResolver = context.getContentResolver();
         if (instance.mAlarmId != null) {
             // if the time changed *backward* and pushed an instance from missed back to fired,
             // remove any other scheduled instances that may exist
@@ -852,6 +895,120 @@ public final class AlarmStateManager extends BroadcastReceiver {
         updateNextAlarm(context);
     }
 
+    /**
+     * Receives progress updates while alarm instances are restored in bulk.
+     */
+    public interface RestoreProgressListener {
+        /**
+         * @param restored the number of alarm instances registered so far
+         * @param total the number of alarm instances that will be registered
+         */
+        void onRestoreProgress(int restored, int total);
+    }
+
+    /**
+     * Replaces the existing instances of the given alarms with the next instance of each enabled
+     * alarm. Unlike calling {@link #deleteAllInstances} and {@link #registerInstance} per alarm,
+     * the new instances are computed in memory, all database changes are applied in a single
+     * provider transaction, and the next alarm is updated exactly once at the end. Used after a
+     * backup is restored, when the existing instances are not relevant on this device; each is
+     * unregistered as by {@link #deleteAllInstances} before it is deleted.
+     *
+     * @param context application context
+     * @param alarms the alarms for which instances should be created
+     * @param listener notified as each new instance is registered; may be {@code null}
+     * @return the number of alarm instances created
+     */
+    public static int restoreInstances(Context context, List<Alarm> alarms,
+            RestoreProgressListener listener) {
+        final ContentResolver cr = context.getContentResolver();
+        final Calendar currentTime = getCurrentTime();
+
+        // Only the instances of the given alarms are replaced.
+        final StringBuilder alarmIds = new StringBuilder();
+        for (Alarm alarm : alarms) {
+            if (alarmIds.length() > 0) {
+                alarmIds.append(',');
+            }
+            alarmIds.append(alarm.id);
+        }
+        final String oldSelection = AlarmInstance.ALARM_ID + " IN (" + alarmIds + ")";
+
+        // Stop, clear and cancel the timers of the instances about to be deleted.
+        final List<AlarmInstance> oldInstances = AlarmInstance.getInstances(cr, oldSelection);
+        for (AlarmInstance instance : oldInstances) {
+            AlarmService.stopAlarm(context, instance);
+            AlarmNotifications.clearNotification(context, instance);
+            cancelScheduledInstanceStateChange(context, instance);
+        }
+
+        // Compute the next instance of each enabled alarm and its initial state.
+        final List<AlarmInstance> newInstances = new ArrayList<>(alarms.size());
+        for (Alarm alarm : alarms) {
+            if (alarm.enabled) {
+                final AlarmInstance instance = alarm.createInstanceAfter(currentTime);
+                if (currentTime.after(instance.getHighNotificationTime())) {
+                    instance.mAlarmState = AlarmInstance.HIGH_NOTIFICATION_STATE;
+                } else if (currentTime.after(instance.getLowNotificationTime())) {
+                    instance.mAlarmState = AlarmInstance.LOW_NOTIFICATION_STATE;
+                } else {
+                    instance.mAlarmState = AlarmInstance.SILENT_STATE;
+                }
+                newInstances.add(instance);
+            }
+        }
+
+        // Delete the old instances and insert the new ones in one transaction.
+        final ArrayList<ContentProviderOperation> ops = new ArrayList<>(newInstances.size() + 1);
+        ops.add(ContentProviderOperation.newDelete(AlarmInstance.CONTENT_URI)
+                .withSelection(oldSelection, null)
+                .build());
+        for (AlarmInstance instance : newInstances) {
+            ops.add(ContentProviderOperation.newInsert(AlarmInstance.CONTENT_URI)
+                    .withValues(AlarmInstance.createContentValues(instance))
+                    .build());
+        }
+
+        final ContentProviderResult[] results;
+        try {
+            results = cr.applyBatch(ClockContract.AUTHORITY, ops);
+        } catch (RemoteException | OperationApplicationException e) {
+            LogUtils.e("Unable to restore alarm instances", e);
+            return 0;
+        }
+
+        // Schedule the timers and notifications appropriate to the state of each new instance.
+        final int total = newInstances.size();
+        for (int i = 0; i < total; i++) {
+            final AlarmInstance instance = newInstances.get(i);
+            instance.mId = AlarmInstance.getId(results[i + 1].uri);
+
+            switch (instance.mAlarmState) {
+                case AlarmInstance.SILENT_STATE:
+                    scheduleInstanceStateChange(context, instance.getLowNotificationTime(),
+                            instance, AlarmInstance.LOW_NOTIFICATION_STATE);
+                    break;
+                case AlarmInstance.LOW_NOTIFICATION_STATE:
+                    AlarmNotifications.showLowPriorityNotification(context, instance);
+                    scheduleInstanceStateChange(context, instance.getHighNotificationTime(),
+                            instance, AlarmInstance.HIGH_NOTIFICATION_STATE);
+                    break;
+                case AlarmInstance.HIGH_NOTIFICATION_STATE:
+                    AlarmNotifications.showHighPriorityNotification(context, instance);
+                    scheduleInstanceStateChange(context, instance.getAlarmTime(),
+                            instance, AlarmInstance.FIRED_STATE);
+                    break;
+            }
+
+            if (listener != null) {
+                listener.onRestoreProgress(i + 1, total);
+            }
+        }
+
+        updateNextAlarm(context);
+        return total;
+    }
+
     /**
      * Utility method to set alarm instance state via constants.
      *
@@ -903,17 +1060,22 @@ public final class AlarmStateManager extends BroadcastReceiver {
             return;
         }
 
+        StartupTrace.recordLaunch("AlarmStateManager");
         final PendingResult result = goAsync();
         final PowerManager.WakeLock wl = AlarmAlertWakeLock.createPartialWakeLock(context);
         wl.acquire();
         AsyncHandler.post(new Runnable() {
             @Override
             public void run() {
+                final StartupTrace.Phase phase =
+                        StartupTrace.beginPhase("AlarmStateManager.handleIntent");
                 handleIntent(context, intent);
+                phase.end();
                 result.finish();
                 wl.release();
             }
         });
+        StartupTrace.endStartup();
     }
 
     public static void handleIntent(Context context, Intent intent) {
@@ -928,18 +1090,8 @@ public final class AlarmStateManager extends BroadcastReceiver {
                 return;
             }
 
-            int globalId = DataModel.getDataModel().getGlobalIntentId();
-            int intentId = intent.getIntExtra(ALARM_GLOBAL_ID_EXTRA, -1);
-            int alarmState = intent.getIntExtra(ALARM_STATE_EXTRA, -1);
-            if (intentId != globalId) {
-                LogUtils.i("IntentId: " + intentId + " GlobalId: " + globalId + " AlarmState: " +
-                        alarmState);
-                // Allows dismiss/snooze requests to go through
-                if (!intent.hasCategory(ALARM_DISMISS_TAG) &&
-                        !intent.hasCategory(ALARM_SNOOZE_TAG)) {
-                    LogUtils.i("Ignoring old Intent");
-                    return;
-                }
+            if (!isCurrentIntent(intent)) {
+                return;
             }
 
             if (intent.getBooleanExtra(FROM_NOTIFICATION_EXTRA, false)) {
@@ -950,6 +1102,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
                 }
             }
 
+            final int alarmState = intent.getIntExtra(ALARM_STATE_EXTRA, -1);
             if (alarmState >= 0) {
                 setAlarmState(context, instance, alarmState);
             } else {
@@ -965,7 +1118,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
                 // dismiss the notification
                 final int id = intent.getIntExtra(AlarmNotifications.EXTRA_NOTIFICATION_ID, -1);
                 if (id != -1) {
-                    NotificationManagerCompat.from(context).cancel(id);
+                    AlarmNotifications.clearNotification(context, id);
                 }
                 return;
             }
@@ -982,6 +1135,27 @@ public final class AlarmStateManager extends BroadcastReceiver {
         }
     }
 
+    /**
+     * @return {@code false} if the state change {@code intent} was created before the global
+     *      intent id last changed and is neither a dismiss nor a snooze request
+     */
+    private static boolean isCurrentIntent(Intent intent) {
+        final int globalId = DataModel.getDataModel().getGlobalIntentId();
+        final int intentId = intent.getIntExtra(ALARM_GLOBAL_ID_EXTRA, -1);
+        if (intentId != globalId) {
+            final int alarmState = intent.getIntExtra(ALARM_STATE_EXTRA, -1);
+            LogUtils.i("IntentId: " + intentId + " GlobalId: " + globalId + " AlarmState: " +
+                    alarmState);
+            // Allows dismiss/snooze requests to go through
+            if (!intent.hasCategory(ALARM_DISMISS_TAG) &&
+                    !intent.hasCategory(ALARM_SNOOZE_TAG)) {
+                LogUtils.i("Ignoring old Intent");
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Creates an intent that can be used to set an AlarmManager alarm to set the next alarm
      * indicators.
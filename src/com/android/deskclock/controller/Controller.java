@@ -21,8 +21,11 @@ import android.content.Context;
 import android.support.annotation.StringRes;
 
 import com.android.deskclock.Utils;
+import com.android.deskclock.events.EventSink;
 import com.android.deskclock.events.EventTracker;
 
+import java.io.PrintWriter;
+
 import static com.android.deskclock.Utils.enforceMainLooper;
 
 /**
@@ -81,9 +84,19 @@ public final class Controller {
         mEventController.removeEventTracker(eventTracker);
     }
 
+    /**
+     * @param eventSink to be registered for receiving batches of application events
+     */
+    public void addEventSink(EventSink eventSink) {
+        enforceMainLooper();
+        mEventController.addEventSink(eventSink);
+    }
+
     /**
      * Tracks an event. Events have a category, action and label. This method can be used to track
-     * events such as button presses or other user interactions with your application.
+     * events such as button presses or other user interactions with your application. Events are
+     * buffered without blocking and delivered to trackers and sinks on a background thread, so this
+     * method is safe to call from any thread including latency-sensitive ones.
      *
      * @param category resource id of event category
      * @param action resource id of event action
@@ -93,6 +106,13 @@ public final class Controller {
         mEventController.sendEvent(category, action, label);
     }
 
+    /**
+     * Writes statistics about tracked events, including those dropped, to {@code writer}.
+     */
+    public void dumpEvents(PrintWriter writer) {
+        mEventController.dump(writer);
+    }
+
     //
     // Voice Interaction
     //
@@ -109,10 +129,25 @@ public final class Controller {
     // Shortcuts
     //
 
+    /**
+     * Publishes the launcher shortcuts if they changed since they were last published.
+     */
     public void updateShortcuts() {
         enforceMainLooper();
         if (mShortcutController != null) {
             mShortcutController.updateShortcuts();
         }
     }
+
+    /**
+     * Publishes the launcher shortcut updates that were deferred while the system was
+     * rate-limiting them. Called when the application comes to the foreground, which ends rate
+     * limiting.
+     */
+    public void publishDeferredShortcuts() {
+        enforceMainLooper();
+        if (mShortcutController != null) {
+            mShortcutController.publishDeferredShortcuts();
+        }
+    }
 }
\ No newline at end of file
@@ -16,16 +16,65 @@
 
 package com.android.deskclock.controller;
 
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.support.annotation.StringRes;
 
+import com.android.deskclock.events.EventBatch;
+import com.android.deskclock.events.EventBuffer;
+import com.android.deskclock.events.EventSink;
 import com.android.deskclock.events.EventTracker;
 
-import java.util.ArrayList;
+import java.io.PrintWriter;
 import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Records events into a lock-free {@link EventBuffer} on the calling thread and delivers them to
+ * all registered {@link EventTracker}s and {@link EventSink}s in batches on a background thread, so
+ * that tracking an event never adds latency to UI or alarm-firing code paths.
+ */
 class EventController {
 
-    private final Collection<EventTracker> mEventTrackers = new ArrayList<>();
+    /** The maximum number of events that may await delivery before new events are dropped. */
+    private static final int BUFFER_CAPACITY = 256;
+
+    /** The maximum number of events delivered to sinks in a single batch. */
+    private static final int BATCH_CAPACITY = 64;
+
+    /** Events recorded within this window after the first are delivered in the same batch. */
+    private static final long DRAIN_DELAY_MS = 500;
+
+    private final Collection<EventTracker> mEventTrackers = new CopyOnWriteArrayList<>();
+
+    private final Collection<EventSink> mEventSinks = new CopyOnWriteArrayList<>();
+
+    private final EventBuffer mEventBuffer = new EventBuffer(BUFFER_CAPACITY);
+
+    /** Reused for every drain; only accessed on the drain thread. */
+    private final EventBatch mEventBatch = new EventBatch(BATCH_CAPACITY);
+
+    /** {@code true} while a drain is scheduled but has not yet begun. */
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mDrainScheduled.set(false);
+            drain();
+        }
+    };
+
+    private final Handler mHandler;
+
+    EventController() {
+        final HandlerThread thread =
+                new HandlerThread("EventController", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
 
     void addEventTracker(EventTracker eventTracker) {
         mEventTrackers.add(eventTracker);
@@ -35,9 +84,42 @@ class EventController {
         mEventTrackers.remove(eventTracker);
     }
 
+    void addEventSink(EventSink eventSink) {
+        mEventSinks.add(eventSink);
+    }
+
     void sendEvent(@StringRes int category, @StringRes int action, @StringRes int label) {
-        for (EventTracker eventTracker : mEventTrackers) {
-            eventTracker.sendEvent(category, action, label);
+        mEventBuffer.record(category, action, label, System.currentTimeMillis());
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mHandler.postDelayed(mDrainRunnable, DRAIN_DELAY_MS);
+        }
+    }
+
+    /**
+     * Writes the number of dropped events and the statistics of each sink to {@code writer}.
+     */
+    void dump(PrintWriter writer) {
+        writer.printf("dropped: %d%n", mEventBuffer.getDroppedCount());
+        for (EventSink eventSink : mEventSinks) {
+            eventSink.dump(writer);
+        }
+    }
+
+    /**
+     * Delivers all recorded events in batches. Called only on the drain thread.
+     */
+    private void drain() {
+        while (mEventBuffer.drain(mEventBatch) > 0) {
+            for (EventSink eventSink : mEventSinks) {
+                eventSink.sendEvents(mEventBatch);
+            }
+
+            for (EventTracker eventTracker : mEventTrackers) {
+                for (int i = 0; i < mEventBatch.size(); i++) {
+                    eventTracker.sendEvent(mEventBatch.getCategory(i), mEventBatch.getAction(i),
+                            mEventBatch.getLabel(i));
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -54,6 +54,18 @@ class ShortcutController {
     private final ShortcutManager mShortcutManager;
     private final UserManager mUserManager;
 
+    /**
+     * The locales whose labels were last published with the full set of shortcuts; {@code null}
+     * until the full set is published by this process.
+     */
+    private String mPublishedLocales;
+
+    /** The stopwatch state last published; {@code null} until published by this process. */
+    private Boolean mPublishedStopwatchRunning;
+
+    /** {@code true} if an update was skipped because the system was rate-limiting updates. */
+    private boolean mDeferred;
+
     ShortcutController(Context context) {
         mContext = context;
         mComponentName = new ComponentName(mContext, DeskClock.class);
@@ -63,23 +75,101 @@ class ShortcutController {
         DataModel.getDataModel().addStopwatchListener(new StopwatchWatcher());
     }
 
+    /**
+     * Publishes the shortcuts if they differ from those last published. Only the stopwatch
+     * shortcut is republished if the labels of the others are unchanged.
+     */
     void updateShortcuts() {
-        if (!mUserManager.isUserUnlocked()) {
-            LogUtils.i("Skipping shortcut update because user is locked.");
+        final String locales = mContext.getResources().getConfiguration().getLocales()
+                .toLanguageTags();
+        if (locales.equals(mPublishedLocales)) {
+            updateStopwatchShortcut();
+            return;
+        }
+
+        if (!canPublish()) {
             return;
         }
         try {
+            final boolean stopwatchRunning = isStopwatchRunning();
             final ShortcutInfo alarm = createNewAlarmShortcut();
             final ShortcutInfo timer = createNewTimerShortcut();
-            final ShortcutInfo stopwatch = createStopwatchShortcut();
+            final ShortcutInfo stopwatch = createStopwatchShortcut(stopwatchRunning);
             final ShortcutInfo screensaver = createScreensaverShortcut();
-            mShortcutManager.setDynamicShortcuts(
-                    Arrays.asList(alarm, timer, stopwatch, screensaver));
+            if (mShortcutManager.setDynamicShortcuts(
+                    Arrays.asList(alarm, timer, stopwatch, screensaver))) {
+                mPublishedLocales = locales;
+                mPublishedStopwatchRunning = stopwatchRunning;
+            } else {
+                deferUpdate();
+            }
         } catch (IllegalStateException e) {
             LogUtils.wtf(e);
         }
     }
 
+    /**
+     * Publishes the updates that were deferred while the system was rate-limiting updates. Rate
+     * limiting ends when the application comes to the foreground.
+     */
+    void publishDeferredShortcuts() {
+        if (mDeferred) {
+            // Updates that are still rate-limited are deferred again.
+            mDeferred = false;
+            updateShortcuts();
+        }
+    }
+
+    /**
+     * Republishes the stopwatch shortcut if the stopwatch started or paused since it was last
+     * published.
+     */
+    private void updateStopwatchShortcut() {
+        final boolean stopwatchRunning = isStopwatchRunning();
+        if (mPublishedStopwatchRunning != null && mPublishedStopwatchRunning == stopwatchRunning) {
+            return;
+        }
+
+        if (!canPublish()) {
+            return;
+        }
+        try {
+            if (mShortcutManager.updateShortcuts(
+                    Collections.singletonList(createStopwatchShortcut(stopwatchRunning)))) {
+                mPublishedStopwatchRunning = stopwatchRunning;
+            } else {
+                deferUpdate();
+            }
+        } catch (IllegalStateException e) {
+            LogUtils.wtf(e);
+        }
+    }
+
+    /**
+     * @return {@code true} if shortcuts can be published now; {@code false} if the user is locked
+     *      or the update must be deferred because the system is rate-limiting updates
+     */
+    private boolean canPublish() {
+        if (!mUserManager.isUserUnlocked()) {
+            LogUtils.i("Skipping shortcut update because user is locked.");
+            return false;
+        }
+        if (mShortcutManager.isRateLimitingActive()) {
+            deferUpdate();
+            return false;
+        }
+        return true;
+    }
+
+    private void deferUpdate() {
+        LogUtils.i("Deferring shortcut update because updates are rate-limited.");
+        mDeferred = true;
+    }
+
+    private boolean isStopwatchRunning() {
+        return DataModel.getDataModel().getStopwatch().isRunning();
+    }
+
     private ShortcutInfo createNewAlarmShortcut() {
         final Intent intent = new Intent(AlarmClock.ACTION_SET_ALARM)
                 .setClass(mContext, HandleApiCalls.class)
@@ -114,9 +204,8 @@ class ShortcutController {
                 .build();
     }
 
-    private ShortcutInfo createStopwatchShortcut() {
-        final @StringRes int action = DataModel.getDataModel().getStopwatch().isRunning()
-                ? R.string.action_pause : R.string.action_start;
+    private ShortcutInfo createStopwatchShortcut(boolean running) {
+        final @StringRes int action = running ? R.string.action_pause : R.string.action_start;
         final String shortcutId = UiDataModel.getUiDataModel()
                 .getShortcutId(R.string.category_stopwatch, action);
         final ShortcutInfo.Builder shortcut = new ShortcutInfo.Builder(mContext, shortcutId)
@@ -124,7 +213,7 @@ class ShortcutController {
                 .setActivity(mComponentName)
                 .setRank(2);
         final Intent intent;
-        if (DataModel.getDataModel().getStopwatch().isRunning()) {
+        if (running) {
             intent = new Intent(StopwatchService.ACTION_PAUSE_STOPWATCH)
                     .putExtra(Events.EXTRA_EVENT_LABEL, R.string.label_shortcut);
             shortcut.setShortLabel(mContext.getString(R.string.shortcut_pause_stopwatch_short))
@@ -163,15 +252,9 @@ class ShortcutController {
 
         @Override
         public void stopwatchUpdated(Stopwatch before, Stopwatch after) {
-            if (!mUserManager.isUserUnlocked()) {
-                LogUtils.i("Skipping stopwatch shortcut update because user is locked.");
-                return;
-            }
-            try {
-                mShortcutManager.updateShortcuts(
-                        Collections.singletonList(createStopwatchShortcut()));
-            } catch (IllegalStateException e) {
-                LogUtils.wtf(e);
+            // Laps and time adjustments do not change the stopwatch shortcut.
+            if (before.isRunning() != after.isRunning()) {
+                updateStopwatchShortcut();
             }
         }
 
@@ -16,10 +16,10 @@
 
 package com.android.deskclock.data;
 
+import android.app.Notification;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.media.AudioManager;
 import android.net.Uri;
 import android.os.Handler;
@@ -27,11 +27,13 @@ import android.os.Looper;
 import android.support.annotation.StringRes;
 import android.view.View;
 
+import com.android.deskclock.LogUtils;
 import com.android.deskclock.Predicate;
 import com.android.deskclock.R;
 import com.android.deskclock.Utils;
 import com.android.deskclock.timer.TimerService;
 
+import java.io.PrintWriter;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Comparator;
@@ -194,6 +196,18 @@ public final class DataModel {
     /** The model from which ringtone data are fetched. */
     private RingtoneModel mRingtoneModel;
 
+    /** Stores application settings and other rarely changing data. */
+    private WriteBehindPreferences mPrefs;
+
+    /** Stores frequently changing timer and stopwatch state. */
+    private WriteBehindPreferences mStatePrefs;
+
+    /**
+     * {@code true} when the timer and stopwatch notifications must be refreshed for a change in
+     * app open state that arrived before those models were built.
+     */
+    private boolean mNotificationUpdateDeferred;
+
     public static DataModel getDataModel() {
         return sDataModel;
     }
@@ -202,25 +216,65 @@ public final class DataModel {
 
     /**
      * Initializes the data model with the context and shared preferences to be used.
+     *
+     * @param prefs stores application settings and other rarely changing data
+     * @param statePrefs stores frequently changing timer and stopwatch state
      */
-    public void init(Context context, SharedPreferences prefs) {
+    public void init(Context context, WriteBehindPreferences prefs,
+            WriteBehindPreferences statePrefs) {
         if (mContext != context) {
             mContext = context.getApplicationContext();
+            mPrefs = prefs;
+            mStatePrefs = statePrefs;
+
+            // Timer and stopwatch state was formerly stored alongside the settings.
+            final int moved = statePrefs.moveFrom(prefs, new WriteBehindPreferences.KeyFilter() {
+                @Override
+                public boolean accept(String key) {
+                    return TimerDAO.isTimerKey(key) || StopwatchDAO.isStopwatchKey(key);
+                }
+            });
+            if (moved > 0) {
+                LogUtils.i("Moved %d timer and stopwatch preferences", moved);
+            }
 
+            // The city, stopwatch, timer and widget models are built on first use so that
+            // processes and screens that never need them do not pay for their construction.
             mTimeModel = new TimeModel(mContext);
-            mWidgetModel = new WidgetModel(prefs);
-            mNotificationModel = new NotificationModel();
+            mNotificationModel = new NotificationModel(mContext);
             mRingtoneModel = new RingtoneModel(mContext, prefs);
             mSettingsModel = new SettingsModel(mContext, prefs, mTimeModel);
-            mCityModel = new CityModel(mContext, prefs, mSettingsModel);
             mAlarmModel = new AlarmModel(mContext, mSettingsModel);
             mSilentSettingsModel = new SilentSettingsModel(mContext, mNotificationModel);
-            mStopwatchModel = new StopwatchModel(mContext, prefs, mNotificationModel);
-            mTimerModel = new TimerModel(mContext, prefs, mSettingsModel, mRingtoneModel,
-                    mNotificationModel);
         }
     }
 
+    /**
+     * Refreshes the timer and stopwatch notifications if that was deferred by
+     * {@link #setApplicationInForeground}. Intended to be called once the first frame has been
+     * drawn so that building the timer and stopwatch models does not delay it.
+     */
+    public void updateDeferredNotifications() {
+        enforceMainLooper();
+        if (mNotificationUpdateDeferred) {
+            mNotificationUpdateDeferred = false;
+            getTimerModel().updateNotification();
+            getTimerModel().updateMissedNotification();
+            getStopwatchModel().updateNotification();
+        }
+    }
+
+    /**
+     * Builds the models that are otherwise built on first use. Intended to be called when the
+     * application is idle so that the first access from a user interaction is fast.
+     */
+    public void preloadModels() {
+        enforceMainLooper();
+        getCityModel();
+        getStopwatchModel();
+        getTimerModel();
+    }
+
     /**
      * Convenience for {@code run(runnable, 0)}, i.e. waits indefinitely.
      */
@@ -236,8 +290,8 @@ public final class DataModel {
      */
     public void updateAfterReboot() {
         enforceMainLooper();
-        mTimerModel.updateTimersAfterReboot();
-        mStopwatchModel.setStopwatch(getStopwatch().updateAfterReboot());
+        getTimerModel().updateTimersAfterReboot();
+        getStopwatchModel().setStopwatch(getStopwatch().updateAfterReboot());
     }
 
     /**
@@ -245,8 +299,8 @@ public final class DataModel {
      */
     public void updateAfterTimeSet() {
         enforceMainLooper();
-        mTimerModel.updateTimersAfterTimeSet();
-        mStopwatchModel.setStopwatch(getStopwatch().updateAfterTimeSet());
+        getTimerModel().updateTimersAfterTimeSet();
+        getStopwatchModel().setStopwatch(getStopwatch().updateAfterTimeSet());
     }
 
     /**
@@ -293,10 +347,17 @@ public final class DataModel {
         if (mNotificationModel.isApplicationInForeground() != inForeground) {
             mNotificationModel.setApplicationInForeground(inForeground);
 
-            // Refresh all notifications in response to a change in app open state.
-            mTimerModel.updateNotification();
-            mTimerModel.updateMissedNotification();
-            mStopwatchModel.updateNotification();
+            // Refresh all notifications in response to a change in app open state. The timer and
+            // stopwatch models are not built here just for that; if either is missing, the
+            // refresh waits for updateDeferredNotifications() after the first frame.
+            if (mTimerModel != null && mStopwatchModel != null) {
+                mNotificationUpdateDeferred = false;
+                mTimerModel.updateNotification();
+                mTimerModel.updateMissedNotification();
+                mStopwatchModel.updateNotification();
+            } else {
+                mNotificationUpdateDeferred = true;
+            }
             mSilentSettingsModel.updateSilentState();
         }
     }
@@ -315,9 +376,61 @@ public final class DataModel {
      */
     public void updateAllNotifications() {
         enforceMainLooper();
-        mTimerModel.updateNotification();
-        mTimerModel.updateMissedNotification();
-        mStopwatchModel.updateNotification();
+        mNotificationModel.getNotificationCoordinator().invalidate();
+        getTimerModel().updateNotification();
+        getTimerModel().updateMissedNotification();
+        getStopwatchModel().updateNotification();
+    }
+
+    /**
+     * Writes all preference edits that are still being held for coalescing. Called before the
+     * process may be stopped, e.g. when the application leaves the foreground or a service stops.
+     * May be called from any thread.
+     */
+    public void flushPendingWrites() {
+        mPrefs.flush();
+        mStatePrefs.flush();
+    }
+
+    /**
+     * Writes statistics about coalesced preference writes to {@code writer}.
+     */
+    public void dumpPreferenceWrites(PrintWriter writer) {
+        writer.print("settings: ");
+        mPrefs.dump(writer);
+        writer.print("state: ");
+        mStatePrefs.dump(writer);
+    }
+
+    /**
+     * Posts an alarm notification immediately unless a notification with identical content is
+     * already posted. May be called from any thread.
+     *
+     * @param id the notification id
+     * @param fingerprint a value that changes whenever the visible content changes
+     * @param notification the notification to post
+     * @return {@code true} if the notification was posted; {@code false} if it was unchanged
+     */
+    public boolean postAlarmNotification(int id, long fingerprint, Notification notification) {
+        return mNotificationModel.getNotificationCoordinator()
+                .notifyNow(id, fingerprint, notification);
+    }
+
+    /**
+     * May be called from any thread.
+     *
+     * @return {@code true} if the alarm notification with the given {@code id} is already posted
+     *      with content matching the given {@code fingerprint}
+     */
+    public boolean isAlarmNotificationPosted(int id, long fingerprint) {
+        return mNotificationModel.getNotificationCoordinator().isPosted(id, fingerprint);
+    }
+
+    /**
+     * Cancels the alarm notification with the given {@code id}. May be called from any thread.
+     */
+    public void cancelAlarmNotification(int id) {
+        mNotificationModel.getNotificationCoordinator().cancel(id);
     }
 
     //
@@ -329,7 +442,7 @@ public final class DataModel {
      */
     public List<City> getAllCities() {
         enforceMainLooper();
-        return mCityModel.getAllCities();
+        return getCityModel().getAllCities();
     }
 
     /**
@@ -337,7 +450,7 @@ public final class DataModel {
      */
     public City getHomeCity() {
         enforceMainLooper();
-        return mCityModel.getHomeCity();
+        return getCityModel().getHomeCity();
     }
 
     /**
@@ -345,7 +458,7 @@ public final class DataModel {
      */
     public List<City> getUnselectedCities() {
         enforceMainLooper();
-        return mCityModel.getUnselectedCities();
+        return getCityModel().getUnselectedCities();
     }
 
     /**
@@ -353,7 +466,7 @@ public final class DataModel {
      */
     public List<City> getSelectedCities() {
         enforceMainLooper();
-        return mCityModel.getSelectedCities();
+        return getCityModel().getSelectedCities();
     }
 
     /**
@@ -361,7 +474,7 @@ public final class DataModel {
      */
     public void setSelectedCities(Collection<City> cities) {
         enforceMainLooper();
-        mCityModel.setSelectedCities(cities);
+        getCityModel().setSelectedCities(cities);
     }
 
     /**
@@ -369,7 +482,7 @@ public final class DataModel {
      */
     public Comparator<City> getCityIndexComparator() {
         enforceMainLooper();
-        return mCityModel.getCityIndexComparator();
+        return getCityModel().getCityIndexComparator();
     }
 
     /**
@@ -377,7 +490,7 @@ public final class DataModel {
      */
     public CitySort getCitySort() {
         enforceMainLooper();
-        return mCityModel.getCitySort();
+        return getCityModel().getCitySort();
     }
 
     /**
@@ -385,7 +498,7 @@ public final class DataModel {
      */
     public void toggleCitySort() {
         enforceMainLooper();
-        mCityModel.toggleCitySort();
+        getCityModel().toggleCitySort();
     }
 
     /**
@@ -393,7 +506,7 @@ public final class DataModel {
      */
     public void addCityListener(CityListener cityListener) {
         enforceMainLooper();
-        mCityModel.addCityListener(cityListener);
+        getCityModel().addCityListener(cityListener);
     }
 
     /**
@@ -401,7 +514,7 @@ public final class DataModel {
      */
     public void removeCityListener(CityListener cityListener) {
         enforceMainLooper();
-        mCityModel.removeCityListener(cityListener);
+        getCityModel().removeCityListener(cityListener);
     }
 
     //
@@ -413,7 +526,7 @@ public final class DataModel {
      */
     public void addTimerListener(TimerListener timerListener) {
         enforceMainLooper();
-        mTimerModel.addTimerListener(timerListener);
+        getTimerModel().addTimerListener(timerListener);
     }
 
     /**
@@ -421,7 +534,7 @@ public final class DataModel {
      */
     public void removeTimerListener(TimerListener timerListener) {
         enforceMainLooper();
-        mTimerModel.removeTimerListener(timerListener);
+        getTimerModel().removeTimerListener(timerListener);
     }
 
     /**
@@ -429,7 +542,7 @@ public final class DataModel {
      */
     public List<Timer> getTimers() {
         enforceMainLooper();
-        return mTimerModel.getTimers();
+        return getTimerModel().getTimers();
     }
 
     /**
@@ -437,7 +550,7 @@ public final class DataModel {
      */
     public List<Timer> getExpiredTimers() {
         enforceMainLooper();
-        return mTimerModel.getExpiredTimers();
+        return getTimerModel().getExpiredTimers();
     }
 
     /**
@@ -446,7 +559,7 @@ public final class DataModel {
      */
     public Timer getTimer(int timerId) {
         enforceMainLooper();
-        return mTimerModel.getTimer(timerId);
+        return getTimerModel().getTimer(timerId);
     }
 
     /**
@@ -455,7 +568,7 @@ public final class DataModel {
      */
     public Timer getMostRecentExpiredTimer() {
         enforceMainLooper();
-        return mTimerModel.getMostRecentExpiredTimer();
+        return getTimerModel().getMostRecentExpiredTimer();
     }
 
     /**
@@ -466,7 +579,7 @@ public final class DataModel {
      */
     public Timer addTimer(long length, String label, boolean deleteAfterUse) {
         enforceMainLooper();
-        return mTimerModel.addTimer(length, label, deleteAfterUse);
+        return getTimerModel().addTimer(length, label, deleteAfterUse);
     }
 
     /**
@@ -474,7 +587,7 @@ public final class DataModel {
      */
     public void removeTimer(Timer timer) {
         enforceMainLooper();
-        mTimerModel.removeTimer(timer);
+        getTimerModel().removeTimer(timer);
     }
 
     /**
@@ -491,7 +604,7 @@ public final class DataModel {
     public void startTimer(Service service, Timer timer) {
         enforceMainLooper();
         final Timer started = timer.start();
-        mTimerModel.updateTimer(started);
+        getTimerModel().updateTimer(started);
         if (timer.getRemainingTime() <= 0) {
             if (service != null) {
                 expireTimer(service, started);
@@ -506,7 +619,7 @@ public final class DataModel {
      */
     public void pauseTimer(Timer timer) {
         enforceMainLooper();
-        mTimerModel.updateTimer(timer.pause());
+        getTimerModel().updateTimer(timer.pause());
     }
 
     /**
@@ -515,7 +628,7 @@ public final class DataModel {
      */
     public void expireTimer(Service service, Timer timer) {
         enforceMainLooper();
-        mTimerModel.expireTimer(service, timer);
+        getTimerModel().expireTimer(service, timer);
     }
 
     /**
@@ -524,7 +637,7 @@ public final class DataModel {
      */
     public Timer resetTimer(Timer timer) {
         enforceMainLooper();
-        return mTimerModel.resetTimer(timer, false /* allowDelete */, 0 /* eventLabelId */);
+        return getTimerModel().resetTimer(timer, false /* allowDelete */, 0 /* eventLabelId */);
     }
 
     /**
@@ -538,7 +651,7 @@ public final class DataModel {
      */
     public Timer resetOrDeleteTimer(Timer timer, @StringRes int eventLabelId) {
         enforceMainLooper();
-        return mTimerModel.resetTimer(timer, true /* allowDelete */, eventLabelId);
+        return getTimerModel().resetTimer(timer, true /* allowDelete */, eventLabelId);
     }
 
     /**
@@ -548,7 +661,7 @@ public final class DataModel {
      */
     public void resetOrDeleteExpiredTimers(@StringRes int eventLabelId) {
         enforceMainLooper();
-        mTimerModel.resetOrDeleteExpiredTimers(eventLabelId);
+        getTimerModel().resetOrDeleteExpiredTimers(eventLabelId);
     }
 
     /**
@@ -558,7 +671,7 @@ public final class DataModel {
      */
     public void resetUnexpiredTimers(@StringRes int eventLabelId) {
         enforceMainLooper();
-        mTimerModel.resetUnexpiredTimers(eventLabelId);
+        getTimerModel().resetUnexpiredTimers(eventLabelId);
     }
 
     /**
@@ -568,7 +681,7 @@ public final class DataModel {
      */
     public void resetMissedTimers(@StringRes int eventLabelId) {
         enforceMainLooper();
-        mTimerModel.resetMissedTimers(eventLabelId);
+        getTimerModel().resetMissedTimers(eventLabelId);
     }
 
     /**
@@ -576,7 +689,7 @@ public final class DataModel {
      */
     public void addTimerMinute(Timer timer) {
         enforceMainLooper();
-        mTimerModel.updateTimer(timer.addMinute());
+        getTimerModel().updateTimer(timer.addMinute());
     }
 
     /**
@@ -585,7 +698,7 @@ public final class DataModel {
      */
     public void setTimerLabel(Timer timer, String label) {
         enforceMainLooper();
-        mTimerModel.updateTimer(timer.setLabel(label));
+        getTimerModel().updateTimer(timer.setLabel(label));
     }
 
     /**
@@ -594,7 +707,7 @@ public final class DataModel {
      */
     public void setTimerLength(Timer timer, long length) {
         enforceMainLooper();
-        mTimerModel.updateTimer(timer.setLength(length));
+        getTimerModel().updateTimer(timer.setLength(length));
     }
 
     /**
@@ -605,7 +718,7 @@ public final class DataModel {
         enforceMainLooper();
 
         final Timer updated = timer.setRemainingTime(remainingTime);
-        mTimerModel.updateTimer(updated);
+        getTimerModel().updateTimer(updated);
         if (timer.isRunning() && timer.getRemainingTime() <= 0) {
             mContext.startService(TimerService.createTimerExpiredIntent(mContext, updated));
         }
@@ -616,7 +729,7 @@ public final class DataModel {
      */
     public void updateTimerNotification() {
         enforceMainLooper();
-        mTimerModel.updateNotification();
+        getTimerModel().updateNotification();
     }
 
     /**
@@ -624,7 +737,7 @@ public final class DataModel {
      */
     public Uri getDefaultTimerRingtoneUri() {
         enforceMainLooper();
-        return mTimerModel.getDefaultTimerRingtoneUri();
+        return getTimerModel().getDefaultTimerRingtoneUri();
     }
 
     /**
@@ -632,7 +745,7 @@ public final class DataModel {
      */
     public boolean isTimerRingtoneSilent() {
         enforceMainLooper();
-        return mTimerModel.isTimerRingtoneSilent();
+        return getTimerModel().isTimerRingtoneSilent();
     }
 
     /**
@@ -640,7 +753,7 @@ public final class DataModel {
      */
     public Uri getTimerRingtoneUri() {
         enforceMainLooper();
-        return mTimerModel.getTimerRingtoneUri();
+        return getTimerModel().getTimerRingtoneUri();
     }
 
     /**
@@ -648,7 +761,7 @@ public final class DataModel {
      */
     public void setTimerRingtoneUri(Uri uri) {
         enforceMainLooper();
-        mTimerModel.setTimerRingtoneUri(uri);
+        getTimerModel().setTimerRingtoneUri(uri);
     }
 
     /**
@@ -656,7 +769,7 @@ public final class DataModel {
      */
     public String getTimerRingtoneTitle() {
         enforceMainLooper();
-        return mTimerModel.getTimerRingtoneTitle();
+        return getTimerModel().getTimerRingtoneTitle();
     }
 
     /**
@@ -665,7 +778,7 @@ public final class DataModel {
      */
     public long getTimerCrescendoDuration() {
         enforceMainLooper();
-        return mTimerModel.getTimerCrescendoDuration();
+        return getTimerModel().getTimerCrescendoDuration();
     }
 
     /**
@@ -673,7 +786,7 @@ public final class DataModel {
      */
     public boolean getTimerVibrate() {
         enforceMainLooper();
-        return mTimerModel.getTimerVibrate();
+        return getTimerModel().getTimerVibrate();
     }
 
     /**
@@ -681,7 +794,15 @@ public final class DataModel {
      */
     public void setTimerVibrate(boolean enabled) {
         enforceMainLooper();
-        mTimerModel.setTimerVibrate(enabled);
+        getTimerModel().setTimerVibrate(enabled);
+    }
+
+    /**
+     * @return {@code true} if all timers are displayed in a scrolling list rather than one per page
+     */
+    public boolean getShowTimersAsList() {
+        enforceMainLooper();
+        return mSettingsModel.getShowTimersAsList();
     }
 
     //
@@ -744,7 +865,7 @@ public final class DataModel {
      */
     public void addStopwatchListener(StopwatchListener stopwatchListener) {
         enforceMainLooper();
-        mStopwatchModel.addStopwatchListener(stopwatchListener);
+        getStopwatchModel().addStopwatchListener(stopwatchListener);
     }
 
     /**
@@ -752,7 +873,7 @@ public final class DataModel {
      */
     public void removeStopwatchListener(StopwatchListener stopwatchListener) {
         enforceMainLooper();
-        mStopwatchModel.removeStopwatchListener(stopwatchListener);
+        getStopwatchModel().removeStopwatchListener(stopwatchListener);
     }
 
     /**
@@ -760,7 +881,7 @@ public final class DataModel {
      */
     public Stopwatch getStopwatch() {
         enforceMainLooper();
-        return mStopwatchModel.getStopwatch();
+        return getStopwatchModel().getStopwatch();
     }
 
     /**
@@ -768,7 +889,7 @@ public final class DataModel {
      */
     public Stopwatch startStopwatch() {
         enforceMainLooper();
-        return mStopwatchModel.setStopwatch(getStopwatch().start());
+        return getStopwatchModel().setStopwatch(getStopwatch().start());
     }
 
     /**
@@ -776,7 +897,7 @@ public final class DataModel {
      */
     public Stopwatch pauseStopwatch() {
         enforceMainLooper();
-        return mStopwatchModel.setStopwatch(getStopwatch().pause());
+        return getStopwatchModel().setStopwatch(getStopwatch().pause());
     }
 
     /**
@@ -784,7 +905,7 @@ public final class DataModel {
      */
     public Stopwatch resetStopwatch() {
         enforceMainLooper();
-        return mStopwatchModel.setStopwatch(getStopwatch().reset());
+        return getStopwatchModel().setStopwatch(getStopwatch().reset());
     }
 
     /**
@@ -792,7 +913,7 @@ public final class DataModel {
      */
     public List<Lap> getLaps() {
         enforceMainLooper();
-        return mStopwatchModel.getLaps();
+        return getStopwatchModel().getLaps();
     }
 
     /**
@@ -800,7 +921,7 @@ public final class DataModel {
      */
     public Lap addLap() {
         enforceMainLooper();
-        return mStopwatchModel.addLap();
+        return getStopwatchModel().addLap();
     }
 
     /**
@@ -808,7 +929,7 @@ public final class DataModel {
      */
     public boolean canAddMoreLaps() {
         enforceMainLooper();
-        return mStopwatchModel.canAddMoreLaps();
+        return getStopwatchModel().canAddMoreLaps();
     }
 
     /**
@@ -816,7 +937,7 @@ public final class DataModel {
      */
     public long getLongestLapTime() {
         enforceMainLooper();
-        return mStopwatchModel.getLongestLapTime();
+        return getStopwatchModel().getLongestLapTime();
     }
 
     /**
@@ -825,7 +946,7 @@ public final class DataModel {
      */
     public long getCurrentLapTime(long time) {
         enforceMainLooper();
-        return mStopwatchModel.getCurrentLapTime(time);
+        return getStopwatchModel().getCurrentLapTime(time);
     }
 
     //
@@ -929,7 +1050,7 @@ public final class DataModel {
      */
     public void updateWidgetCount(Class widgetClass, int count, @StringRes int eventCategoryId) {
         enforceMainLooper();
-        mWidgetModel.updateWidgetCount(widgetClass, count, eventCategoryId);
+        getWidgetModel().updateWidgetCount(widgetClass, count, eventCategoryId);
     }
 
     //
@@ -965,6 +1086,9 @@ public final class DataModel {
     public void updateGlobalIntentId() {
         enforceMainLooper();
         mSettingsModel.updateGlobalIntentId();
+
+        // Alarms are scheduled with this id immediately after; it must survive process death.
+        flushPendingWrites();
     }
 
     /**
@@ -1007,6 +1131,15 @@ public final class DataModel {
         return mSettingsModel.getScreensaverNightModeOn();
     }
 
+    /**
+     * @return {@code true} if the screen saver should minimize the frames it renders, e.g. on
+     *      devices that display it around the clock
+     */
+    public boolean getScreensaverLowPowerModeOn() {
+        enforceMainLooper();
+        return mSettingsModel.getScreensaverLowPowerModeOn();
+    }
+
     /**
      * @return {@code true} if the users wants to automatically show a clock for their home timezone
      *      when they have travelled outside of that timezone
@@ -1073,4 +1206,33 @@ public final class DataModel {
             return mExecuted;
         }
     }
+
+    private CityModel getCityModel() {
+        if (mCityModel == null) {
+            mCityModel = new CityModel(mContext, mPrefs, mSettingsModel);
+        }
+        return mCityModel;
+    }
+
+    private StopwatchModel getStopwatchModel() {
+        if (mStopwatchModel == null) {
+            mStopwatchModel = new StopwatchModel(mContext, mStatePrefs, mNotificationModel);
+        }
+        return mStopwatchModel;
+    }
+
+    private TimerModel getTimerModel() {
+        if (mTimerModel == null) {
+            mTimerModel = new TimerModel(mContext, mPrefs, mStatePrefs, mSettingsModel,
+                    mRingtoneModel, mNotificationModel);
+        }
+        return mTimerModel;
+    }
+
+    private WidgetModel getWidgetModel() {
+        if (mWidgetModel == null) {
+            mWidgetModel = new WidgetModel(mPrefs);
+        }
+        return mWidgetModel;
+    }
 }
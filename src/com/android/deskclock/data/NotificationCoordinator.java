@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.data;
+
+import android.app.Notification;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.app.NotificationManagerCompat;
+import android.support.v4.util.ArrayMap;
+import android.util.SparseArray;
+
+import com.android.deskclock.LogUtils;
+
+import java.util.Map;
+
+/**
+ * All notifications posted by the application funnel through this coordinator. It remembers a
+ * fingerprint of the content last posted for each notification id so that unchanged notifications
+ * are never re-posted, coalesces all update requests made within a single frame into one post per
+ * notification id, and limits the rate at which each channel (notification group) is updated so the
+ * system NotificationManager never throttles the application.
+ */
+final class NotificationCoordinator {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("NotifCoordinator");
+
+    /** Update requests arriving within this window are coalesced into a single post. */
+    private static final long FRAME_MILLIS = 16;
+
+    /** The minimum time between two posts to the same channel. */
+    private static final long MIN_CHANNEL_UPDATE_INTERVAL = 250;
+
+    /** Fingerprint value that never matches a real notification. */
+    private static final long NO_FINGERPRINT = 0;
+
+    /**
+     * Produces the content of a single notification on demand. Rendering is deferred until the
+     * coordinator decides a post is actually required.
+     */
+    interface Renderer {
+        /**
+         * @return a value that changes whenever the visible content of the notification changes
+         */
+        long getFingerprint();
+
+        /**
+         * @return the notification to post; {@code null} indicates the notification should be
+         *      canceled instead
+         */
+        Notification render();
+    }
+
+    /** Used to post and cancel system notifications. */
+    private final NotificationManagerCompat mNotificationManager;
+
+    /** Handler on the main thread used to flush coalesced updates. */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /** Flushes all pending updates that are not held back by rate limiting. */
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /** Maps notification id to the fingerprint of the content that is currently posted. */
+    private final SparseArray<Long> mPostedFingerprints = new SparseArray<>();
+
+    /** Maps notification id to the pending update awaiting the next flush. */
+    private final SparseArray<PendingUpdate> mPendingUpdates = new SparseArray<>();
+
+    /** Maps channel to the elapsed realtime at which it was last posted. */
+    private final Map<String, Long> mLastChannelPostTimes = new ArrayMap<>();
+
+    /** {@code true} while {@link #mFlushRunnable} is scheduled. */
+    private boolean mFlushScheduled;
+
+    NotificationCoordinator(Context context) {
+        mNotificationManager = NotificationManagerCompat.from(context);
+    }
+
+    /**
+     * Schedules an update of the notification with the given {@code id}. Requests made for the same
+     * id before the next flush replace one another; only the last one is rendered.
+     *
+     * @param id the notification id to update
+     * @param channel identifies the group of notifications that share an update rate limit
+     * @param renderer produces the fingerprint and content of the notification when flushed
+     */
+    synchronized void update(int id, String channel, Renderer renderer) {
+        mPendingUpdates.put(id, new PendingUpdate(channel, renderer));
+        scheduleFlush(FRAME_MILLIS);
+    }
+
+    /**
+     * Immediately posts the given {@code notification} unless its {@code fingerprint} matches the
+     * content that is already posted. This path bypasses frame batching and rate limiting and is
+     * intended for notifications whose posting order must be preserved, e.g. alarm notifications.
+     *
+     * @return {@code true} if the notification was posted; {@code false} if it was unchanged
+     */
+    synchronized boolean notifyNow(int id, long fingerprint, Notification notification) {
+        if (isPosted(id, fingerprint)) {
+            return false;
+        }
+
+        mPendingUpdates.remove(id);
+        mNotificationManager.notify(id, notification);
+        mPostedFingerprints.put(id, fingerprint);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the notification with the given {@code id} is currently posted with
+     *      content matching the given {@code fingerprint}
+     */
+    synchronized boolean isPosted(int id, long fingerprint) {
+        final Long posted = mPostedFingerprints.get(id);
+        return posted != null && posted == fingerprint && fingerprint != NO_FINGERPRINT;
+    }
+
+    /**
+     * Immediately cancels the notification with the given {@code id} and discards any pending
+     * update for it.
+     */
+    synchronized void cancel(int id) {
+        mPendingUpdates.remove(id);
+        mPostedFingerprints.remove(id);
+        mNotificationManager.cancel(id);
+    }
+
+    /**
+     * Forgets the fingerprints of all posted notifications so the next update of each is posted
+     * regardless of its content. Used when notifications may be stale or missing from the system,
+     * or when the resources used to render them (e.g. locale) have changed.
+     */
+    synchronized void invalidate() {
+        mPostedFingerprints.clear();
+    }
+
+    private void scheduleFlush(long delay) {
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mHandler.postDelayed(mFlushRunnable, delay);
+        }
+    }
+
+    private synchronized void flush() {
+        mFlushScheduled = false;
+
+        final long now = SystemClock.elapsedRealtime();
+        long nextFlushDelay = Long.MAX_VALUE;
+
+        for (int i = mPendingUpdates.size() - 1; i >= 0; i--) {
+            final int id = mPendingUpdates.keyAt(i);
+            final PendingUpdate update = mPendingUpdates.valueAt(i);
+
+            // Hold back updates to channels that were posted too recently.
+            final Long lastPostTime = mLastChannelPostTimes.get(update.mChannel);
+            if (lastPostTime != null) {
+                final long wait = lastPostTime + MIN_CHANNEL_UPDATE_INTERVAL - now;
+                if (wait > 0) {
+                    nextFlushDelay = Math.min(nextFlushDelay, wait);
+                    continue;
+                }
+            }
+
+            mPendingUpdates.removeAt(i);
+
+            // Skip the update entirely if the visible content is unchanged.
+            final long fingerprint = update.mRenderer.getFingerprint();
+            if (isPosted(id, fingerprint)) {
+                continue;
+            }
+
+            final Notification notification = update.mRenderer.render();
+            if (notification == null) {
+                mPostedFingerprints.remove(id);
+                mNotificationManager.cancel(id);
+                continue;
+            }
+
+            mNotificationManager.notify(id, notification);
+            mPostedFingerprints.put(id, fingerprint);
+            if (update.mChannel != null) {
+                mLastChannelPostTimes.put(update.mChannel, now);
+            }
+        }
+
+        if (nextFlushDelay != Long.MAX_VALUE) {
+            LOGGER.v("Rate limiting notification updates for %d ms", nextFlushDelay);
+            scheduleFlush(nextFlushDelay);
+        }
+    }
+
+    /**
+     * An update request awaiting the next flush.
+     */
+    private static final class PendingUpdate {
+
+        private final String mChannel;
+        private final Renderer mRenderer;
+
+        private PendingUpdate(String channel, Renderer renderer) {
+            mChannel = channel;
+            mRenderer = renderer;
+        }
+    }
+}
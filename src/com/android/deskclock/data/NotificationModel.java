@@ -16,13 +16,29 @@
 
 package com.android.deskclock.data;
 
+import android.content.Context;
+
 /**
  * Data that must be coordinated across all notifications is accessed via this model.
  */
 final class NotificationModel {
 
+    /** Posts, cancels and deduplicates all timer, stopwatch and alarm notifications. */
+    private final NotificationCoordinator mNotificationCoordinator;
+
     private boolean mApplicationInForeground;
 
+    NotificationModel(Context context) {
+        mNotificationCoordinator = new NotificationCoordinator(context);
+    }
+
+    /**
+     * @return the coordinator through which all notifications are posted and canceled
+     */
+    NotificationCoordinator getNotificationCoordinator() {
+        return mNotificationCoordinator;
+    }
+
     /**
      * @param inForeground {@code true} to indicate the application is open in the foreground
      */
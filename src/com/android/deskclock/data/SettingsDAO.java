@@ -18,10 +18,8 @@ package com.android.deskclock.data;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.content.res.Resources;
 import android.net.Uri;
 import android.provider.Settings;
-import android.support.annotation.NonNull;
 import android.text.format.DateUtils;
 
 import com.android.deskclock.R;
@@ -31,13 +29,10 @@ import com.android.deskclock.data.DataModel.ClockStyle;
 import com.android.deskclock.settings.ScreensaverSettingsActivity;
 import com.android.deskclock.settings.SettingsActivity;
 
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
 
-import static android.text.format.DateUtils.HOUR_IN_MILLIS;
-import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
 import static com.android.deskclock.data.DataModel.AlarmVolumeButtonBehavior.DISMISS;
 import static com.android.deskclock.data.DataModel.AlarmVolumeButtonBehavior.NOTHING;
 import static com.android.deskclock.data.DataModel.AlarmVolumeButtonBehavior.SNOOZE;
@@ -109,13 +104,14 @@ final class SettingsDAO {
     }
 
     /**
+     * @param timeZones the timezones from which a home timezone may be chosen
      * @return the user's home timezone
      */
-    static TimeZone getHomeTimeZone(Context context, SharedPreferences prefs, TimeZone defaultTZ) {
+    static TimeZone getHomeTimeZone(TimeZones timeZones, SharedPreferences prefs,
+            TimeZone defaultTZ) {
         String timeZoneId = prefs.getString(SettingsActivity.KEY_HOME_TZ, null);
 
         // If the recorded home timezone is legal, use it.
-        final TimeZones timeZones = getTimeZones(context, System.currentTimeMillis());
         if (timeZones.contains(timeZoneId)) {
             return TimeZone.getTimeZone(timeZoneId);
         }
@@ -178,6 +174,13 @@ final class SettingsDAO {
         return prefs.getBoolean(ScreensaverSettingsActivity.KEY_NIGHT_MODE, false);
     }
 
+    /**
+     * @return {@code true} if the screen saver should minimize the frames it renders
+     */
+    static boolean getScreensaverLowPowerModeOn(SharedPreferences prefs) {
+        return prefs.getBoolean(ScreensaverSettingsActivity.KEY_LOW_POWER, false);
+    }
+
     /**
      * @return the uri of the selected ringtone or the {@code defaultUri} if no explicit selection
      *      has yet been made
@@ -201,6 +204,13 @@ final class SettingsDAO {
         prefs.edit().putBoolean(SettingsActivity.KEY_TIMER_VIBRATE, enabled).apply();
     }
 
+    /**
+     * @return {@code true} if all timers are displayed in a scrolling list rather than one per page
+     */
+    static boolean getShowTimersAsList(SharedPreferences prefs) {
+        return prefs.getBoolean(SettingsActivity.KEY_TIMER_LIST_VIEW, false);
+    }
+
     /**
      * @param uri the uri of the ringtone to play for all timers
      */
@@ -310,45 +320,6 @@ final class SettingsDAO {
         return Integer.parseInt(string);
     }
 
-    /**
-     * @param currentTime timezone offsets created relative to this time
-     * @return a description of the time zones available for selection
-     */
-    static TimeZones getTimeZones(Context context, long currentTime) {
-        final Locale locale = Locale.getDefault();
-        final Resources resources = context.getResources();
-        final String[] timeZoneIds = resources.getStringArray(R.array.timezone_values);
-        final String[] timeZoneNames = resources.getStringArray(R.array.timezone_labels);
-
-        // Verify the data is consistent.
-        if (timeZoneIds.length != timeZoneNames.length) {
-            final String message = String.format(Locale.US,
-                    "id count (%d) does not match name count (%d) for locale %s",
-                    timeZoneIds.length, timeZoneNames.length, locale);
-            throw new IllegalStateException(message);
-        }
-
-        // Create TimeZoneDescriptors for each TimeZone so they can be sorted.
-        final TimeZoneDescriptor[] descriptors = new TimeZoneDescriptor[timeZoneIds.length];
-        for (int i = 0; i < timeZoneIds.length; i++) {
-            final String id = timeZoneIds[i];
-            final String name = timeZoneNames[i].replaceAll("\"", "");
-            descriptors[i] = new TimeZoneDescriptor(locale, id, name, currentTime);
-        }
-        Arrays.sort(descriptors);
-
-        // Transfer the TimeZoneDescriptors into parallel arrays for easy consumption by the caller.
-        final CharSequence[] tzIds = new CharSequence[descriptors.length];
-        final CharSequence[] tzNames = new CharSequence[descriptors.length];
-        for (int i = 0; i < descriptors.length; i++) {
-            final TimeZoneDescriptor descriptor = descriptors[i];
-            tzIds[i] = descriptor.mTimeZoneId;
-            tzNames[i] = descriptor.mTimeZoneName;
-        }
-
-        return new TimeZones(tzIds, tzNames);
-    }
-
     private static ClockStyle getClockStyle(Context context, SharedPreferences prefs, String key) {
         final String defaultStyle = context.getString(R.string.default_clock_style);
         final String clockStyle = prefs.getString(key, defaultStyle);
@@ -356,32 +327,4 @@ final class SettingsDAO {
         // accent to character, which breaks the enum conversion.
         return ClockStyle.valueOf(clockStyle.toUpperCase(Locale.US));
     }
-
-    /**
-     * These descriptors have a natural order from furthest ahead of GMT to furthest behind GMT.
-     */
-    private static class TimeZoneDescriptor implements Comparable<TimeZoneDescriptor> {
-
-        private final int mOffset;
-        private final String mTimeZoneId;
-        private final String mTimeZoneName;
-
-        private TimeZoneDescriptor(Locale locale, String id, String name, long currentTime) {
-            mTimeZoneId = id;
-
-            final TimeZone tz = TimeZone.getTimeZone(id);
-            mOffset = tz.getOffset(currentTime);
-
-            final char sign = mOffset < 0 ? '-' : '+';
-            final int absoluteGMTOffset = Math.abs(mOffset);
-            final long hour = absoluteGMTOffset / HOUR_IN_MILLIS;
-            final long minute = (absoluteGMTOffset / MINUTE_IN_MILLIS) % 60;
-            mTimeZoneName = String.format(locale, "(GMT%s%d:%02d) %s", sign, hour, minute, name);
-        }
-
-        @Override
-        public int compareTo(@NonNull TimeZoneDescriptor other) {
-            return mOffset - other.mOffset;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -16,23 +16,56 @@
 
 package com.android.deskclock.data;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.net.Uri;
 
+import com.android.deskclock.LogUtils;
 import com.android.deskclock.R;
 import com.android.deskclock.Utils;
 import com.android.deskclock.data.DataModel.AlarmVolumeButtonBehavior;
 import com.android.deskclock.data.DataModel.CitySort;
 import com.android.deskclock.data.DataModel.ClockStyle;
+import com.android.deskclock.settings.ScreensaverSettingsActivity;
+import com.android.deskclock.settings.SettingsActivity;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * All settings data is accessed via this model.
  */
 final class SettingsModel {
 
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("SettingsModel");
+
+    /** The keys of all preferences captured by a {@link Snapshot}. */
+    private static final Set<String> SNAPSHOT_KEYS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(
+                    SettingsActivity.KEY_ALARM_SNOOZE,
+                    SettingsActivity.KEY_ALARM_CRESCENDO,
+                    SettingsActivity.KEY_TIMER_CRESCENDO,
+                    SettingsActivity.KEY_TIMER_VIBRATE,
+                    SettingsActivity.KEY_TIMER_LIST_VIEW,
+                    SettingsActivity.KEY_AUTO_SILENCE,
+                    SettingsActivity.KEY_CLOCK_STYLE,
+                    SettingsActivity.KEY_CLOCK_DISPLAY_SECONDS,
+                    SettingsActivity.KEY_HOME_TZ,
+                    SettingsActivity.KEY_AUTO_HOME_CLOCK,
+                    SettingsActivity.KEY_VOLUME_BUTTONS,
+                    SettingsActivity.KEY_WEEK_START,
+                    ScreensaverSettingsActivity.KEY_CLOCK_STYLE,
+                    ScreensaverSettingsActivity.KEY_NIGHT_MODE,
+                    ScreensaverSettingsActivity.KEY_LOW_POWER)));
+
     private final Context mContext;
 
     private final SharedPreferences mPrefs;
@@ -40,6 +73,27 @@ final class SettingsModel {
     /** The model from which time data are fetched. */
     private final TimeModel mTimeModel;
 
+    /**
+     * Retain a hard reference to the shared preference observer to prevent it from being garbage
+     * collected. See {@link SharedPreferences#registerOnSharedPreferenceChangeListener} for detail.
+     */
+    private final OnSharedPreferenceChangeListener mPreferenceListener = new PreferenceListener();
+
+    /** Clears data that depends on the locale in response to locale changes. */
+    private final BroadcastReceiver mLocaleChangedReceiver = new LocaleChangedReceiver();
+
+    /**
+     * Incremented each time a preference captured by a {@link Snapshot} changes, or the locale
+     * from which some of their defaults are derived changes.
+     */
+    private final AtomicInteger mVersion = new AtomicInteger();
+
+    /** The most recently built snapshot; stale if its version trails {@link #mVersion}. */
+    private volatile Snapshot mSnapshot;
+
+    /** Caches the timezones from which a home timezone may be chosen. */
+    private final TimeZoneTable mTimeZoneTable;
+
     /** The uri of the default ringtone to use for timers until the user explicitly chooses one. */
     private Uri mDefaultTimerRingtoneUri;
 
@@ -47,9 +101,17 @@ final class SettingsModel {
         mContext = context;
         mPrefs = prefs;
         mTimeModel = timeModel;
+        mTimeZoneTable = new TimeZoneTable(context);
 
         // Set the user's default display seconds preference if one has not yet been chosen.
         SettingsDAO.setDefaultDisplayClockSeconds(mContext, prefs);
+
+        // Rebuild the settings snapshot when the preferences it captures change.
+        prefs.registerOnSharedPreferenceChangeListener(mPreferenceListener);
+
+        // Rebuild the settings snapshot when the locale changes; e.g. the default week start.
+        final IntentFilter localeBroadcastFilter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
+        mContext.registerReceiver(mLocaleChangedReceiver, localeBroadcastFilter);
     }
 
     int getGlobalIntentId() {
@@ -69,38 +131,43 @@ final class SettingsModel {
     }
 
     TimeZone getHomeTimeZone() {
-        return SettingsDAO.getHomeTimeZone(mContext, mPrefs, TimeZone.getDefault());
+        return getHomeTimeZone(TimeZone.getDefault());
     }
 
     ClockStyle getClockStyle() {
-        return SettingsDAO.getClockStyle(mContext, mPrefs);
+        return getSnapshot().mClockStyle;
     }
 
     boolean getDisplayClockSeconds() {
-        return SettingsDAO.getDisplayClockSeconds(mPrefs);
+        return getSnapshot().mDisplayClockSeconds;
     }
 
     void setDisplayClockSeconds(boolean shouldDisplaySeconds) {
         SettingsDAO.setDisplayClockSeconds(mPrefs, shouldDisplaySeconds);
+        mVersion.incrementAndGet();
     }
 
     ClockStyle getScreensaverClockStyle() {
-        return SettingsDAO.getScreensaverClockStyle(mContext, mPrefs);
+        return getSnapshot().mScreensaverClockStyle;
     }
 
     boolean getScreensaverNightModeOn() {
-        return SettingsDAO.getScreensaverNightModeOn(mPrefs);
+        return getSnapshot().mScreensaverNightModeOn;
+    }
+
+    boolean getScreensaverLowPowerModeOn() {
+        return getSnapshot().mScreensaverLowPowerModeOn;
     }
 
     boolean getShowHomeClock() {
-        if (!SettingsDAO.getAutoShowHomeClock(mPrefs)) {
+        if (!getSnapshot().mAutoShowHomeClock) {
             return false;
         }
 
         // Show the home clock if the current time and home time differ.
         // (By using UTC offset for this comparison the various DST rules are considered)
         final TimeZone defaultTZ = TimeZone.getDefault();
-        final TimeZone homeTimeZone = SettingsDAO.getHomeTimeZone(mContext, mPrefs, defaultTZ);
+        final TimeZone homeTimeZone = getHomeTimeZone(defaultTZ);
         final long now = System.currentTimeMillis();
         return homeTimeZone.getOffset(now) != defaultTZ.getOffset(now);
     }
@@ -122,15 +189,15 @@ final class SettingsModel {
     }
 
     AlarmVolumeButtonBehavior getAlarmVolumeButtonBehavior() {
-        return SettingsDAO.getAlarmVolumeButtonBehavior(mPrefs);
+        return getSnapshot().mAlarmVolumeButtonBehavior;
     }
 
     int getAlarmTimeout() {
-        return SettingsDAO.getAlarmTimeout(mPrefs);
+        return getSnapshot().mAlarmTimeout;
     }
 
     int getSnoozeLength() {
-        return SettingsDAO.getSnoozeLength(mPrefs);
+        return getSnapshot().mSnoozeLength;
     }
 
     Uri getDefaultAlarmRingtoneUri() {
@@ -142,15 +209,15 @@ final class SettingsModel {
     }
 
     long getAlarmCrescendoDuration() {
-        return SettingsDAO.getAlarmCrescendoDuration(mPrefs);
+        return getSnapshot().mAlarmCrescendoDuration;
     }
 
     long getTimerCrescendoDuration() {
-        return SettingsDAO.getTimerCrescendoDuration(mPrefs);
+        return getSnapshot().mTimerCrescendoDuration;
     }
 
     Weekdays.Order getWeekdayOrder() {
-        return SettingsDAO.getWeekdayOrder(mPrefs);
+        return getSnapshot().mWeekdayOrder;
     }
 
     boolean isRestoreBackupFinished() {
@@ -162,14 +229,122 @@ final class SettingsModel {
     }
 
     boolean getTimerVibrate() {
-        return SettingsDAO.getTimerVibrate(mPrefs);
+        return getSnapshot().mTimerVibrate;
     }
 
     void setTimerVibrate(boolean enabled) {
         SettingsDAO.setTimerVibrate(mPrefs, enabled);
+        mVersion.incrementAndGet();
+    }
+
+    boolean getShowTimersAsList() {
+        return getSnapshot().mShowTimersAsList;
     }
 
     TimeZones getTimeZones() {
-        return SettingsDAO.getTimeZones(mContext, mTimeModel.currentTimeMillis());
+        return mTimeZoneTable.getTimeZones(mTimeModel.currentTimeMillis());
+    }
+
+    private TimeZone getHomeTimeZone(TimeZone defaultTZ) {
+        final Snapshot snapshot = getSnapshot();
+        synchronized (snapshot) {
+            if (snapshot.mHomeTimeZone != null) {
+                return (TimeZone) snapshot.mHomeTimeZone.clone();
+            }
+
+            // The default is returned as-is only if no legal home timezone has been recorded;
+            // that answer depends on the current default so it is not retained.
+            final TimeZone homeTimeZone =
+                    SettingsDAO.getHomeTimeZone(getTimeZones(), mPrefs, defaultTZ);
+            if (homeTimeZone != defaultTZ) {
+                snapshot.mHomeTimeZone = (TimeZone) homeTimeZone.clone();
+            }
+            return homeTimeZone;
+        }
+    }
+
+    /**
+     * @return a snapshot of the settings that is current as of the last reported preference change
+     */
+    private Snapshot getSnapshot() {
+        Snapshot snapshot = mSnapshot;
+        final int version = mVersion.get();
+        if (snapshot == null || snapshot.mVersion != version) {
+            snapshot = new Snapshot(version, mContext, mPrefs);
+            // A concurrent change may have made this snapshot stale already; the version check
+            // above rebuilds it on the next read in that case.
+            mSnapshot = snapshot;
+            LOGGER.v("Built settings snapshot version %d", version);
+        }
+        return snapshot;
+    }
+
+    /**
+     * A capture of the settings read on hot paths such as alarm state changes and notification
+     * building, parsed once from their string encodings. Only the home timezone is filled in after
+     * construction, under the snapshot's lock.
+     */
+    private static final class Snapshot {
+
+        private final int mVersion;
+        private final long mAlarmCrescendoDuration;
+        private final long mTimerCrescendoDuration;
+        private final int mSnoozeLength;
+        private final int mAlarmTimeout;
+        private final Weekdays.Order mWeekdayOrder;
+        private final AlarmVolumeButtonBehavior mAlarmVolumeButtonBehavior;
+        private final ClockStyle mClockStyle;
+        private final ClockStyle mScreensaverClockStyle;
+        private final boolean mDisplayClockSeconds;
+        private final boolean mScreensaverNightModeOn;
+        private final boolean mScreensaverLowPowerModeOn;
+        private final boolean mAutoShowHomeClock;
+        private final boolean mTimerVibrate;
+        private final boolean mShowTimersAsList;
+
+        /** The recorded home timezone; resolved on first use because validating it is costly. */
+        private TimeZone mHomeTimeZone;
+
+        private Snapshot(int version, Context context, SharedPreferences prefs) {
+            mVersion = version;
+            mAlarmCrescendoDuration = SettingsDAO.getAlarmCrescendoDuration(prefs);
+            mTimerCrescendoDuration = SettingsDAO.getTimerCrescendoDuration(prefs);
+            mSnoozeLength = SettingsDAO.getSnoozeLength(prefs);
+            mAlarmTimeout = SettingsDAO.getAlarmTimeout(prefs);
+            mWeekdayOrder = SettingsDAO.getWeekdayOrder(prefs);
+            mAlarmVolumeButtonBehavior = SettingsDAO.getAlarmVolumeButtonBehavior(prefs);
+            mClockStyle = SettingsDAO.getClockStyle(context, prefs);
+            mScreensaverClockStyle = SettingsDAO.getScreensaverClockStyle(context, prefs);
+            mDisplayClockSeconds = SettingsDAO.getDisplayClockSeconds(prefs);
+            mScreensaverNightModeOn = SettingsDAO.getScreensaverNightModeOn(prefs);
+            mScreensaverLowPowerModeOn = SettingsDAO.getScreensaverLowPowerModeOn(prefs);
+            mAutoShowHomeClock = SettingsDAO.getAutoShowHomeClock(prefs);
+            mTimerVibrate = SettingsDAO.getTimerVibrate(prefs);
+            mShowTimersAsList = SettingsDAO.getShowTimersAsList(prefs);
+        }
+    }
+
+    /**
+     * This receiver is notified when shared preferences change. The settings snapshot must be
+     * rebuilt when any preference it captures changes.
+     */
+    private final class PreferenceListener implements OnSharedPreferenceChangeListener {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+            if (SNAPSHOT_KEYS.contains(key)) {
+                mVersion.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Cached information that is locale-sensitive must be cleared in response to locale changes.
+     */
+    private final class LocaleChangedReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // The default weekday order follows the first day of the week of the locale.
+            mVersion.incrementAndGet();
+        }
     }
 }
\ No newline at end of file
@@ -50,8 +50,18 @@ final class StopwatchDAO {
     /** Prefix for a key to a preference that stores accumulated time at the end of a lap. */
     private static final String LAP_ACCUMULATED_TIME = "sw_lap_time_";
 
+    /** The prefix shared by the keys of all preferences that store stopwatch data. */
+    private static final String KEY_PREFIX = "sw_";
+
     private StopwatchDAO() {}
 
+    /**
+     * @return {@code true} if the given preference {@code key} stores stopwatch or lap data
+     */
+    static boolean isStopwatchKey(String key) {
+        return key.startsWith(KEY_PREFIX);
+    }
+
     /**
      * @return the stopwatch from permanent storage or a reset stopwatch if none exists
      */
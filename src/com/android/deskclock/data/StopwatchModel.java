@@ -23,7 +23,6 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.support.annotation.VisibleForTesting;
-import android.support.v4.app.NotificationManagerCompat;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -41,8 +40,12 @@ final class StopwatchModel {
     /** The model from which notification data are fetched. */
     private final NotificationModel mNotificationModel;
 
-    /** Used to create and destroy system notifications related to the stopwatch. */
-    private final NotificationManagerCompat mNotificationManager;
+    /** Used to post and cancel system notifications related to the stopwatch. */
+    private final NotificationCoordinator mNotificationCoordinator;
+
+    /** Renders the stopwatch notification when the coordinator requires it. */
+    private final NotificationCoordinator.Renderer mNotificationRenderer =
+            new StopwatchRenderer();
 
     /** Update stopwatch notification when locale changes. */
     @SuppressWarnings("FieldCanBeLocal")
@@ -65,7 +68,7 @@ final class StopwatchModel {
         mContext = context;
         mPrefs = prefs;
         mNotificationModel = notificationModel;
-        mNotificationManager = NotificationManagerCompat.from(context);
+        mNotificationCoordinator = notificationModel.getNotificationCoordinator();
 
         // Update stopwatch notification when locale changes.
         final IntentFilter localeBroadcastFilter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
@@ -225,14 +228,13 @@ final class StopwatchModel {
 
         // Notification should be hidden if the stopwatch has no time or the app is open.
         if (stopwatch.isReset() || mNotificationModel.isApplicationInForeground()) {
-            mNotificationManager.cancel(mNotificationModel.getStopwatchNotificationId());
+            mNotificationCoordinator.cancel(mNotificationModel.getStopwatchNotificationId());
             return;
         }
 
-        // Otherwise build and post a notification reflecting the latest stopwatch state.
-        final Notification notification =
-                mNotificationBuilder.build(mContext, mNotificationModel, stopwatch);
-        mNotificationManager.notify(mNotificationModel.getStopwatchNotificationId(), notification);
+        // Otherwise schedule a notification reflecting the latest stopwatch state.
+        mNotificationCoordinator.update(mNotificationModel.getStopwatchNotificationId(),
+                mNotificationModel.getStopwatchNotificationGroupKey(), mNotificationRenderer);
     }
 
     private List<Lap> getMutableLaps() {
@@ -249,7 +251,27 @@ final class StopwatchModel {
     private final class LocaleChangedReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
+            mNotificationCoordinator.invalidate();
             updateNotification();
         }
     }
+
+    /**
+     * Renders the stopwatch notification from the latest stopwatch state.
+     */
+    private final class StopwatchRenderer implements NotificationCoordinator.Renderer {
+        @Override
+        public long getFingerprint() {
+            return mNotificationBuilder.getFingerprint(getStopwatch());
+        }
+
+        @Override
+        public Notification render() {
+            final Stopwatch stopwatch = getStopwatch();
+            if (stopwatch.isReset() || mNotificationModel.isApplicationInForeground()) {
+                return null;
+            }
+            return mNotificationBuilder.build(mContext, mNotificationModel, stopwatch);
+        }
+    }
 }
\ No newline at end of file
@@ -46,6 +46,20 @@ import static android.view.View.VISIBLE;
  */
 class StopwatchNotificationBuilder {
 
+    /**
+     * @param stopwatch the stopwatch displayed by the notification
+     * @return a value that changes whenever the visible content of the notification changes
+     */
+    long getFingerprint(Stopwatch stopwatch) {
+        final DataModel dataModel = DataModel.getDataModel();
+        long fingerprint = stopwatch.getState().ordinal();
+        fingerprint = 31 * fingerprint + stopwatch.getLastStartTime();
+        fingerprint = 31 * fingerprint + stopwatch.getAccumulatedTime();
+        fingerprint = 31 * fingerprint + dataModel.getLaps().size();
+        fingerprint = 31 * fingerprint + (dataModel.canAddMoreLaps() ? 1 : 0);
+        return fingerprint;
+    }
+
     public Notification build(Context context, NotificationModel nm, Stopwatch stopwatch) {
         @StringRes final int eventLabel = R.string.label_notification;
 
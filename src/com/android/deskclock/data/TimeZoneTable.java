@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.data;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.android.deskclock.LogUtils;
+import com.android.deskclock.R;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static android.text.format.DateUtils.DAY_IN_MILLIS;
+import static android.text.format.DateUtils.HOUR_IN_MILLIS;
+import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
+
+/**
+ * Caches the timezones from which to choose a "home" timezone along with their labels, which
+ * include the current GMT offset of each zone. The table is loaded once per locale. Thereafter the
+ * offset and label of a zone are only recomputed after its next DST transition has passed, and the
+ * zones are only re-sorted when an offset actually changed.
+ */
+final class TimeZoneTable {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("TimeZoneTable");
+
+    /** Offsets are sampled at this interval when searching for the next DST transition. */
+    private static final long TRANSITION_SEARCH_STEP = 14 * DAY_IN_MILLIS;
+
+    /** Transitions are searched for this far ahead; beyond that the search is simply repeated. */
+    private static final int TRANSITION_SEARCH_STEPS = 27;
+
+    /** Orders zones from furthest ahead of GMT to furthest behind GMT. */
+    private static final Comparator<Zone> OFFSET_COMPARATOR = new Comparator<Zone>() {
+        @Override
+        public int compare(Zone z1, Zone z2) {
+            return z1.mOffset - z2.mOffset;
+        }
+    };
+
+    private final Context mContext;
+
+    /** The locale in which the zone labels were loaded and formatted. */
+    private Locale mLocale;
+
+    /** All zones in the order they appear in the resources. */
+    private Zone[] mZones;
+
+    /** The earliest time at which the offset of any zone may change. */
+    private long mValidUntil;
+
+    /** The time at which the offsets were last computed; earlier times invalidate them. */
+    private long mValidFrom;
+
+    /** The sorted zones presented to callers; {@code null} if they must be rebuilt. */
+    private TimeZones mTimeZones;
+
+    TimeZoneTable(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * @param currentTime timezone offsets are reported relative to this time
+     * @return a description of the time zones available for selection
+     */
+    synchronized TimeZones getTimeZones(long currentTime) {
+        final Locale locale = Locale.getDefault();
+        if (!locale.equals(mLocale)) {
+            load(locale);
+        }
+
+        if (currentTime >= mValidUntil || currentTime < mValidFrom) {
+            boolean offsetChanged = false;
+            long validUntil = Long.MAX_VALUE;
+            for (Zone zone : mZones) {
+                if (currentTime >= zone.mValidUntil || currentTime < zone.mValidFrom) {
+                    offsetChanged |= zone.update(mLocale, currentTime);
+                }
+                validUntil = Math.min(validUntil, zone.mValidUntil);
+            }
+            mValidFrom = currentTime;
+            mValidUntil = validUntil;
+            if (offsetChanged) {
+                mTimeZones = null;
+            }
+        }
+
+        if (mTimeZones == null) {
+            // The sort is stable, so zones with equal offsets keep their resource order.
+            final Zone[] sorted = mZones.clone();
+            Arrays.sort(sorted, OFFSET_COMPARATOR);
+
+            final CharSequence[] tzIds = new CharSequence[sorted.length];
+            final CharSequence[] tzNames = new CharSequence[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                tzIds[i] = sorted[i].mId;
+                tzNames[i] = sorted[i].mLabel;
+            }
+            mTimeZones = new TimeZones(tzIds, tzNames);
+        }
+
+        return mTimeZones;
+    }
+
+    private void load(Locale locale) {
+        final Resources resources = mContext.getResources();
+        final String[] timeZoneIds = resources.getStringArray(R.array.timezone_values);
+        final String[] timeZoneNames = resources.getStringArray(R.array.timezone_labels);
+
+        // Verify the data is consistent.
+        if (timeZoneIds.length != timeZoneNames.length) {
+            final String message = String.format(Locale.US,
+                    "id count (%d) does not match name count (%d) for locale %s",
+                    timeZoneIds.length, timeZoneNames.length, locale);
+            throw new IllegalStateException(message);
+        }
+
+        mZones = new Zone[timeZoneIds.length];
+        for (int i = 0; i < timeZoneIds.length; i++) {
+            mZones[i] = new Zone(timeZoneIds[i], timeZoneNames[i].replaceAll("\"", ""));
+        }
+        mLocale = locale;
+        mValidFrom = Long.MAX_VALUE;
+        mValidUntil = Long.MIN_VALUE;
+        mTimeZones = null;
+        LOGGER.v("Loaded %d timezones", mZones.length);
+    }
+
+    /**
+     * @return the earliest time after {@code time} at which the offset of the given {@code zone}
+     *      may change
+     */
+    private static long findNextTransition(TimeZone zone, long time, int offset) {
+        if (!zone.useDaylightTime()) {
+            return Long.MAX_VALUE;
+        }
+
+        long before = time;
+        for (int step = 1; step <= TRANSITION_SEARCH_STEPS; step++) {
+            final long after = time + step * TRANSITION_SEARCH_STEP;
+            if (zone.getOffset(after) != offset) {
+                return findTransitionBetween(zone, before, after, offset);
+            }
+            before = after;
+        }
+
+        // No transition is imminent; search again once the searched period has passed.
+        return before;
+    }
+
+    /**
+     * @return the earliest time in ({@code before}, {@code after}] at which the offset of the
+     *      given {@code zone} differs from {@code offset}, which applies at {@code before}
+     */
+    private static long findTransitionBetween(TimeZone zone, long before, long after, int offset) {
+        while (after - before > 1) {
+            final long middle = before + (after - before) / 2;
+            if (zone.getOffset(middle) == offset) {
+                before = middle;
+            } else {
+                after = middle;
+            }
+        }
+        return after;
+    }
+
+    /**
+     * A single selectable timezone.
+     */
+    private static final class Zone {
+
+        private final String mId;
+        private final String mName;
+        private final TimeZone mTimeZone;
+
+        /** The GMT offset of the zone between {@link #mValidFrom} and {@link #mValidUntil}. */
+        private int mOffset;
+
+        /** The name of the zone prefixed with its GMT offset. */
+        private String mLabel;
+
+        private long mValidFrom = Long.MAX_VALUE;
+        private long mValidUntil = Long.MIN_VALUE;
+
+        private Zone(String id, String name) {
+            mId = id;
+            mName = name;
+            mTimeZone = TimeZone.getTimeZone(id);
+        }
+
+        /**
+         * Recomputes the offset of this zone at the given {@code time}.
+         *
+         * @return {@code true} if the offset changed
+         */
+        private boolean update(Locale locale, long time) {
+            final int offset = mTimeZone.getOffset(time);
+            final boolean changed = mLabel == null || offset != mOffset;
+            mOffset = offset;
+            mValidFrom = time;
+            mValidUntil = findNextTransition(mTimeZone, time, offset);
+
+            if (changed) {
+                final char sign = offset < 0 ? '-' : '+';
+                final int absoluteGMTOffset = Math.abs(offset);
+                final long hour = absoluteGMTOffset / HOUR_IN_MILLIS;
+                final long minute = (absoluteGMTOffset / MINUTE_IN_MILLIS) % 60;
+                mLabel = String.format(locale, "(GMT%s%d:%02d) %s", sign, hour, minute, mName);
+            }
+            return changed;
+        }
+    }
+}
@@ -16,7 +16,8 @@
 
 package com.android.deskclock.data;
 
-import android.text.TextUtils;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A read-only domain object representing the timezones from which to choose a "home" timezone.
@@ -26,9 +27,17 @@ public final class TimeZones {
     private final CharSequence[] mTimeZoneIds;
     private final CharSequence[] mTimeZoneNames;
 
+    /** Maps each timezone id to its index within {@link #mTimeZoneIds}. */
+    private final Map<String, Integer> mIndexes;
+
     TimeZones(CharSequence[] timeZoneIds, CharSequence[] timeZoneNames) {
         mTimeZoneIds = timeZoneIds;
         mTimeZoneNames = timeZoneNames;
+
+        mIndexes = new HashMap<>(timeZoneIds.length * 2);
+        for (int i = 0; i < timeZoneIds.length; i++) {
+            mIndexes.put(timeZoneIds[i].toString(), i);
+        }
     }
 
     public CharSequence[] getTimeZoneIds() {
@@ -44,13 +53,12 @@ public final class TimeZones {
      * @return the timezone name with the {@code timeZoneId}; {@code null} if it does not exist
      */
     CharSequence getTimeZoneName(CharSequence timeZoneId) {
-        for (int i = 0; i < mTimeZoneIds.length; i++) {
-            if (TextUtils.equals(timeZoneId, mTimeZoneIds[i])) {
-                return mTimeZoneNames[i];
-            }
+        if (timeZoneId == null) {
+            return null;
         }
 
-        return null;
+        final Integer index = mIndexes.get(timeZoneId.toString());
+        return index == null ? null : mTimeZoneNames[index];
     }
 
     /**
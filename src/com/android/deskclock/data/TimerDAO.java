@@ -64,8 +64,26 @@ final class TimerDAO {
     /** Prefix for a key to a preference that signals the timer should be deleted on first reset. */
     private static final String DELETE_AFTER_USE = "delete_after_use_";
 
+    /** The keys of all preferences that store timer data, or their prefixes. */
+    private static final String[] KEYS = {
+            TIMER_IDS, NEXT_TIMER_ID, STATE, LENGTH, TOTAL_LENGTH, LAST_START_TIME,
+            LAST_WALL_CLOCK_TIME, REMAINING_TIME, LABEL, DELETE_AFTER_USE
+    };
+
     private TimerDAO() {}
 
+    /**
+     * @return {@code true} if the given preference {@code key} stores timer data
+     */
+    static boolean isTimerKey(String key) {
+        for (String timerKey : KEYS) {
+            if (key.startsWith(timerKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * @return the timers from permanent storage
      */
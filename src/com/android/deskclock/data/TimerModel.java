@@ -29,7 +29,6 @@ import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.net.Uri;
 import android.support.annotation.StringRes;
-import android.support.v4.app.NotificationManagerCompat;
 import android.util.ArraySet;
 
 import com.android.deskclock.AlarmAlertWakeLock;
@@ -49,6 +48,7 @@ import java.util.Set;
 import static android.app.AlarmManager.ELAPSED_REALTIME_WAKEUP;
 import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
 import static com.android.deskclock.data.Timer.State.EXPIRED;
+import static com.android.deskclock.data.Timer.State.MISSED;
 import static com.android.deskclock.data.Timer.State.RESET;
 
 /**
@@ -64,7 +64,8 @@ final class TimerModel {
 
     private final Context mContext;
 
-    private final SharedPreferences mPrefs;
+    /** Stores the timers; kept apart from the settings because it changes frequently. */
+    private final SharedPreferences mStatePrefs;
 
     /** The alarm manager system service that calls back when timers expire. */
     private final AlarmManager mAlarmManager;
@@ -78,8 +79,14 @@ final class TimerModel {
     /** The model from which ringtone data are fetched. */
     private final RingtoneModel mRingtoneModel;
 
-    /** Used to create and destroy system notifications related to timers. */
-    private final NotificationManagerCompat mNotificationManager;
+    /** Used to post and cancel system notifications related to timers. */
+    private final NotificationCoordinator mNotificationCoordinator;
+
+    /** Renders the notification for unexpired timers when the coordinator requires it. */
+    private final NotificationCoordinator.Renderer mUnexpiredRenderer = new UnexpiredRenderer();
+
+    /** Renders the notification for missed timers when the coordinator requires it. */
+    private final NotificationCoordinator.Renderer mMissedRenderer = new MissedRenderer();
 
     /** Update timer notification when locale changes. */
     @SuppressWarnings("FieldCanBeLocal")
@@ -112,8 +119,8 @@ final class TimerModel {
     /** The title of the ringtone to play for timers. */
     private String mTimerRingtoneTitle;
 
-    /** A mutable copy of the timers. */
-    private List<Timer> mTimers;
+    /** The timers, stored field by field; {@code null} until first accessed. */
+    private TimerStore mTimers;
 
     /** A mutable copy of the expired timers. */
     private List<Timer> mExpiredTimers;
@@ -128,14 +135,15 @@ final class TimerModel {
      */
     private Service mService;
 
-    TimerModel(Context context, SharedPreferences prefs, SettingsModel settingsModel,
-            RingtoneModel ringtoneModel, NotificationModel notificationModel) {
+    TimerModel(Context context, SharedPreferences prefs, SharedPreferences statePrefs,
+            SettingsModel settingsModel, RingtoneModel ringtoneModel,
+            NotificationModel notificationModel) {
         mContext = context;
-        mPrefs = prefs;
+        mStatePrefs = statePrefs;
         mSettingsModel = settingsModel;
         mRingtoneModel = ringtoneModel;
         mNotificationModel = notificationModel;
-        mNotificationManager = NotificationManagerCompat.from(context);
+        mNotificationCoordinator = notificationModel.getNotificationCoordinator();
 
         mAlarmManager = (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
 
@@ -165,7 +173,7 @@ final class TimerModel {
      * @return all defined timers in their creation order
      */
     List<Timer> getTimers() {
-        return Collections.unmodifiableList(getMutableTimers());
+        return getTimerStore().asList();
     }
 
     /**
@@ -187,13 +195,7 @@ final class TimerModel {
      * @return the timer with the given {@code timerId}
      */
     Timer getTimer(int timerId) {
-        for (Timer timer : getMutableTimers()) {
-            if (timer.getId() == timerId) {
-                return timer;
-            }
-        }
-
-        return null;
+        return getTimerStore().get(timerId);
     }
 
     /**
@@ -217,10 +219,10 @@ final class TimerModel {
                 label, deleteAfterUse);
 
         // Add the timer to permanent storage.
-        timer = TimerDAO.addTimer(mPrefs, timer);
+        timer = TimerDAO.addTimer(mStatePrefs, timer);
 
         // Add the timer to the cache.
-        getMutableTimers().add(0, timer);
+        getTimerStore().put(timer);
 
         // Update the timer notification.
         updateNotification();
@@ -470,10 +472,12 @@ final class TimerModel {
         mSettingsModel.setTimerVibrate(enabled);
     }
 
-    private List<Timer> getMutableTimers() {
+    private TimerStore getTimerStore() {
         if (mTimers == null) {
-            mTimers = TimerDAO.getTimers(mPrefs);
-            Collections.sort(mTimers, Timer.ID_COMPARATOR);
+            mTimers = new TimerStore();
+            for (Timer timer : TimerDAO.getTimers(mStatePrefs)) {
+                mTimers.put(timer);
+            }
         }
 
         return mTimers;
@@ -482,12 +486,7 @@ final class TimerModel {
     private List<Timer> getMutableExpiredTimers() {
         if (mExpiredTimers == null) {
             mExpiredTimers = new ArrayList<>();
-
-            for (Timer timer : getMutableTimers()) {
-                if (timer.isExpired()) {
-                    mExpiredTimers.add(timer);
-                }
-            }
+            getTimerStore().getTimersInState(EXPIRED, mExpiredTimers);
             Collections.sort(mExpiredTimers, Timer.EXPIRY_COMPARATOR);
         }
 
@@ -497,12 +496,7 @@ final class TimerModel {
     private List<Timer> getMutableMissedTimers() {
         if (mMissedTimers == null) {
             mMissedTimers = new ArrayList<>();
-
-            for (Timer timer : getMutableTimers()) {
-                if (timer.isMissed()) {
-                    mMissedTimers.add(timer);
-                }
-            }
+            getTimerStore().getTimersInState(MISSED, mMissedTimers);
             Collections.sort(mMissedTimers, Timer.EXPIRY_COMPARATOR);
         }
 
@@ -518,9 +512,8 @@ final class TimerModel {
      */
     private Timer doUpdateTimer(Timer timer) {
         // Retrieve the cached form of the timer.
-        final List<Timer> timers = getMutableTimers();
-        final int index = timers.indexOf(timer);
-        final Timer before = timers.get(index);
+        final TimerStore timers = getTimerStore();
+        final Timer before = timers.get(timer.getId());
 
         // If no change occurred, ignore this update.
         if (timer == before) {
@@ -528,10 +521,10 @@ final class TimerModel {
         }
 
         // Update the timer in permanent storage.
-        TimerDAO.updateTimer(mPrefs, timer);
+        TimerDAO.updateTimer(mStatePrefs, timer);
 
         // Update the timer in the cache.
-        final Timer oldTimer = timers.set(index, timer);
+        final Timer oldTimer = timers.put(timer);
 
         // Clear the cache of expired timers if the timer changed to/from expired.
         if (before.isExpired() || timer.isExpired()) {
@@ -564,18 +557,17 @@ final class TimerModel {
      */
     private void doRemoveTimer(Timer timer) {
         // Remove the timer from permanent storage.
-        TimerDAO.removeTimer(mPrefs, timer);
+        TimerDAO.removeTimer(mStatePrefs, timer);
 
         // Remove the timer from the cache.
-        final List<Timer> timers = getMutableTimers();
-        final int index = timers.indexOf(timer);
+        final Timer removed = getTimerStore().remove(timer.getId());
 
         // If the timer cannot be located there is nothing to remove.
-        if (index == -1) {
+        if (removed == null) {
             return;
         }
 
-        timer = timers.remove(index);
+        timer = removed;
 
         // Clear the cache of expired timers if a new expired timer was added.
         if (timer.isExpired()) {
@@ -661,16 +653,7 @@ final class TimerModel {
      */
     private void updateAlarmManager() {
         // Locate the next firing timer if one exists.
-        Timer nextExpiringTimer = null;
-        for (Timer timer : getMutableTimers()) {
-            if (timer.isRunning()) {
-                if (nextExpiringTimer == null) {
-                    nextExpiringTimer = timer;
-                } else if (timer.getExpirationTime() < nextExpiringTimer.getExpirationTime()) {
-                    nextExpiringTimer = timer;
-                }
-            }
-        }
+        final Timer nextExpiringTimer = getTimerStore().getNextExpiringTimer();
 
         // Build the intent that signals the timer expiration.
         final Intent intent = TimerService.createTimerExpiredIntent(mContext, nextExpiringTimer);
@@ -725,35 +708,28 @@ final class TimerModel {
      * when the application is not open.
      */
     void updateNotification() {
+        final int notificationId = mNotificationModel.getUnexpiredTimerNotificationId();
+
         // Notifications should be hidden if the app is open.
         if (mNotificationModel.isApplicationInForeground()) {
-            mNotificationManager.cancel(mNotificationModel.getUnexpiredTimerNotificationId());
+            mNotificationBuilder.scheduleRefresh(mContext, null);
+            mNotificationCoordinator.cancel(notificationId);
             return;
         }
 
-        // Filter the timers to just include unexpired ones.
-        final List<Timer> unexpired = new ArrayList<>();
-        for (Timer timer : getMutableTimers()) {
-            if (timer.isRunning() || timer.isPaused()) {
-                unexpired.add(timer);
-            }
-        }
-
         // If no unexpired timers exist, cancel the notification.
-        if (unexpired.isEmpty()) {
-            mNotificationManager.cancel(mNotificationModel.getUnexpiredTimerNotificationId());
+        if (!hasUnexpiredTimers()) {
+            mNotificationBuilder.scheduleRefresh(mContext, null);
+            mNotificationCoordinator.cancel(notificationId);
             return;
         }
 
-        // Sort the unexpired timers to locate the next one scheduled to expire.
-        Collections.sort(unexpired, Timer.EXPIRY_COMPARATOR);
-
-        // Otherwise build and post a notification reflecting the latest unexpired timers.
-        final Notification notification =
-                mNotificationBuilder.build(mContext, mNotificationModel, unexpired);
-        final int notificationId = mNotificationModel.getUnexpiredTimerNotificationId();
-        mNotificationManager.notify(notificationId, notification);
+        // The refresh is scheduled here since unchanged notifications are never rebuilt.
+        mNotificationBuilder.scheduleRefresh(mContext, getTimerStore().getNextExpiringTimer());
 
+        // Otherwise schedule a notification reflecting the latest unexpired timers.
+        mNotificationCoordinator.update(notificationId,
+                mNotificationModel.getTimerNotificationGroupKey(), mUnexpiredRenderer);
     }
 
     /**
@@ -761,23 +737,41 @@ final class TimerModel {
      * the application is not open.
      */
     void updateMissedNotification() {
+        final int notificationId = mNotificationModel.getMissedTimerNotificationId();
+
         // Notifications should be hidden if the app is open.
         if (mNotificationModel.isApplicationInForeground()) {
-            mNotificationManager.cancel(mNotificationModel.getMissedTimerNotificationId());
+            mNotificationCoordinator.cancel(notificationId);
             return;
         }
 
-        final List<Timer> missed = getMissedTimers();
-
-        if (missed.isEmpty()) {
-            mNotificationManager.cancel(mNotificationModel.getMissedTimerNotificationId());
+        if (getMissedTimers().isEmpty()) {
+            mNotificationCoordinator.cancel(notificationId);
             return;
         }
 
-        final Notification notification = mNotificationBuilder.buildMissed(mContext,
-                mNotificationModel, missed);
-        final int notificationId = mNotificationModel.getMissedTimerNotificationId();
-        mNotificationManager.notify(notificationId, notification);
+        mNotificationCoordinator.update(notificationId,
+                mNotificationModel.getTimerNotificationGroupKey(), mMissedRenderer);
+    }
+
+    /**
+     * @return {@code true} iff at least one timer is running or paused
+     */
+    private boolean hasUnexpiredTimers() {
+        return getTimerStore().hasUnexpiredTimers();
+    }
+
+    /**
+     * @return the running and paused timers ordered by their expected expiration
+     */
+    private List<Timer> getUnexpiredTimers() {
+        // Filter the timers to just include unexpired ones.
+        final List<Timer> unexpired = new ArrayList<>();
+        getTimerStore().getUnexpiredTimers(unexpired);
+
+        // Sort the unexpired timers to locate the next one scheduled to expire.
+        Collections.sort(unexpired, Timer.EXPIRY_COMPARATOR);
+        return unexpired;
     }
 
     /**
@@ -812,12 +806,58 @@ final class TimerModel {
         @Override
         public void onReceive(Context context, Intent intent) {
             mTimerRingtoneTitle = null;
+            mNotificationCoordinator.invalidate();
             updateNotification();
             updateMissedNotification();
             updateHeadsUpNotification();
         }
     }
 
+    /**
+     * Renders the notification for running and paused timers from the latest timer data.
+     */
+    private final class UnexpiredRenderer implements NotificationCoordinator.Renderer {
+
+        /** The unexpired timers captured when the fingerprint was last computed. */
+        private List<Timer> mUnexpired;
+
+        @Override
+        public long getFingerprint() {
+            mUnexpired = getUnexpiredTimers();
+            return mNotificationBuilder.getFingerprint(mUnexpired);
+        }
+
+        @Override
+        public Notification render() {
+            final List<Timer> unexpired = mUnexpired;
+            mUnexpired = null;
+            if (unexpired == null || unexpired.isEmpty()
+                    || mNotificationModel.isApplicationInForeground()) {
+                return null;
+            }
+            return mNotificationBuilder.build(mContext, mNotificationModel, unexpired);
+        }
+    }
+
+    /**
+     * Renders the notification for missed timers from the latest timer data.
+     */
+    private final class MissedRenderer implements NotificationCoordinator.Renderer {
+        @Override
+        public long getFingerprint() {
+            return mNotificationBuilder.getFingerprint(getMissedTimers());
+        }
+
+        @Override
+        public Notification render() {
+            final List<Timer> missed = getMissedTimers();
+            if (missed.isEmpty() || mNotificationModel.isApplicationInForeground()) {
+                return null;
+            }
+            return mNotificationBuilder.buildMissed(mContext, mNotificationModel, missed);
+        }
+    }
+
     /**
      * This receiver is notified when shared preferences change. Cached information built on
      * preferences must be cleared.
@@ -40,6 +40,7 @@ import com.android.deskclock.timer.TimerService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import static android.support.v4.app.NotificationCompat.Action;
 import static android.support.v4.app.NotificationCompat.Builder;
@@ -183,31 +184,70 @@ class TimerNotificationBuilder {
             }
 
             notification.setContentTitle(stateText).setContentText(contentTextPreN);
+        }
 
-            final AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            final Intent updateNotification = TimerService.createUpdateNotificationIntent(context);
-            final long remainingTime = timer.getRemainingTime();
-            if (timer.isRunning() && remainingTime > MINUTE_IN_MILLIS) {
-                // Schedule a callback to update the time-sensitive information of the running timer
-                final PendingIntent pi =
-                        PendingIntent.getService(context, REQUEST_CODE_UPCOMING, updateNotification,
-                                PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_UPDATE_CURRENT);
-
-                final long nextMinuteChange = remainingTime % MINUTE_IN_MILLIS;
-                final long triggerTime = SystemClock.elapsedRealtime() + nextMinuteChange;
-                TimerModel.schedulePendingIntent(am, triggerTime, pi);
-            } else {
-                // Cancel the update notification callback.
-                final PendingIntent pi = PendingIntent.getService(context, 0, updateNotification,
-                        PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_NO_CREATE);
-                if (pi != null) {
-                    am.cancel(pi);
-                    pi.cancel();
-                }
+        return notification.build();
+    }
+
+    /**
+     * Prior to N the remaining time of the next timer to expire is rendered as text that changes
+     * each minute. This schedules a refresh of the notification for the next such change, or
+     * cancels the refresh if no running timer is displayed. Called on every notification update,
+     * whether or not the notification content changed and was rebuilt.
+     *
+     * @param timer the running timer displayed by the notification; {@code null} if none
+     */
+    void scheduleRefresh(Context context, Timer timer) {
+        if (Utils.isNOrLater()) {
+            return;
+        }
+
+        final AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        final Intent updateNotification = TimerService.createUpdateNotificationIntent(context);
+        final long remainingTime = timer == null ? 0 : timer.getRemainingTime();
+        if (timer != null && timer.isRunning() && remainingTime > MINUTE_IN_MILLIS) {
+            // Schedule a callback to update the time-sensitive information of the running timer
+            final PendingIntent pi =
+                    PendingIntent.getService(context, REQUEST_CODE_UPCOMING, updateNotification,
+                            PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_UPDATE_CURRENT);
+
+            final long nextMinuteChange = remainingTime % MINUTE_IN_MILLIS;
+            final long triggerTime = SystemClock.elapsedRealtime() + nextMinuteChange;
+            TimerModel.schedulePendingIntent(am, triggerTime, pi);
+        } else {
+            // Cancel the update notification callback.
+            final PendingIntent pi = PendingIntent.getService(context, 0, updateNotification,
+                    PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_NO_CREATE);
+            if (pi != null) {
+                am.cancel(pi);
+                pi.cancel();
             }
         }
+    }
 
-        return notification.build();
+    /**
+     * @param timers the timers displayed by a notification, in display order
+     * @return a value that changes whenever the visible content of the notification changes
+     */
+    long getFingerprint(List<Timer> timers) {
+        final boolean preN = !Utils.isNOrLater();
+        long fingerprint = timers.size();
+        for (Timer timer : timers) {
+            fingerprint = 31 * fingerprint + timer.getId();
+            fingerprint = 31 * fingerprint + timer.getState().ordinal();
+            fingerprint = 31 * fingerprint + timer.getLastStartTime();
+            fingerprint = 31 * fingerprint + timer.getLastRemainingTime();
+            fingerprint = 31 * fingerprint + Objects.hashCode(timer.getLabel());
+
+            // Prior to N the remaining time is rendered as text that changes each minute. Round up
+            // so that a refresh scheduled for an exact minute boundary changes the fingerprint.
+            if (preN && timer.isRunning()) {
+                final long remainingTime = timer.getRemainingTime();
+                fingerprint = 31 * fingerprint
+                        + (remainingTime + MINUTE_IN_MILLIS - 1) / MINUTE_IN_MILLIS;
+            }
+        }
+        return fingerprint;
     }
 
     Notification buildHeadsUp(Context context, List<Timer> expired) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.data;
+
+import android.util.SparseArray;
+
+import com.android.deskclock.data.Timer.State;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.android.deskclock.data.Timer.State.PAUSED;
+import static com.android.deskclock.data.Timer.State.RUNNING;
+
+/**
+ * Stores all timers keyed by id. Lookups by id are binary searches rather than scans of a list,
+ * and queries that visit all timers, e.g. for the next timer to expire, iterate the store without
+ * allocating. The immutable {@link Timer} produced by each state transition is stored as is;
+ * transitions are computed by callers throughout the app on {@link Timer} values, so keeping the
+ * fields in primitive arrays here would not avoid that allocation.
+ *
+ * <p>Instances are not thread-safe; {@link TimerModel} confines all access to the main thread.</p>
+ */
+final class TimerStore {
+
+    /** Maps timer id to timer; the keys are kept in ascending order. */
+    private final SparseArray<Timer> mTimers = new SparseArray<>();
+
+    /** Presents the timers in descending id order, i.e. the most recently created first. */
+    private final List<Timer> mTimerList = new TimerList();
+
+    /**
+     * @return the number of stored timers
+     */
+    int size() {
+        return mTimers.size();
+    }
+
+    /**
+     * @return an unmodifiable view of all timers, the most recently created first; the view
+     *      reflects later changes to this store
+     */
+    List<Timer> asList() {
+        return mTimerList;
+    }
+
+    /**
+     * @return the timer with the given {@code id}; {@code null} if no such timer is stored
+     */
+    Timer get(int id) {
+        return mTimers.get(id);
+    }
+
+    /**
+     * @return {@code true} if at least one stored timer is in the given {@code state}
+     */
+    boolean hasTimerInState(State state) {
+        for (int i = 0; i < mTimers.size(); i++) {
+            if (mTimers.valueAt(i).getState() == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the running timer that will expire first; {@code null} if no timer is running
+     */
+    Timer getNextExpiringTimer() {
+        Timer next = null;
+        for (int i = 0; i < mTimers.size(); i++) {
+            final Timer timer = mTimers.valueAt(i);
+            if (timer.isRunning()
+                    && (next == null || timer.getExpirationTime() < next.getExpirationTime())) {
+                next = timer;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @param state the state of the timers to return
+     * @param result receives the timers in the given {@code state} in descending id order
+     */
+    void getTimersInState(State state, List<Timer> result) {
+        for (int i = mTimers.size() - 1; i >= 0; i--) {
+            final Timer timer = mTimers.valueAt(i);
+            if (timer.getState() == state) {
+                result.add(timer);
+            }
+        }
+    }
+
+    /**
+     * @param result receives the running and paused timers in descending id order
+     */
+    void getUnexpiredTimers(List<Timer> result) {
+        for (int i = mTimers.size() - 1; i >= 0; i--) {
+            final Timer timer = mTimers.valueAt(i);
+            if (timer.isRunning() || timer.isPaused()) {
+                result.add(timer);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if at least one stored timer is running or paused
+     */
+    boolean hasUnexpiredTimers() {
+        return hasTimerInState(RUNNING) || hasTimerInState(PAUSED);
+    }
+
+    /**
+     * Stores the given {@code timer}, replacing any timer with the same id.
+     *
+     * @return the timer previously stored with the same id; {@code null} if none
+     */
+    Timer put(Timer timer) {
+        final Timer before = mTimers.get(timer.getId());
+        mTimers.put(timer.getId(), timer);
+        return before;
+    }
+
+    /**
+     * @return the removed timer; {@code null} if no timer with the given {@code id} was stored
+     */
+    Timer remove(int id) {
+        final Timer removed = mTimers.get(id);
+        if (removed != null) {
+            mTimers.remove(id);
+        }
+        return removed;
+    }
+
+    /**
+     * An unmodifiable view of the stored timers in descending id order.
+     */
+    private final class TimerList extends AbstractList<Timer> implements RandomAccess {
+        @Override
+        public Timer get(int index) {
+            final int size = mTimers.size();
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + " size " + size);
+            }
+            return mTimers.valueAt(size - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return mTimers.size();
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Timer)) {
+                return -1;
+            }
+            final int i = mTimers.indexOfKey(((Timer) o).getId());
+            return i < 0 ? -1 : mTimers.size() - 1 - i;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) != -1;
+        }
+    }
+}
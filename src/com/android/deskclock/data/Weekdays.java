@@ -18,16 +18,14 @@ package com.android.deskclock.data;
 
 import android.content.Context;
 import android.support.annotation.VisibleForTesting;
-import android.util.ArrayMap;
 
 import com.android.deskclock.R;
 
 import java.text.DateFormatSymbols;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 import static java.util.Calendar.DAY_OF_WEEK;
 import static java.util.Calendar.FRIDAY;
@@ -68,25 +66,83 @@ public final class Weekdays {
     /** All valid bits set. */
     private static final int ALL_DAYS = 0x7F;
 
+    /** The number of distinct bitsets; one for each subset of the seven weekdays. */
+    private static final int BITSET_COUNT = ALL_DAYS + 1;
+
+    /** Maps calendar weekdays to the bit masks that represent them in this class. */
+    private static final int[] CALENDAR_DAY_TO_BIT = new int[SATURDAY + 1];
+    static {
+        CALENDAR_DAY_TO_BIT[MONDAY]    = 0x01;
+        CALENDAR_DAY_TO_BIT[TUESDAY]   = 0x02;
+        CALENDAR_DAY_TO_BIT[WEDNESDAY] = 0x04;
+        CALENDAR_DAY_TO_BIT[THURSDAY]  = 0x08;
+        CALENDAR_DAY_TO_BIT[FRIDAY]    = 0x10;
+        CALENDAR_DAY_TO_BIT[SATURDAY]  = 0x20;
+        CALENDAR_DAY_TO_BIT[SUNDAY]    = 0x40;
+    }
+
+    /**
+     * Indexed by {@code bits * 7 + calendarDay - SUNDAY}; holds the number of days from that
+     * calendar day to the next enabled weekday in those bits (0 to 6), or -1 if none are enabled.
+     */
+    private static final byte[] NEXT_DAY_DISTANCES = new byte[BITSET_COUNT * 7];
+
+    /**
+     * Indexed by {@code bits * 7 + calendarDay - SUNDAY}; holds the number of days from that
+     * calendar day to the previous enabled weekday in those bits (1 to 7), or -1 if none are
+     * enabled.
+     */
+    private static final byte[] PREVIOUS_DAY_DISTANCES = new byte[BITSET_COUNT * 7];
+
+    static {
+        for (int bits = 0; bits < BITSET_COUNT; bits++) {
+            for (int calendarDay = SUNDAY; calendarDay <= SATURDAY; calendarDay++) {
+                final int index = bits * 7 + calendarDay - SUNDAY;
+                NEXT_DAY_DISTANCES[index] = -1;
+                PREVIOUS_DAY_DISTANCES[index] = -1;
+
+                for (int count = 0; count < 7; count++) {
+                    final int day = SUNDAY + (calendarDay - SUNDAY + count) % 7;
+                    if ((bits & CALENDAR_DAY_TO_BIT[day]) != 0) {
+                        NEXT_DAY_DISTANCES[index] = (byte) count;
+                        break;
+                    }
+                }
+
+                for (int count = 1; count <= 7; count++) {
+                    final int day = SUNDAY + (calendarDay - SUNDAY + 7 - count) % 7;
+                    if ((bits & CALENDAR_DAY_TO_BIT[day]) != 0) {
+                        PREVIOUS_DAY_DISTANCES[index] = (byte) count;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Instances are immutable, so a single instance is shared for each distinct bitset. */
+    private static final Weekdays[] INSTANCES = new Weekdays[BITSET_COUNT];
+    static {
+        for (int bits = 0; bits < BITSET_COUNT; bits++) {
+            INSTANCES[bits] = new Weekdays(bits);
+        }
+    }
+
     /** An instance with all weekdays in the weekly repeat cycle. */
     public static final Weekdays ALL = Weekdays.fromBits(ALL_DAYS);
 
     /** An instance with no weekdays in the weekly repeat cycle. */
     public static final Weekdays NONE = Weekdays.fromBits(0);
 
-    /** Maps calendar weekdays to the bit masks that represent them in this class. */
-    private static final Map<Integer, Integer> sCalendarDayToBit;
-    static {
-        final Map<Integer, Integer> map = new ArrayMap<>(7);
-        map.put(MONDAY,    0x01);
-        map.put(TUESDAY,   0x02);
-        map.put(WEDNESDAY, 0x04);
-        map.put(THURSDAY,  0x08);
-        map.put(FRIDAY,    0x10);
-        map.put(SATURDAY,  0x20);
-        map.put(SUNDAY,    0x40);
-        sCalendarDayToBit = Collections.unmodifiableMap(map);
-    }
+    /** The locale in which the strings held by {@link #sStrings} were rendered. */
+    private static Locale sStringsLocale;
+
+    /**
+     * Indexed by {@link #getStringIndex}; caches the rendering of each bitset in each order, with
+     * and without forced long names. Rendering is comparatively expensive and is repeated for each
+     * alarm row bind, so results are retained until the locale changes.
+     */
+    private static final String[] sStrings = new String[BITSET_COUNT * Order.values().length * 2];
 
     /** An encoded form of a weekly repeat schedule. */
     private final int mBits;
@@ -101,7 +157,7 @@ public final class Weekdays {
      * @return a Weekdays instance representing the same repeat schedule as the {@code bits}
      */
     public static Weekdays fromBits(int bits) {
-        return new Weekdays(bits);
+        return INSTANCES[ALL_DAYS & bits];
     }
 
     /**
@@ -120,12 +176,11 @@ public final class Weekdays {
     public static Weekdays fromCalendarDays(int... calendarDays) {
         int bits = 0;
         for (int calendarDay : calendarDays) {
-            final Integer bit = sCalendarDayToBit.get(calendarDay);
-            if (bit != null) {
-                bits = bits | bit;
+            if (isValidCalendarDay(calendarDay)) {
+                bits = bits | CALENDAR_DAY_TO_BIT[calendarDay];
             }
         }
-        return new Weekdays(bits);
+        return fromBits(bits);
     }
 
     /**
@@ -143,11 +198,11 @@ public final class Weekdays {
      * @return a WeekDays instance with the {@code calendarDay} mutated
      */
     public Weekdays setBit(int calendarDay, boolean on) {
-        final Integer bit = sCalendarDayToBit.get(calendarDay);
-        if (bit == null) {
+        if (!isValidCalendarDay(calendarDay)) {
             return this;
         }
-        return new Weekdays(on ? (mBits | bit) : (mBits & ~bit));
+        final int bit = CALENDAR_DAY_TO_BIT[calendarDay];
+        return fromBits(on ? (mBits | bit) : (mBits & ~bit));
     }
 
     /**
@@ -164,11 +219,10 @@ public final class Weekdays {
      * @return {@code true} if the given {@code calendarDay}
      */
     public boolean isBitOn(int calendarDay) {
-        final Integer bit = sCalendarDayToBit.get(calendarDay);
-        if (bit == null) {
+        if (!isValidCalendarDay(calendarDay)) {
             throw new IllegalArgumentException(calendarDay + " is not a valid weekday");
         }
-        return (mBits & bit) > 0;
+        return (mBits & CALENDAR_DAY_TO_BIT[calendarDay]) != 0;
     }
 
     /**
@@ -190,18 +244,7 @@ public final class Weekdays {
      *      which is always between 1 and 7 inclusive; {@code -1} if no weekdays are enabled
      */
     public int getDistanceToPreviousDay(Calendar time) {
-        int calendarDay = time.get(DAY_OF_WEEK);
-        for (int count = 1; count <= 7; count++) {
-            calendarDay--;
-            if (calendarDay < Calendar.SUNDAY) {
-                calendarDay = Calendar.SATURDAY;
-            }
-            if (isBitOn(calendarDay)) {
-                return count;
-            }
-        }
-
-        return -1;
+        return PREVIOUS_DAY_DISTANCES[mBits * 7 + time.get(DAY_OF_WEEK) - SUNDAY];
     }
 
     /**
@@ -213,19 +256,7 @@ public final class Weekdays {
      *      is always between 0 and 6 inclusive; {@code -1} if no weekdays are enabled
      */
     public int getDistanceToNextDay(Calendar time) {
-        int calendarDay = time.get(DAY_OF_WEEK);
-        for (int count = 0; count < 7; count++) {
-            if (isBitOn(calendarDay)) {
-                return count;
-            }
-
-            calendarDay++;
-            if (calendarDay > Calendar.SATURDAY) {
-                calendarDay = Calendar.SUNDAY;
-            }
-        }
-
-        return -1;
+        return NEXT_DAY_DISTANCES[mBits * 7 + time.get(DAY_OF_WEEK) - SUNDAY];
     }
 
     @Override
@@ -292,13 +323,7 @@ public final class Weekdays {
 
     @VisibleForTesting
     int getCount() {
-        int count = 0;
-        for (int calendarDay = SUNDAY; calendarDay <= SATURDAY; calendarDay++) {
-            if (isBitOn(calendarDay)) {
-                count++;
-            }
-        }
-        return count;
+        return Integer.bitCount(mBits);
     }
 
     /**
@@ -312,6 +337,43 @@ public final class Weekdays {
             return "";
         }
 
+        final Locale locale = Locale.getDefault();
+        final int index = getStringIndex(order, forceLongNames);
+        synchronized (sStrings) {
+            if (locale.equals(sStringsLocale)) {
+                final String string = sStrings[index];
+                if (string != null) {
+                    return string;
+                }
+            } else {
+                Arrays.fill(sStrings, null);
+                sStringsLocale = locale;
+            }
+        }
+
+        final String string = render(context, order, forceLongNames);
+        synchronized (sStrings) {
+            if (locale.equals(sStringsLocale)) {
+                sStrings[index] = string;
+            }
+        }
+        return string;
+    }
+
+    /**
+     * @return the index within {@link #sStrings} of the rendering of this bitset
+     */
+    private int getStringIndex(Order order, boolean forceLongNames) {
+        return (order.ordinal() * BITSET_COUNT + mBits) * 2 + (forceLongNames ? 1 : 0);
+    }
+
+    /**
+     * @param context for accessing resources
+     * @param order the order in which to present the weekdays
+     * @param forceLongNames if {@code true} the un-abbreviated weekdays are used
+     * @return the enabled weekdays in the given {@code order}, rendered in the current locale
+     */
+    private String render(Context context, Order order, boolean forceLongNames) {
         if (mBits == ALL_DAYS) {
             return context.getString(R.string.every_day);
         }
@@ -333,4 +395,8 @@ public final class Weekdays {
         }
         return builder.toString();
     }
-}
\ No newline at end of file
+
+    private static boolean isValidCalendarDay(int calendarDay) {
+        return calendarDay >= SUNDAY && calendarDay <= SATURDAY;
+    }
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.data;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.support.v4.util.ArrayMap;
+
+import com.android.deskclock.LogUtils;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Wraps a {@link SharedPreferences} file so that edits applied in quick succession, possibly by
+ * several DAOs, are written to the underlying file as a single commit. Each applied edit is
+ * immediately visible to readers of this object and immediately reported to its listeners; only
+ * the serialization of the file is deferred by up to {@link #WRITE_DELAY_MILLIS}. Unwritten edits
+ * are not known to the framework, which only waits for writes it has been handed before stopping
+ * the process; so entry points that must not lose recent edits if the process dies (e.g. before
+ * returning control to the system) call {@link #flush()}. {@link Editor#commit()} writes all
+ * unwritten edits synchronously.
+ *
+ * <p>Changes written directly to the underlying file (e.g. by preference screens) are reported to
+ * listeners of this object as well.</p>
+ */
+public final class WriteBehindPreferences implements SharedPreferences {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("WriteBehindPrefs");
+
+    /** Edits applied within this window of the first unwritten edit are written together. */
+    private static final long WRITE_DELAY_MILLIS = 500;
+
+    /** Marks a key whose removal has not yet been written. */
+    private static final Object REMOVED = new Object();
+
+    /** The file to which edits are eventually written. */
+    private final SharedPreferences mPrefs;
+
+    /** Handler on the main thread used to write edits and notify listeners. */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /** Writes all unwritten edits. */
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /** Reports changes made directly to the underlying file to the listeners of this object. */
+    private final OnSharedPreferenceChangeListener mPrefsListener =
+            new OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                    onUnderlyingPreferenceChanged(key);
+                }
+            };
+
+    /** Maps key to its unwritten value, or {@link #REMOVED} if its removal is unwritten. */
+    private final Map<String, Object> mPending = new HashMap<>();
+
+    /** The keys of {@link #mPending} whose visible values changed since the last write. */
+    private final Set<String> mChangedKeys = new HashSet<>();
+
+    /**
+     * Maps key to the value written by this object whose change notification from the underlying
+     * file has yet to arrive; {@code null} values stand for removals. Those notifications repeat
+     * ones already delivered when the edit was applied, so they are not delivered again.
+     */
+    private final Map<String, Object> mUnreported = new HashMap<>();
+
+    /** Registered listeners; held weakly, like those of the framework implementation. */
+    private final WeakHashMap<OnSharedPreferenceChangeListener, Object> mListeners =
+            new WeakHashMap<>();
+
+    /** {@code true} if all values must be cleared from the underlying file before writing. */
+    private boolean mPendingClear;
+
+    /** {@code true} while {@link #mFlushRunnable} is scheduled. */
+    private boolean mFlushScheduled;
+
+    /** The number of edits applied to this object; used for diagnostics. */
+    private int mEditCount;
+
+    /** The number of commits made to the underlying file; used for diagnostics. */
+    private int mWriteCount;
+
+    public WriteBehindPreferences(SharedPreferences prefs) {
+        mPrefs = prefs;
+        mPrefs.registerOnSharedPreferenceChangeListener(mPrefsListener);
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        synchronized (this) {
+            final Map<String, Object> all = new HashMap<>();
+            if (!mPendingClear) {
+                all.putAll(mPrefs.getAll());
+            }
+            for (Map.Entry<String, Object> entry : mPending.entrySet()) {
+                if (entry.getValue() == REMOVED) {
+                    all.remove(entry.getKey());
+                } else {
+                    all.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return all;
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getString(String key, @Nullable String defValue) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                final Object value = mPending.get(key);
+                return value == REMOVED ? defValue : (String) value;
+            }
+            return mPendingClear ? defValue : mPrefs.getString(key, defValue);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                // Copy the unwritten set so that callers cannot modify it before it is written.
+                final Object value = mPending.get(key);
+                return value == REMOVED ? defValues : new HashSet<>((Set<String>) value);
+            }
+            return mPendingClear ? defValues : mPrefs.getStringSet(key, defValues);
+        }
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                final Object value = mPending.get(key);
+                return value == REMOVED ? defValue : (Integer) value;
+            }
+            return mPendingClear ? defValue : mPrefs.getInt(key, defValue);
+        }
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                final Object value = mPending.get(key);
+                return value == REMOVED ? defValue : (Long) value;
+            }
+            return mPendingClear ? defValue : mPrefs.getLong(key, defValue);
+        }
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                final Object value = mPending.get(key);
+                return value == REMOVED ? defValue : (Float) value;
+            }
+            return mPendingClear ? defValue : mPrefs.getFloat(key, defValue);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                final Object value = mPending.get(key);
+                return value == REMOVED ? defValue : (Boolean) value;
+            }
+            return mPendingClear ? defValue : mPrefs.getBoolean(key, defValue);
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        synchronized (this) {
+            if (mPending.containsKey(key)) {
+                return mPending.get(key) != REMOVED;
+            }
+            return !mPendingClear && mPrefs.contains(key);
+        }
+    }
+
+    @Override
+    public Editor edit() {
+        return new WriteBehindEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener l) {
+        synchronized (mListeners) {
+            mListeners.put(l, this);
+        }
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener l) {
+        synchronized (mListeners) {
+            mListeners.remove(l);
+        }
+    }
+
+    /**
+     * Writes all unwritten edits to the underlying file as a single commit. The file itself is
+     * written asynchronously by the framework, which guarantees the write completes before the
+     * process is allowed to stop.
+     */
+    public void flush() {
+        write(false /* synchronous */);
+    }
+
+    /**
+     * Writes all unwritten edits to the underlying file as a single commit.
+     *
+     * @param synchronous {@code true} to write the file before returning
+     * @return {@code false} if a synchronous write failed
+     */
+    private boolean write(boolean synchronous) {
+        synchronized (this) {
+            mHandler.removeCallbacks(mFlushRunnable);
+            mFlushScheduled = false;
+            if (!mPendingClear && mPending.isEmpty()) {
+                return true;
+            }
+
+            final Editor editor = mPrefs.edit();
+            if (mPendingClear) {
+                editor.clear();
+            }
+            for (Map.Entry<String, Object> entry : mPending.entrySet()) {
+                final String key = entry.getKey();
+                final Object value = entry.getValue();
+                final Object written = value == REMOVED ? null : value;
+                if (mChangedKeys.contains(key)) {
+                    mUnreported.put(key, written);
+                }
+                putValue(editor, key, written);
+            }
+
+            mPending.clear();
+            mChangedKeys.clear();
+            mPendingClear = false;
+            mWriteCount++;
+            if (synchronous) {
+                return editor.commit();
+            }
+            editor.apply();
+            return true;
+        }
+    }
+
+    /**
+     * Writes the number of edits applied and commits made to {@code writer}.
+     */
+    public synchronized void dump(PrintWriter writer) {
+        writer.printf("edits=%d writes=%d saved=%d pending=%d%n", mEditCount, mWriteCount,
+                getSavedWriteCount(), mPending.size());
+    }
+
+    /**
+     * @return the number of commits avoided by coalescing edits
+     */
+    public synchronized int getSavedWriteCount() {
+        return Math.max(0, mEditCount - mWriteCount);
+    }
+
+    /**
+     * Copies the value of each key accepted by {@code filter} from the {@code source} file to this
+     * one and removes it from the source. Used when preferences move from one file to another.
+     *
+     * @return the number of values moved
+     */
+    public int moveFrom(SharedPreferences source, KeyFilter filter) {
+        final Editor sourceEditor = source.edit();
+        final Editor editor = edit();
+        int count = 0;
+        for (Map.Entry<String, ?> entry : source.getAll().entrySet()) {
+            final String key = entry.getKey();
+            if (filter.accept(key)) {
+                putValue(editor, key, entry.getValue());
+                sourceEditor.remove(key);
+                count++;
+            }
+        }
+        if (count > 0) {
+            editor.apply();
+            sourceEditor.apply();
+            flush();
+        }
+        return count;
+    }
+
+    /**
+     * Selects the keys moved by {@link #moveFrom}.
+     */
+    public interface KeyFilter {
+        /**
+         * @return {@code true} if the value stored at {@code key} should be moved
+         */
+        boolean accept(String key);
+    }
+
+    /**
+     * Applies the edits made through an editor and schedules them to be written.
+     *
+     * @return the keys whose values changed
+     */
+    private synchronized List<String> applyEdits(boolean clear, Map<String, Object> edits) {
+        final List<String> changed = new ArrayList<>(edits.size());
+        if (clear) {
+            changed.addAll(getAll().keySet());
+            mPending.clear();
+            mChangedKeys.clear();
+            mPendingClear = true;
+        }
+
+        for (Map.Entry<String, Object> entry : edits.entrySet()) {
+            final String key = entry.getKey();
+            final Object value = entry.getValue();
+            if (!isStored(this, key, value == REMOVED ? null : value)) {
+                if (!changed.contains(key)) {
+                    changed.add(key);
+                }
+                mChangedKeys.add(key);
+            }
+            mPending.put(key, value);
+        }
+
+        mEditCount++;
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mHandler.postDelayed(mFlushRunnable, WRITE_DELAY_MILLIS);
+        }
+        return changed;
+    }
+
+    private void onUnderlyingPreferenceChanged(String key) {
+        synchronized (this) {
+            if (mUnreported.containsKey(key)) {
+                final Object written = mUnreported.remove(key);
+                if (isStored(mPrefs, key, written)) {
+                    return;
+                }
+            }
+            if (mPending.containsKey(key)) {
+                // An unwritten edit of this object will overwrite the change.
+                return;
+            }
+        }
+        notifyListeners(key);
+    }
+
+    /**
+     * Reports a change of the value stored at {@code key} on the main thread, as the framework
+     * implementation does.
+     */
+    private void notifyListeners(final String key) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    notifyListeners(key);
+                }
+            });
+            return;
+        }
+
+        final Set<OnSharedPreferenceChangeListener> listeners;
+        synchronized (mListeners) {
+            listeners = new HashSet<>(mListeners.keySet());
+        }
+        for (OnSharedPreferenceChangeListener listener : listeners) {
+            listener.onSharedPreferenceChanged(this, key);
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code prefs} stores {@code value} at {@code key}, or stores nothing
+     *      at {@code key} and {@code value} is {@code null}
+     */
+    private static boolean isStored(SharedPreferences prefs, String key, Object value) {
+        if (!prefs.contains(key)) {
+            return value == null;
+        }
+        try {
+            if (value instanceof String) {
+                return value.equals(prefs.getString(key, null));
+            } else if (value instanceof Set) {
+                return value.equals(prefs.getStringSet(key, null));
+            } else if (value instanceof Integer) {
+                return value.equals(prefs.getInt(key, 0));
+            } else if (value instanceof Long) {
+                return value.equals(prefs.getLong(key, 0));
+            } else if (value instanceof Float) {
+                return value.equals(prefs.getFloat(key, 0));
+            } else if (value instanceof Boolean) {
+                return value.equals(prefs.getBoolean(key, false));
+            }
+        } catch (ClassCastException e) {
+            // The stored value has a different type.
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putValue(Editor editor, String key, Object value) {
+        if (value == null) {
+            editor.remove(key);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Set) {
+            editor.putStringSet(key, (Set<String>) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else {
+            LOGGER.w("Unable to write value of key %s", key);
+        }
+    }
+
+    /**
+     * Collects edits and applies them to the enclosing preferences atomically.
+     */
+    private final class WriteBehindEditor implements Editor {
+
+        private final Map<String, Object> mEdits = new ArrayMap<>();
+
+        private boolean mClear;
+
+        @Override
+        public Editor putString(String key, @Nullable String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putStringSet(String key, @Nullable Set<String> values) {
+            return put(key, values == null ? null : new HashSet<>(values));
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor remove(String key) {
+            return put(key, null);
+        }
+
+        @Override
+        public Editor clear() {
+            synchronized (this) {
+                mClear = true;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            apply();
+            return write(true /* synchronous */);
+        }
+
+        @Override
+        public void apply() {
+            final boolean clear;
+            final Map<String, Object> edits;
+            synchronized (this) {
+                clear = mClear;
+                edits = new ArrayMap<>(mEdits.size());
+                edits.putAll(mEdits);
+                mClear = false;
+                mEdits.clear();
+            }
+
+            for (String key : applyEdits(clear, edits)) {
+                notifyListeners(key);
+            }
+        }
+
+        private synchronized Editor put(String key, Object value) {
+            // As in the framework implementation, a null value is equivalent to a removal.
+            mEdits.put(key, value == null ? REMOVED : value);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.events;
+
+import android.support.annotation.StringRes;
+
+/**
+ * A reusable, fixed-capacity batch of events drained from an {@link EventBuffer}. Events are held
+ * in parallel primitive arrays so that delivering a batch to {@link EventSink}s allocates nothing.
+ * Sinks must not retain a reference to the batch; its contents are replaced by the next drain.
+ */
+public final class EventBatch {
+
+    private final int[] mCategories;
+    private final int[] mActions;
+    private final int[] mLabels;
+    private final long[] mTimes;
+
+    private int mSize;
+
+    public EventBatch(int capacity) {
+        mCategories = new int[capacity];
+        mActions = new int[capacity];
+        mLabels = new int[capacity];
+        mTimes = new long[capacity];
+    }
+
+    public int size() { return mSize; }
+    public int capacity() { return mCategories.length; }
+    public @StringRes int getCategory(int index) { return mCategories[index]; }
+    public @StringRes int getAction(int index) { return mActions[index]; }
+    public @StringRes int getLabel(int index) { return mLabels[index]; }
+
+    /**
+     * @return the wall clock time at which the event at the given {@code index} was recorded
+     */
+    public long getTime(int index) { return mTimes[index]; }
+
+    void add(int category, int action, int label, long time) {
+        mCategories[mSize] = category;
+        mActions[mSize] = action;
+        mLabels[mSize] = label;
+        mTimes[mSize] = time;
+        mSize++;
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.events;
+
+import android.support.annotation.StringRes;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-capacity, lock-free ring buffer of events. Any number of threads may {@link #record}
+ * events concurrently without blocking or allocating; a single consumer thread {@link #drain}s them
+ * in batches. Each event is stored as a primitive triple of resource ids plus a timestamp. When
+ * the consumer falls behind and the buffer is full, new events are dropped and counted rather than
+ * stalling the recording thread.
+ */
+public final class EventBuffer {
+
+    /** The number of slots in the ring; always a power of two. */
+    private final int mCapacity;
+
+    /** Mask that converts a sequence number into a slot index. */
+    private final int mMask;
+
+    private final int[] mCategories;
+    private final int[] mActions;
+    private final int[] mLabels;
+    private final long[] mTimes;
+
+    /**
+     * For each slot, the sequence number of the event most recently published into it. A slot is
+     * readable for sequence {@code s} only once this holds {@code s}.
+     */
+    private final AtomicLongArray mPublished;
+
+    /** The next sequence number to be claimed by a producer. */
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    /** The next sequence number to be read by the consumer. */
+    private final AtomicLong mConsumedSequence = new AtomicLong();
+
+    /** The number of events dropped because the buffer was full. */
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    /**
+     * @param capacity the minimum number of events the buffer can hold; rounded up to a power of 2
+     */
+    public EventBuffer(int capacity) {
+        mCapacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mMask = mCapacity - 1;
+        mCategories = new int[mCapacity];
+        mActions = new int[mCapacity];
+        mLabels = new int[mCapacity];
+        mTimes = new long[mCapacity];
+        mPublished = new AtomicLongArray(mCapacity);
+        for (int i = 0; i < mCapacity; i++) {
+            mPublished.set(i, -1);
+        }
+    }
+
+    /**
+     * Records an event. Safe to call from any thread; never blocks.
+     *
+     * @return {@code true} if the event was recorded; {@code false} if it was dropped because the
+     *      buffer is full
+     */
+    public boolean record(@StringRes int category, @StringRes int action, @StringRes int label,
+            long time) {
+        long sequence;
+        do {
+            sequence = mNextSequence.get();
+            if (sequence - mConsumedSequence.get() >= mCapacity) {
+                mDroppedCount.incrementAndGet();
+                return false;
+            }
+        } while (!mNextSequence.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) (sequence & mMask);
+        mCategories[slot] = category;
+        mActions[slot] = action;
+        mLabels[slot] = label;
+        mTimes[slot] = time;
+
+        // Publishing the sequence makes the slot contents visible to the consumer.
+        mPublished.set(slot, sequence);
+        return true;
+    }
+
+    /**
+     * Moves all published events into the given {@code batch}, replacing its previous contents.
+     * Must only be called from a single consumer thread.
+     *
+     * @return the number of events drained
+     */
+    public int drain(EventBatch batch) {
+        batch.clear();
+
+        long sequence = mConsumedSequence.get();
+        while (batch.size() < batch.capacity()) {
+            final int slot = (int) (sequence & mMask);
+            if (mPublished.get(slot) != sequence) {
+                // The producer that claimed this sequence has not finished writing it yet.
+                break;
+            }
+
+            batch.add(mCategories[slot], mActions[slot], mLabels[slot], mTimes[slot]);
+            sequence++;
+        }
+
+        // Releasing the slots allows producers to reuse them.
+        mConsumedSequence.set(sequence);
+        return batch.size();
+    }
+
+    /**
+     * @return the total number of events dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.events;
+
+import java.io.PrintWriter;
+
+/**
+ * Receives events in batches on a background thread. Unlike {@link EventTracker}, which is handed
+ * one event at a time, a sink can amortize expensive work (e.g. disk writes) across many events.
+ */
+public interface EventSink {
+    /**
+     * Record a batch of events in some form or fashion. Called on a background thread.
+     *
+     * @param batch the events recorded since the previous batch, in the order they were recorded;
+     *      only valid for the duration of this call
+     */
+    void sendEvents(EventBatch batch);
+
+    /**
+     * Writes statistics about the events received by this sink to the given {@code writer}.
+     */
+    void dump(PrintWriter writer);
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.events;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+import android.support.annotation.StringRes;
+import android.util.SparseIntArray;
+
+import com.android.deskclock.LogUtils;
+import com.android.deskclock.Utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Appends each batch of events to a log file in device protected storage, rotating the file once
+ * it grows beyond a fixed size, and keeps a running count of events per category.
+ */
+public final class FileEventSink implements EventSink {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("FileEventSink");
+
+    /** The name of the file to which events are currently appended. */
+    private static final String FILE_NAME = "events.log";
+
+    /** The name of the file holding the events that preceded the current file. */
+    private static final String ROTATED_FILE_NAME = "events.log.1";
+
+    /** The current file is rotated once it exceeds this size. */
+    private static final long MAX_FILE_BYTES = 256 * 1024;
+
+    private final Resources mResources;
+
+    private final File mFile;
+
+    private final File mRotatedFile;
+
+    /** Maps each category resource id to the number of events recorded in that category. */
+    private final SparseIntArray mCategoryCounts = new SparseIntArray();
+
+    public FileEventSink(Context context) {
+        final File dir = getStorageContext(context).getFilesDir();
+        mResources = context.getResources();
+        mFile = new File(dir, FILE_NAME);
+        mRotatedFile = new File(dir, ROTATED_FILE_NAME);
+    }
+
+    @Override
+    public void sendEvents(EventBatch batch) {
+        synchronized (mCategoryCounts) {
+            for (int i = 0; i < batch.size(); i++) {
+                final int category = batch.getCategory(i);
+                mCategoryCounts.put(category, mCategoryCounts.get(category) + 1);
+            }
+        }
+
+        if (mFile.length() > MAX_FILE_BYTES && !mFile.renameTo(mRotatedFile)) {
+            LOGGER.w("Unable to rotate %s", mFile);
+        }
+
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(mFile, true /* append */), StandardCharsets.UTF_8));
+            for (int i = 0; i < batch.size(); i++) {
+                writer.append(Long.toString(batch.getTime(i)))
+                        .append('\t').append(getName(batch.getCategory(i)))
+                        .append('\t').append(getName(batch.getAction(i)))
+                        .append('\t').append(getName(batch.getLabel(i)))
+                        .append('\n');
+            }
+        } catch (IOException e) {
+            LOGGER.e("Unable to write events", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the per-category event counts to the given {@code writer}.
+     */
+    @Override
+    public void dump(PrintWriter writer) {
+        synchronized (mCategoryCounts) {
+            for (int i = 0; i < mCategoryCounts.size(); i++) {
+                writer.printf("%s: %d%n", getName(mCategoryCounts.keyAt(i)),
+                        mCategoryCounts.valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * @return the stable resource entry name of the given {@code resId}; "-" if none exists
+     */
+    private String getName(@StringRes int resId) {
+        if (resId == 0) {
+            return "-";
+        }
+        try {
+            return mResources.getResourceEntryName(resId);
+        } catch (Resources.NotFoundException e) {
+            return Integer.toHexString(resId);
+        }
+    }
+
+    /**
+     * Events may be recorded before the user unlocks the device (e.g. when an alarm fires), so
+     * they are stored in the device protected storage area where available.
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    private static Context getStorageContext(Context context) {
+        return Utils.isNOrLater() ? context.createDeviceProtectedStorageContext() : context;
+    }
+}
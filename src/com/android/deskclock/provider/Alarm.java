@@ -20,18 +20,20 @@ import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.CursorLoader;
 import android.content.Intent;
 import android.database.Cursor;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.v4.util.LongSparseArray;
+import android.text.TextUtils;
 
 import com.android.deskclock.R;
 import com.android.deskclock.data.DataModel;
 import com.android.deskclock.data.Weekdays;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
@@ -84,11 +86,28 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             ClockDatabaseHelper.INSTANCES_TABLE_NAME + "." + ClockContract.InstancesColumns.VIBRATE
     };
 
+    /**
+     * The joined columns above followed by the remaining instance columns, so a complete
+     * {@link AlarmInstance} can be read from each row.
+     */
+    private static final String[] QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS;
+    static {
+        final int count = QUERY_ALARMS_WITH_INSTANCES_COLUMNS.length;
+        QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS = new String[count + 2];
+        System.arraycopy(QUERY_ALARMS_WITH_INSTANCES_COLUMNS, 0,
+                QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS, 0, count);
+        final String instancesTable = ClockDatabaseHelper.INSTANCES_TABLE_NAME + ".";
+        QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS[count] =
+                instancesTable + ClockContract.InstancesColumns.RINGTONE;
+        QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS[count + 1] =
+                instancesTable + ClockContract.InstancesColumns.ALARM_ID;
+    }
+
     /**
      * These save calls to cursor.getColumnIndexOrThrow()
      * THEY MUST BE KEPT IN SYNC WITH ABOVE QUERY COLUMNS
      */
-    private static final int ID_INDEX = 0;
+    static final int ID_INDEX = 0;
     private static final int HOUR_INDEX = 1;
     private static final int MINUTES_INDEX = 2;
     private static final int DAYS_OF_WEEK_INDEX = 3;
@@ -97,7 +116,7 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     private static final int LABEL_INDEX = 6;
     private static final int RINGTONE_INDEX = 7;
     private static final int DELETE_AFTER_USE_INDEX = 8;
-    private static final int INSTANCE_STATE_INDEX = 9;
+    public static final int INSTANCE_STATE_INDEX = 9;
     public static final int INSTANCE_ID_INDEX = 10;
     public static final int INSTANCE_YEAR_INDEX = 11;
     public static final int INSTANCE_MONTH_INDEX = 12;
@@ -106,6 +125,8 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     public static final int INSTANCE_MINUTE_INDEX = 15;
     public static final int INSTANCE_LABEL_INDEX = 16;
     public static final int INSTANCE_VIBRATE_INDEX = 17;
+    public static final int INSTANCE_RINGTONE_INDEX = 18;
+    public static final int INSTANCE_ALARM_ID_INDEX = 19;
 
     private static final int COLUMN_COUNT = DELETE_AFTER_USE_INDEX + 1;
     private static final int ALARM_JOIN_INSTANCE_COLUMN_COUNT = INSTANCE_VIBRATE_INDEX + 1;
@@ -146,38 +167,23 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     }
 
     /**
-     * Get alarm cursor loader for all alarms.
+     * Get alarm loader for all alarms.
      *
      * @param context to query the database.
-     * @return cursor loader with all the alarms.
+     * @return loader of all the alarms, each paired with its next instance if that instance can
+     *      be preemptively dismissed.
      */
-    public static CursorLoader getAlarmsCursorLoader(Context context) {
-        return new CursorLoader(context, ALARMS_WITH_INSTANCES_URI,
-                QUERY_ALARMS_WITH_INSTANCES_COLUMNS, null, null, DEFAULT_SORT_ORDER) {
-            @Override
-            public void onContentChanged() {
-                // There is a bug in Loader which can result in stale data if a loader is stopped
-                // immediately after a call to onContentChanged. As a workaround we stop the
-                // loader before delivering onContentChanged to ensure mContentChanged is set to
-                // true before forceLoad is called.
-                if (isStarted() && !isAbandoned()) {
-                    stopLoading();
-                    super.onContentChanged();
-                    startLoading();
-                } else {
-                    super.onContentChanged();
-                }
-            }
-
-            @Override
-            public Cursor loadInBackground() {
-                // Prime the ringtone title cache for later access. Most alarms will refer to
-                // system ringtones.
-                DataModel.getDataModel().loadRingtoneTitles();
+    public static AlarmListLoader getAlarmsLoader(Context context) {
+        return new AlarmListLoader(context);
+    }
 
-                return super.loadInBackground();
-            }
-        };
+    /**
+     * @return a cursor over all alarms joined with their next instances, projected with the
+     *      complete set of instance columns; {@code null} if the query failed
+     */
+    static Cursor queryAlarmsWithNextInstance(ContentResolver cr) {
+        return cr.query(ALARMS_WITH_INSTANCES_URI, QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS, null,
+                null, DEFAULT_SORT_ORDER);
     }
 
     /**
@@ -233,6 +239,65 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         return result;
     }
 
+    /**
+     * Get all alarms given conditions along with the next instance of each, using one query of
+     * the alarms joined with their instances and one query of those alarms' instances rather than
+     * one instance query per alarm. As in
+     * {@link AlarmInstance#getNextUpcomingInstanceByAlarmId}, the next instance of an alarm is
+     * the one with the earliest alarm time; the join alone orders instances by state and date.
+     *
+     * @param cr provides access to the content model
+     * @param nextInstances receives the next instance of each returned alarm that has one, keyed
+     *      by alarm id
+     * @param selection A filter declaring which rows to return, formatted as an
+     *         SQL WHERE clause (excluding the WHERE itself). Columns must be qualified by table
+     *         name. Passing null will return all rows.
+     * @param selectionArgs You may include ?s in selection, which will be
+     *         replaced by the values from selectionArgs, in the order that they
+     *         appear in the selection. The values will be bound as Strings.
+     * @return list of alarms matching where clause or empty list if none found.
+     */
+    public static List<Alarm> getAlarmsWithNextInstance(ContentResolver cr,
+            LongSparseArray<AlarmInstance> nextInstances, String selection,
+            String... selectionArgs) {
+        final List<Alarm> result = new ArrayList<>();
+        try (Cursor cursor = cr.query(ALARMS_WITH_INSTANCES_URI,
+                QUERY_ALARMS_WITH_NEXT_INSTANCE_COLUMNS, selection, selectionArgs,
+                DEFAULT_SORT_ORDER)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    final Alarm alarm = new Alarm(cursor);
+                    result.add(alarm);
+                    if (!cursor.isNull(INSTANCE_ID_INDEX)) {
+                        nextInstances.put(alarm.id, new AlarmInstance(cursor, true /* joined */));
+                    }
+                } while (cursor.moveToNext());
+            }
+        }
+
+        if (nextInstances.size() == 0) {
+            return result;
+        }
+
+        // An alarm may have several instances; keep the earliest of each alarm's instances.
+        final StringBuilder alarmIds = new StringBuilder();
+        for (int i = 0; i < nextInstances.size(); i++) {
+            if (i > 0) {
+                alarmIds.append(',');
+            }
+            alarmIds.append(nextInstances.keyAt(i));
+        }
+        final String instanceSelection = AlarmInstance.ALARM_ID + " IN (" + alarmIds + ")";
+        for (AlarmInstance instance : AlarmInstance.getInstances(cr, instanceSelection)) {
+            final AlarmInstance next = nextInstances.get(instance.mAlarmId);
+            if (next != null && instance.getAlarmTime().before(next.getAlarmTime())) {
+                nextInstances.put(instance.mAlarmId, instance);
+            }
+        }
+
+        return result;
+    }
+
     public static boolean isTomorrow(Alarm alarm, Calendar now) {
         if (alarm.instanceState == AlarmInstance.SNOOZE_STATE) {
             return false;
@@ -313,7 +378,7 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         label = c.getString(LABEL_INDEX);
         deleteAfterUse = c.getInt(DELETE_AFTER_USE_INDEX) == 1;
 
-        if (c.getColumnCount() == ALARM_JOIN_INSTANCE_COLUMN_COUNT) {
+        if (c.getColumnCount() >= ALARM_JOIN_INSTANCE_COLUMN_COUNT) {
             instanceState = c.getInt(INSTANCE_STATE_INDEX);
             instanceId = c.getInt(INSTANCE_ID_INDEX);
         }
@@ -327,6 +392,35 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
         }
     }
 
+    /**
+     * @param c a cursor positioned at a row of an alarm query
+     * @return {@code true} if this alarm holds exactly the values {@link #Alarm(Cursor)} would
+     *      read from the current row of the given cursor
+     */
+    boolean matches(Cursor c) {
+        if (id != c.getLong(ID_INDEX)
+                || enabled != (c.getInt(ENABLED_INDEX) == 1)
+                || hour != c.getInt(HOUR_INDEX)
+                || minutes != c.getInt(MINUTES_INDEX)
+                || daysOfWeek.getBits() != c.getInt(DAYS_OF_WEEK_INDEX)
+                || vibrate != (c.getInt(VIBRATE_INDEX) == 1)
+                || deleteAfterUse != (c.getInt(DELETE_AFTER_USE_INDEX) == 1)
+                || !TextUtils.equals(label, c.getString(LABEL_INDEX))) {
+            return false;
+        }
+
+        if (c.getColumnCount() >= ALARM_JOIN_INSTANCE_COLUMN_COUNT
+                && (instanceState != c.getInt(INSTANCE_STATE_INDEX)
+                || instanceId != c.getInt(INSTANCE_ID_INDEX))) {
+            return false;
+        }
+
+        if (c.isNull(RINGTONE_INDEX)) {
+            return RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM).equals(alert);
+        }
+        return alert != null && alert.toString().equals(c.getString(RINGTONE_INDEX));
+    }
+
     Alarm(Parcel p) {
         id = p.readLong();
         enabled = p.readInt() == 1;
@@ -24,6 +24,7 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.text.TextUtils;
 
 import com.android.deskclock.LogUtils;
 import com.android.deskclock.R;
@@ -344,18 +345,86 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
             mLabel = c.getString(LABEL_INDEX);
             mVibrate = c.getInt(VIBRATE_INDEX) == 1;
         }
-        if (c.isNull(RINGTONE_INDEX)) {
+
+        // Joined cursors only carry the remaining instance columns if queried with them.
+        final boolean complete = !joinedTable || c.getColumnCount() > Alarm.INSTANCE_ALARM_ID_INDEX;
+        final int ringtoneIndex = joinedTable && complete
+                ? Alarm.INSTANCE_RINGTONE_INDEX : RINGTONE_INDEX;
+        final int alarmIdIndex = joinedTable && complete
+                ? Alarm.INSTANCE_ALARM_ID_INDEX : ALARM_ID_INDEX;
+        final int alarmStateIndex = joinedTable && complete
+                ? Alarm.INSTANCE_STATE_INDEX : ALARM_STATE_INDEX;
+
+        if (c.isNull(ringtoneIndex)) {
             // Should we be saving this with the current ringtone or leave it null
             // so it changes when user changes default ringtone?
             mRingtone = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
         } else {
-            mRingtone = Uri.parse(c.getString(RINGTONE_INDEX));
+            mRingtone = Uri.parse(c.getString(ringtoneIndex));
+        }
+
+        if (!c.isNull(alarmIdIndex)) {
+            mAlarmId = c.getLong(alarmIdIndex);
+        }
+        mAlarmState = c.getInt(alarmStateIndex);
+    }
+
+    /**
+     * @param c a cursor positioned at a row of an alarm query joined with the complete set of
+     *      instance columns
+     * @return {@code true} if this instance holds exactly the values
+     *      {@link #AlarmInstance(Cursor, boolean)} would read from the current row of the cursor
+     */
+    boolean matchesJoined(Cursor c) {
+        if (mId != c.getLong(Alarm.INSTANCE_ID_INDEX)
+                || mYear != c.getInt(Alarm.INSTANCE_YEAR_INDEX)
+                || mMonth != c.getInt(Alarm.INSTANCE_MONTH_INDEX)
+                || mDay != c.getInt(Alarm.INSTANCE_DAY_INDEX)
+                || mHour != c.getInt(Alarm.INSTANCE_HOUR_INDEX)
+                || mMinute != c.getInt(Alarm.INSTANCE_MINUTE_INDEX)
+                || mVibrate != (c.getInt(Alarm.INSTANCE_VIBRATE_INDEX) == 1)
+                || mAlarmState != c.getInt(Alarm.INSTANCE_STATE_INDEX)
+                || !TextUtils.equals(mLabel, c.getString(Alarm.INSTANCE_LABEL_INDEX))) {
+            return false;
         }
 
-        if (!c.isNull(ALARM_ID_INDEX)) {
-            mAlarmId = c.getLong(ALARM_ID_INDEX);
+        if (c.isNull(Alarm.INSTANCE_ALARM_ID_INDEX)
+                ? mAlarmId != null
+                : mAlarmId == null || mAlarmId != c.getLong(Alarm.INSTANCE_ALARM_ID_INDEX)) {
+            return false;
         }
-        mAlarmState = c.getInt(ALARM_STATE_INDEX);
+
+        if (c.isNull(Alarm.INSTANCE_RINGTONE_INDEX)) {
+            return RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM).equals(mRingtone);
+        }
+        return mRingtone != null
+                && mRingtone.toString().equals(c.getString(Alarm.INSTANCE_RINGTONE_INDEX));
+    }
+
+    /**
+     * Creates an instance from the complete set of column values written to the database, e.g. by
+     * {@link #createContentValues}. Mirrors the interpretation of each column made when reading
+     * an instance from a cursor.
+     */
+    AlarmInstance(long id, ContentValues values) {
+        mId = id;
+        mYear = values.getAsInteger(YEAR);
+        mMonth = values.getAsInteger(MONTH);
+        mDay = values.getAsInteger(DAY);
+        mHour = values.getAsInteger(HOUR);
+        mMinute = values.getAsInteger(MINUTES);
+        mLabel = values.getAsString(LABEL);
+        mVibrate = values.getAsInteger(VIBRATE) == 1;
+
+        final String ringtone = values.getAsString(RINGTONE);
+        if (ringtone == null) {
+            mRingtone = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        } else {
+            mRingtone = Uri.parse(ringtone);
+        }
+
+        mAlarmId = values.getAsLong(ALARM_ID);
+        mAlarmState = values.getAsInteger(ALARM_STATE);
     }
 
     /**
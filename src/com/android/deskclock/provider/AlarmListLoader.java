@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.provider;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v4.util.LongSparseArray;
+
+import com.android.deskclock.LogUtils;
+import com.android.deskclock.data.DataModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.android.deskclock.provider.ClockContract.AlarmsColumns.ALARMS_WITH_INSTANCES_URI;
+
+/**
+ * Loads all alarms, each with its next instance, and materializes them on the loader thread so
+ * the main thread never iterates a cursor. Alarms and instances whose rows are unchanged since the
+ * previous load are reused rather than parsed again, so reloads triggered by changes to a single
+ * alarm allocate little more than the objects of that alarm.
+ */
+public final class AlarmListLoader extends AsyncTaskLoader<List<AlarmListLoader.Item>> {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("AlarmListLoader");
+
+    /** Reloads the alarms when the alarms or their instances change. */
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+
+    /** Maps alarm id to the alarm produced by the previous load; only touched by the loader. */
+    private LongSparseArray<Alarm> mAlarms = new LongSparseArray<>();
+
+    /** Maps instance id to the instance produced by the previous load; only touched by loader. */
+    private LongSparseArray<AlarmInstance> mInstances = new LongSparseArray<>();
+
+    /** The most recently delivered result; {@code null} if none has been delivered. */
+    private List<Item> mResult;
+
+    /** {@code true} while {@link #mObserver} is registered with the content resolver. */
+    private boolean mObserving;
+
+    AlarmListLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public List<Item> loadInBackground() {
+        // Prime the ringtone title cache for later access. Most alarms will refer to system
+        // ringtones.
+        DataModel.getDataModel().loadRingtoneTitles();
+
+        final LongSparseArray<Alarm> alarms = new LongSparseArray<>(mAlarms.size());
+        final LongSparseArray<AlarmInstance> instances = new LongSparseArray<>(mInstances.size());
+        final List<Item> result;
+        int reused = 0;
+
+        try (Cursor cursor = Alarm.queryAlarmsWithNextInstance(getContext().getContentResolver())) {
+            if (cursor == null) {
+                return Collections.emptyList();
+            }
+
+            result = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                final long alarmId = cursor.getLong(Alarm.ID_INDEX);
+                Alarm alarm = mAlarms.get(alarmId);
+                if (alarm != null && alarm.matches(cursor)) {
+                    reused++;
+                } else {
+                    alarm = new Alarm(cursor);
+                }
+                alarms.put(alarmId, alarm);
+
+                AlarmInstance instance = null;
+                if (alarm.canPreemptivelyDismiss()) {
+                    final long instanceId = cursor.getLong(Alarm.INSTANCE_ID_INDEX);
+                    instance = mInstances.get(instanceId);
+                    if (instance == null || !instance.matchesJoined(cursor)) {
+                        instance = new AlarmInstance(cursor, true /* joinedTable */);
+                    }
+                    instances.put(instanceId, instance);
+                }
+
+                result.add(new Item(alarm, instance));
+            }
+        }
+
+        // Objects of deleted alarms and instances are released by replacing the pools.
+        mAlarms = alarms;
+        mInstances = instances;
+        LOGGER.v("Loaded %d alarms, reused %d", result.size(), reused);
+        return result;
+    }
+
+    @Override
+    public void deliverResult(List<Item> result) {
+        if (isReset()) {
+            return;
+        }
+
+        mResult = result;
+        if (isStarted()) {
+            super.deliverResult(result);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            getContext().getContentResolver()
+                    .registerContentObserver(ALARMS_WITH_INSTANCES_URI, false, mObserver);
+            mObserving = true;
+        }
+
+        if (mResult != null) {
+            deliverResult(mResult);
+        }
+        if (takeContentChanged() || mResult == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    public void onContentChanged() {
+        // There is a bug in Loader which can result in stale data if a loader is stopped
+        // immediately after a call to onContentChanged. As a workaround we stop the loader before
+        // delivering onContentChanged to ensure mContentChanged is set to true before forceLoad is
+        // called.
+        if (isStarted() && !isAbandoned()) {
+            stopLoading();
+            super.onContentChanged();
+            startLoading();
+        } else {
+            super.onContentChanged();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mResult = null;
+
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+    }
+
+    /**
+     * An alarm paired with its next instance.
+     */
+    public static final class Item {
+
+        private final Alarm mAlarm;
+        private final AlarmInstance mInstance;
+
+        private Item(Alarm alarm, AlarmInstance instance) {
+            mAlarm = alarm;
+            mInstance = instance;
+        }
+
+        public Alarm getAlarm() {
+            return mAlarm;
+        }
+
+        /**
+         * @return the next instance of the alarm if the alarm can be preemptively dismissed;
+         *      {@code null} otherwise
+         */
+        public AlarmInstance getInstance() {
+            return mInstance;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.provider;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+
+import com.android.deskclock.LogUtils;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.ALARM_ID;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.ALARM_STATE;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.DAY;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.FIRED_STATE;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.HOUR;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.LABEL;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.MINUTES;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.MONTH;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.RINGTONE;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.VIBRATE;
+import static com.android.deskclock.provider.ClockContract.InstancesColumns.YEAR;
+
+/**
+ * A process-wide index of all alarm instances that have yet to fire, ordered by fire time in a
+ * binary min-heap. The index is loaded from the database on first use and thereafter kept coherent
+ * by {@link ClockProvider}, which reports every instance write and delete as it happens. This
+ * makes the next firing instance available without a database query and limits the maintenance
+ * cost of each state transition to O(log n).
+ *
+ * <p>Instances are ordered by their wall-clock fire time (year, month, day, hour, minute) which
+ * orders identically to {@link AlarmInstance#getAlarmTime()} but does not depend on the time
+ * zone, so the index remains valid across time zone changes.</p>
+ */
+public final class AlarmScheduleIndex {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("AlarmScheduleIndex");
+
+    /** The number of times a load is retried when writes race with it before giving up. */
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    /** The columns that must all be present to index an instance from written values. */
+    private static final String[] REQUIRED_COLUMNS = {
+            YEAR, MONTH, DAY, HOUR, MINUTES, LABEL, VIBRATE, RINGTONE, ALARM_ID, ALARM_STATE
+    };
+
+    private static final AlarmScheduleIndex sIndex = new AlarmScheduleIndex();
+
+    /** The heap of unfired instances; the entry at index 0 fires first. */
+    private final List<Entry> mHeap = new ArrayList<>();
+
+    /** Maps each indexed instance id to its heap entry. */
+    private final Map<Long, Entry> mEntries = new HashMap<>();
+
+    /** {@code true} once the heap mirrors the database. */
+    private boolean mLoaded;
+
+    /** Incremented on every reported change; detects writes that race with a load. */
+    private long mGeneration;
+
+    public static AlarmScheduleIndex getIndex() {
+        return sIndex;
+    }
+
+    private AlarmScheduleIndex() {}
+
+    /**
+     * @param cr provides access to the content model if the index must be loaded
+     * @return a copy of the unfired instance that fires earliest; {@code null} if none exist
+     */
+    public AlarmInstance getNextFiringInstance(ContentResolver cr) {
+        for (int attempt = 1; ; attempt++) {
+            final long generation;
+            synchronized (this) {
+                if (mLoaded) {
+                    return mHeap.isEmpty() ? null : new AlarmInstance(mHeap.get(0).mInstance);
+                }
+                generation = mGeneration;
+            }
+
+            // Query without holding the lock so writers reporting changes are never blocked on it.
+            final List<AlarmInstance> instances = queryUnfiredInstances(cr);
+
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    rebuild(instances);
+                    return mHeap.isEmpty() ? null : new AlarmInstance(mHeap.get(0).mInstance);
+                }
+            }
+
+            if (attempt == MAX_LOAD_ATTEMPTS) {
+                LOGGER.w("Unable to load index; falling back to query results");
+                AlarmInstance next = null;
+                for (AlarmInstance instance : instances) {
+                    if (next == null || getSortKey(instance) < getSortKey(next)) {
+                        next = instance;
+                    }
+                }
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Compares the index against the database. Writes that race with the check may be reported
+     * as discrepancies, so the check is only meaningful while the database is quiescent.
+     *
+     * @param cr provides access to the content model
+     * @return a description of each discrepancy found; empty if the index is consistent
+     */
+    public List<String> checkConsistency(ContentResolver cr) {
+        final List<AlarmInstance> instances = queryUnfiredInstances(cr);
+        final List<String> problems = new ArrayList<>();
+
+        synchronized (this) {
+            if (!mLoaded) {
+                return problems;
+            }
+
+            for (AlarmInstance instance : instances) {
+                final Entry entry = mEntries.get(instance.mId);
+                if (entry == null) {
+                    problems.add("missing instance " + instance.mId);
+                } else if (entry.mSortKey != getSortKey(instance)
+                        || entry.mInstance.mAlarmState != instance.mAlarmState) {
+                    problems.add("stale instance " + instance.mId + ": " + entry.mInstance);
+                }
+            }
+
+            if (mEntries.size() != instances.size()) {
+                final Map<Long, AlarmInstance> byId = new HashMap<>(instances.size());
+                for (AlarmInstance instance : instances) {
+                    byId.put(instance.mId, instance);
+                }
+                for (Long id : mEntries.keySet()) {
+                    if (!byId.containsKey(id)) {
+                        problems.add("extra instance " + id);
+                    }
+                }
+            }
+
+            for (int i = 0; i < mHeap.size(); i++) {
+                final Entry entry = mHeap.get(i);
+                if (entry.mHeapIndex != i) {
+                    problems.add("misplaced entry " + entry.mInstance.mId);
+                }
+                if (i > 0 && mHeap.get((i - 1) / 2).mSortKey > entry.mSortKey) {
+                    problems.add("heap order violated at " + i);
+                }
+            }
+        }
+
+        return problems;
+    }
+
+    /**
+     * Writes the state of the index and the result of a consistency check to {@code writer}.
+     */
+    public void dump(ContentResolver cr, PrintWriter writer) {
+        synchronized (this) {
+            writer.printf("loaded=%b size=%d generation=%d%n", mLoaded, mHeap.size(), mGeneration);
+        }
+        for (String problem : checkConsistency(cr)) {
+            writer.println(problem);
+        }
+    }
+
+    /**
+     * Called by the provider after the instance with the given {@code id} has been inserted or
+     * updated with the given {@code values}.
+     */
+    synchronized void onInstanceWritten(long id, ContentValues values) {
+        mGeneration++;
+        if (!mLoaded) {
+            return;
+        }
+
+        for (String column : REQUIRED_COLUMNS) {
+            if (!values.containsKey(column)) {
+                // A partial update cannot be applied without reading the row; reload lazily.
+                invalidate();
+                return;
+            }
+        }
+
+        final AlarmInstance instance = new AlarmInstance(id, values);
+        if (instance.mAlarmState >= FIRED_STATE) {
+            remove(id);
+            return;
+        }
+
+        final Entry entry = mEntries.get(id);
+        if (entry == null) {
+            add(new Entry(instance));
+        } else {
+            entry.mInstance = instance;
+            final long oldSortKey = entry.mSortKey;
+            entry.mSortKey = getSortKey(instance);
+            if (entry.mSortKey < oldSortKey) {
+                siftUp(entry.mHeapIndex);
+            } else {
+                siftDown(entry.mHeapIndex);
+            }
+        }
+    }
+
+    /**
+     * Called by the provider after the instance with the given {@code id} has been deleted.
+     */
+    synchronized void onInstanceDeleted(long id) {
+        mGeneration++;
+        if (mLoaded) {
+            remove(id);
+        }
+    }
+
+    /**
+     * Called by the provider after the alarm with the given {@code alarmId} and therefore all of
+     * its instances have been deleted.
+     */
+    synchronized void onAlarmDeleted(long alarmId) {
+        mGeneration++;
+        if (!mLoaded) {
+            return;
+        }
+
+        final List<Long> instanceIds = new ArrayList<>();
+        for (Entry entry : mHeap) {
+            final Long instanceAlarmId = entry.mInstance.mAlarmId;
+            if (instanceAlarmId != null && instanceAlarmId == alarmId) {
+                instanceIds.add(entry.mInstance.mId);
+            }
+        }
+        for (Long instanceId : instanceIds) {
+            remove(instanceId);
+        }
+    }
+
+    /**
+     * Discards the index so it is reloaded from the database on next use. Called when the provider
+     * makes changes it cannot describe per instance, e.g. deletes by selection or failed batches.
+     */
+    synchronized void invalidate() {
+        mGeneration++;
+        mLoaded = false;
+        mHeap.clear();
+        mEntries.clear();
+    }
+
+    private void rebuild(List<AlarmInstance> instances) {
+        mHeap.clear();
+        mEntries.clear();
+        for (AlarmInstance instance : instances) {
+            add(new Entry(instance));
+        }
+        mLoaded = true;
+        LOGGER.v("Loaded %d instances", mHeap.size());
+    }
+
+    private void add(Entry entry) {
+        entry.mHeapIndex = mHeap.size();
+        mHeap.add(entry);
+        mEntries.put(entry.mInstance.mId, entry);
+        siftUp(entry.mHeapIndex);
+    }
+
+    private void remove(long id) {
+        final Entry entry = mEntries.remove(id);
+        if (entry == null) {
+            return;
+        }
+
+        final int index = entry.mHeapIndex;
+        final Entry last = mHeap.remove(mHeap.size() - 1);
+        if (last != entry) {
+            set(index, last);
+            siftDown(index);
+            siftUp(last.mHeapIndex);
+        }
+    }
+
+    private void siftUp(int index) {
+        final Entry entry = mHeap.get(index);
+        while (index > 0) {
+            final int parentIndex = (index - 1) / 2;
+            final Entry parent = mHeap.get(parentIndex);
+            if (parent.mSortKey <= entry.mSortKey) {
+                break;
+            }
+            set(index, parent);
+            index = parentIndex;
+        }
+        set(index, entry);
+    }
+
+    private void siftDown(int index) {
+        final Entry entry = mHeap.get(index);
+        final int size = mHeap.size();
+        while (true) {
+            int childIndex = 2 * index + 1;
+            if (childIndex >= size) {
+                break;
+            }
+            if (childIndex + 1 < size
+                    && mHeap.get(childIndex + 1).mSortKey < mHeap.get(childIndex).mSortKey) {
+                childIndex++;
+            }
+            final Entry child = mHeap.get(childIndex);
+            if (entry.mSortKey <= child.mSortKey) {
+                break;
+            }
+            set(index, child);
+            index = childIndex;
+        }
+        set(index, entry);
+    }
+
+    private void set(int index, Entry entry) {
+        mHeap.set(index, entry);
+        entry.mHeapIndex = index;
+    }
+
+    private static List<AlarmInstance> queryUnfiredInstances(ContentResolver cr) {
+        return AlarmInstance.getInstances(cr, ALARM_STATE + "<" + FIRED_STATE);
+    }
+
+    /**
+     * @return a value that orders instances by their wall-clock fire time
+     */
+    private static long getSortKey(AlarmInstance instance) {
+        return ((((long) instance.mYear * 12 + instance.mMonth) * 31 + instance.mDay) * 24
+                + instance.mHour) * 60 + instance.mMinute;
+    }
+
+    /**
+     * A heap slot for a single instance.
+     */
+    private static final class Entry {
+
+        private AlarmInstance mInstance;
+        private long mSortKey;
+        private int mHeapIndex;
+
+        private Entry(AlarmInstance instance) {
+            mInstance = instance;
+            mSortKey = getSortKey(instance);
+        }
+    }
+}
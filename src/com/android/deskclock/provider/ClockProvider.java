@@ -18,10 +18,13 @@ package com.android.deskclock.provider;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -35,7 +38,10 @@ import android.util.ArrayMap;
 import com.android.deskclock.LogUtils;
 import com.android.deskclock.Utils;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static com.android.deskclock.provider.ClockContract.AlarmsColumns;
 import static com.android.deskclock.provider.ClockContract.InstancesColumns;
@@ -46,6 +52,15 @@ public class ClockProvider extends ContentProvider {
 
     private ClockDatabaseHelper mOpenHelper;
 
+    /**
+     * While a batch is applied on a thread, the uris changed by that batch are collected here so
+     * observers are notified once per uri after the batch commits rather than once per operation.
+     */
+    private final ThreadLocal<Set<Uri>> mBatchChangedUris = new ThreadLocal<>();
+
+    /** Informed of every change to alarm instances so next alarm lookups need not query. */
+    private final AlarmScheduleIndex mScheduleIndex = AlarmScheduleIndex.getIndex();
+
     private static final int ALARMS = 1;
     private static final int ALARMS_ID = 2;
     private static final int INSTANCES = 3;
@@ -94,6 +109,10 @@ public class ClockProvider extends ContentProvider {
                 INSTANCES_TABLE_NAME + "." + InstancesColumns.LABEL);
         sAlarmsWithInstancesProjection.put(INSTANCES_TABLE_NAME + "." + InstancesColumns.VIBRATE,
                 INSTANCES_TABLE_NAME + "." + InstancesColumns.VIBRATE);
+        sAlarmsWithInstancesProjection.put(INSTANCES_TABLE_NAME + "." + InstancesColumns.RINGTONE,
+                INSTANCES_TABLE_NAME + "." + InstancesColumns.RINGTONE);
+        sAlarmsWithInstancesProjection.put(INSTANCES_TABLE_NAME + "." + InstancesColumns.ALARM_ID,
+                INSTANCES_TABLE_NAME + "." + InstancesColumns.ALARM_ID);
     }
 
     private static final String ALARM_JOIN_INSTANCE_TABLE_STATEMENT =
@@ -223,6 +242,9 @@ public class ClockProvider extends ContentProvider {
                 count = db.update(INSTANCES_TABLE_NAME, values,
                         InstancesColumns._ID + "=" + alarmId,
                         null);
+                if (count > 0) {
+                    mScheduleIndex.onInstanceWritten(Long.parseLong(alarmId), values);
+                }
                 break;
             default: {
                 throw new UnsupportedOperationException("Cannot update URI: " + uri);
@@ -243,6 +265,9 @@ public class ClockProvider extends ContentProvider {
                 break;
             case INSTANCES:
                 rowId = db.insert(INSTANCES_TABLE_NAME, null, initialValues);
+                if (rowId != -1) {
+                    mScheduleIndex.onInstanceWritten(rowId, initialValues);
+                }
                 break;
             default:
                 throw new IllegalArgumentException("Cannot insert from URI: " + uri);
@@ -261,6 +286,7 @@ public class ClockProvider extends ContentProvider {
         switch (sURIMatcher.match(uri)) {
             case ALARMS:
                 count = db.delete(ALARMS_TABLE_NAME, where, whereArgs);
+                mScheduleIndex.invalidate();
                 break;
             case ALARMS_ID:
                 primaryKey = uri.getLastPathSegment();
@@ -270,9 +296,13 @@ public class ClockProvider extends ContentProvider {
                     where = AlarmsColumns._ID + "=" + primaryKey + " AND (" + where + ")";
                 }
                 count = db.delete(ALARMS_TABLE_NAME, where, whereArgs);
+                if (count > 0) {
+                    mScheduleIndex.onAlarmDeleted(Long.parseLong(primaryKey));
+                }
                 break;
             case INSTANCES:
                 count = db.delete(INSTANCES_TABLE_NAME, where, whereArgs);
+                mScheduleIndex.invalidate();
                 break;
             case INSTANCES_ID:
                 primaryKey = uri.getLastPathSegment();
@@ -282,6 +312,9 @@ public class ClockProvider extends ContentProvider {
                     where = InstancesColumns._ID + "=" + primaryKey + " AND (" + where + ")";
                 }
                 count = db.delete(INSTANCES_TABLE_NAME, where, whereArgs);
+                if (count > 0) {
+                    mScheduleIndex.onInstanceDeleted(Long.parseLong(primaryKey));
+                }
                 break;
             default:
                 throw new IllegalArgumentException("Cannot delete from URI: " + uri);
@@ -291,10 +324,50 @@ public class ClockProvider extends ContentProvider {
         return count;
     }
 
+    /**
+     * Applies all operations within a single database transaction. Either every operation is
+     * applied or none are. Change notifications are deferred until the transaction commits.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> ops)
+            throws OperationApplicationException {
+        final Set<Uri> changedUris = new HashSet<>();
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        final ContentProviderResult[] results;
+        boolean successful = false;
+        mBatchChangedUris.set(changedUris);
+        db.beginTransaction();
+        try {
+            results = super.applyBatch(ops);
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            db.endTransaction();
+            mBatchChangedUris.remove();
+            if (!successful) {
+                // The schedule index already reflects the operations that were rolled back.
+                mScheduleIndex.invalidate();
+            }
+        }
+
+        final ContentResolver resolver = getContext().getContentResolver();
+        for (Uri uri : changedUris) {
+            notifyChange(resolver, uri);
+        }
+        return results;
+    }
+
     /**
      * Notify affected URIs of changes.
      */
     private void notifyChange(ContentResolver resolver, Uri uri) {
+        final Set<Uri> batchChangedUris = mBatchChangedUris.get();
+        if (batchChangedUris != null) {
+            batchChangedUris.add(uri);
+            return;
+        }
+
         resolver.notifyChange(uri, null);
 
         final int match = sURIMatcher.match(uri);
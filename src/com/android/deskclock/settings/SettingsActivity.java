@@ -53,6 +53,7 @@ public final class SettingsActivity extends BaseActivity {
     public static final String KEY_TIMER_CRESCENDO = "timer_crescendo_duration";
     public static final String KEY_TIMER_RINGTONE = "timer_ringtone";
     public static final String KEY_TIMER_VIBRATE = "timer_vibrate";
+    public static final String KEY_TIMER_LIST_VIEW = "timer_list_view";
     public static final String KEY_AUTO_SILENCE = "auto_silence";
     public static final String KEY_CLOCK_STYLE = "clock_style";
     public static final String KEY_CLOCK_DISPLAY_SECONDS = "display_clock_seconds";
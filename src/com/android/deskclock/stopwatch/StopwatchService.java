@@ -92,6 +92,10 @@ public final class StopwatchService extends Service {
             }
         }
 
+        // Stopwatch changes made from the notification arrive while the process is in the
+        // background; write them before the process can be stopped.
+        DataModel.getDataModel().flushPendingWrites();
+
         return START_NOT_STICKY;
     }
 }
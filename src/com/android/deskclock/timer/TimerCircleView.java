@@ -50,9 +50,17 @@ public final class TimerCircleView extends View {
     /** The size of the stroke that paints the timer circle. */
     private final float mStrokeSize;
 
-    private final Paint mPaint = new Paint();
-    private final Paint mFill = new Paint();
-    private final RectF mArcRect = new RectF();
+    /**
+     * Drawing state shared by all instances; views only draw on the main thread and each draw
+     * sets the colors and stroke width it uses, so many visible timers need not each allocate it.
+     */
+    private static final Paint sPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final Paint sFill = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private static final RectF sArcRect = new RectF();
+    static {
+        sPaint.setStyle(Paint.Style.STROKE);
+        sFill.setStyle(Paint.Style.FILL);
+    }
 
     private Timer mTimer;
 
@@ -74,12 +82,6 @@ public final class TimerCircleView extends View {
         mRemainderColor = Color.WHITE;
         mCompletedColor = ThemeUtils.resolveColor(context, R.attr.colorAccent);
 
-        mPaint.setAntiAlias(true);
-        mPaint.setStyle(Paint.Style.STROKE);
-
-        mFill.setAntiAlias(true);
-        mFill.setColor(mCompletedColor);
-        mFill.setStyle(Paint.Style.FILL);
     }
 
     void update(Timer timer) {
@@ -101,40 +103,41 @@ public final class TimerCircleView extends View {
         final float radius = Math.min(xCenter, yCenter) - mRadiusOffset;
 
         // Reset old painting state.
-        mPaint.setColor(mRemainderColor);
-        mPaint.setStrokeWidth(mStrokeSize);
+        sPaint.setColor(mRemainderColor);
+        sPaint.setStrokeWidth(mStrokeSize);
+        sFill.setColor(mCompletedColor);
 
         // If the timer is reset, draw a simple white circle.
         final float redPercent;
         if (mTimer.isReset()) {
             // Draw a complete white circle; no red arc required.
-            canvas.drawCircle(xCenter, yCenter, radius, mPaint);
+            canvas.drawCircle(xCenter, yCenter, radius, sPaint);
 
             // Red percent is 0 since no timer progress has been made.
             redPercent = 0;
         } else if (mTimer.isExpired()) {
-            mPaint.setColor(mCompletedColor);
+            sPaint.setColor(mCompletedColor);
 
             // Draw a complete white circle; no red arc required.
-            canvas.drawCircle(xCenter, yCenter, radius, mPaint);
+            canvas.drawCircle(xCenter, yCenter, radius, sPaint);
 
             // Red percent is 1 since the timer has expired.
             redPercent = 1;
         } else {
             // Draw a combination of red and white arcs to create a circle.
-            mArcRect.top = yCenter - radius;
-            mArcRect.bottom = yCenter + radius;
-            mArcRect.left = xCenter - radius;
-            mArcRect.right = xCenter + radius;
+            sArcRect.top = yCenter - radius;
+            sArcRect.bottom = yCenter + radius;
+            sArcRect.left = xCenter - radius;
+            sArcRect.right = xCenter + radius;
             redPercent = Math.min(1, (float) mTimer.getElapsedTime() / (float) mTimer.getTotalLength());
             final float whitePercent = 1 - redPercent;
 
             // Draw a white arc to indicate the amount of timer that remains.
-            canvas.drawArc(mArcRect, 270, whitePercent * 360, false, mPaint);
+            canvas.drawArc(sArcRect, 270, whitePercent * 360, false, sPaint);
 
             // Draw a red arc to indicate the amount of timer completed.
-            mPaint.setColor(mCompletedColor);
-            canvas.drawArc(mArcRect, 270, -redPercent * 360 , false, mPaint);
+            sPaint.setColor(mCompletedColor);
+            canvas.drawArc(sArcRect, 270, -redPercent * 360 , false, sPaint);
         }
 
         // Draw a red dot to indicate current progress through the timer.
@@ -142,7 +145,7 @@ public final class TimerCircleView extends View {
         final double dotAngleRadians = Math.toRadians(dotAngleDegrees);
         final float dotX = xCenter + (float) (radius * Math.cos(dotAngleRadians));
         final float dotY = yCenter + (float) (radius * Math.sin(dotAngleRadians));
-        canvas.drawCircle(dotX, dotY, mDotRadius, mFill);
+        canvas.drawCircle(dotX, dotY, mDotRadius, sFill);
 
         if (mTimer.isRunning()) {
             postInvalidateOnAnimation();
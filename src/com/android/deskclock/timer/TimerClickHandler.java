@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.timer;
+
+import android.app.FragmentManager;
+import android.content.Context;
+import android.view.View;
+
+import com.android.deskclock.LabelDialogFragment;
+import com.android.deskclock.R;
+import com.android.deskclock.data.DataModel;
+import com.android.deskclock.data.Timer;
+import com.android.deskclock.data.TimerStringFormatter;
+import com.android.deskclock.events.Events;
+
+/**
+ * Performs the actions offered by a {@link TimerItem}, whether it is hosted by a page of the
+ * timer pager or by a row of the timer list. Rows of the list additionally offer a button that
+ * stops or deletes their timer since the list has no single current timer for the fab and the
+ * delete button to act upon.
+ */
+final class TimerClickHandler {
+
+    private final FragmentManager mFragmentManager;
+
+    TimerClickHandler(FragmentManager fragmentManager) {
+        mFragmentManager = fragmentManager;
+    }
+
+    /**
+     * Resets a paused timer or adds a minute to a timer that is running, expired or missed.
+     *
+     * @param view the clicked button; announces the new remaining time
+     */
+    void onResetAddClicked(View view, int timerId) {
+        final Timer timer = DataModel.getDataModel().getTimer(timerId);
+        if (timer == null) {
+            return;
+        }
+
+        if (timer.isPaused()) {
+            DataModel.getDataModel().resetOrDeleteTimer(timer, R.string.label_deskclock);
+        } else if (timer.isRunning() || timer.isExpired() || timer.isMissed()) {
+            DataModel.getDataModel().addTimerMinute(timer);
+            Events.sendTimerEvent(R.string.action_add_minute, R.string.label_deskclock);
+
+            final Context context = view.getContext();
+            // Must fetch the timer again because the old timer is no longer accurate.
+            final long currentTime = DataModel.getDataModel().getTimer(timerId).getRemainingTime();
+            if (currentTime > 0) {
+                view.announceForAccessibility(TimerStringFormatter.formatString(
+                        context, R.string.timer_accessibility_one_minute_added, currentTime,
+                        true));
+            }
+        }
+    }
+
+    /**
+     * Deletes the timer.
+     *
+     * @param view the view that requested the deletion; announces the deletion
+     */
+    void onDeleteClicked(View view, int timerId) {
+        final Timer timer = DataModel.getDataModel().getTimer(timerId);
+        if (timer != null) {
+            DataModel.getDataModel().removeTimer(timer);
+            Events.sendTimerEvent(R.string.action_delete, R.string.label_deskclock);
+            view.announceForAccessibility(view.getContext().getString(R.string.timer_deleted));
+        }
+    }
+
+    /**
+     * Stops an expired or missed timer, as the fab of the timer pager does, and deletes any other
+     * timer.
+     *
+     * @param view the clicked button; announces a deletion
+     */
+    void onStopOrDeleteClicked(View view, int timerId) {
+        final Timer timer = DataModel.getDataModel().getTimer(timerId);
+        if (timer == null) {
+            return;
+        }
+
+        if (timer.isExpired() || timer.isMissed()) {
+            DataModel.getDataModel().resetOrDeleteTimer(timer, R.string.label_deskclock);
+        } else {
+            onDeleteClicked(view, timerId);
+        }
+    }
+
+    /**
+     * Presents a dialog to edit the label of the timer.
+     */
+    void onLabelClicked(int timerId) {
+        final Timer timer = DataModel.getDataModel().getTimer(timerId);
+        if (timer != null) {
+            final LabelDialogFragment fragment = LabelDialogFragment.newInstance(timer);
+            LabelDialogFragment.show(mFragmentManager, fragment);
+        }
+    }
+
+    /**
+     * Starts a paused or reset timer, or pauses a running timer.
+     */
+    void onTimeTextClicked(int timerId) {
+        final Timer timer = DataModel.getDataModel().getTimer(timerId);
+        if (timer == null) {
+            return;
+        }
+
+        if (timer.isPaused() || timer.isReset()) {
+            DataModel.getDataModel().startTimer(timer);
+        } else if (timer.isRunning()) {
+            DataModel.getDataModel().pauseTimer(timer);
+        }
+    }
+}
@@ -27,6 +27,8 @@ import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.view.ViewPager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -80,6 +82,8 @@ public final class TimerFragment extends DeskClockFragment {
     private TimerSetupView mCreateTimerView;
     private ViewPager mViewPager;
     private TimerPagerAdapter mAdapter;
+    private RecyclerView mTimerList;
+    private TimerListAdapter mListAdapter;
     private View mTimersView;
     private View mCurrentView;
     private ImageView[] mPageIndicators;
@@ -106,10 +110,21 @@ public final class TimerFragment extends DeskClockFragment {
             Bundle savedInstanceState) {
         final View view = inflater.inflate(R.layout.timer_fragment, container, false);
 
-        mAdapter = new TimerPagerAdapter(getFragmentManager());
         mViewPager = (ViewPager) view.findViewById(R.id.vertical_view_pager);
-        mViewPager.setAdapter(mAdapter);
-        mViewPager.addOnPageChangeListener(mTimerPageChangeListener);
+        mTimerList = (RecyclerView) view.findViewById(R.id.timer_list);
+        if (DataModel.getDataModel().getShowTimersAsList()) {
+            // Display all timers at once in a list of recycled rows.
+            mListAdapter = new TimerListAdapter(new TimerClickHandler(getFragmentManager()));
+            mTimerList.setLayoutManager(new LinearLayoutManager(getActivity()));
+            mTimerList.setAdapter(mListAdapter);
+            mTimerList.setVisibility(VISIBLE);
+            mViewPager.setVisibility(GONE);
+        } else {
+            // Display one timer per page.
+            mAdapter = new TimerPagerAdapter(getFragmentManager());
+            mViewPager.setAdapter(mAdapter);
+            mViewPager.addOnPageChangeListener(mTimerPageChangeListener);
+        }
 
         mTimersView = view.findViewById(R.id.timer_view);
         mCreateTimerView = (TimerSetupView) view.findViewById(R.id.timer_setup);
@@ -121,7 +136,7 @@ public final class TimerFragment extends DeskClockFragment {
                 (ImageView) view.findViewById(R.id.page_indicator3)
         };
 
-        DataModel.getDataModel().addTimerListener(mAdapter);
+        DataModel.getDataModel().addTimerListener(getTimerListener());
         DataModel.getDataModel().addTimerListener(mTimerWatcher);
 
         // If timer setup state is present, retrieve it to be later honored.
@@ -182,7 +197,7 @@ public final class TimerFragment extends DeskClockFragment {
             final Timer timer = DataModel.getDataModel().getTimer(showTimerId);
             if (timer != null) {
                 final int index = DataModel.getDataModel().getTimers().indexOf(timer);
-                mViewPager.setCurrentItem(index);
+                showTimer(index, false);
             }
         }
     }
@@ -202,7 +217,7 @@ public final class TimerFragment extends DeskClockFragment {
             if (timer != null) {
                 // A specific timer must be shown; show the list of timers.
                 final int index = DataModel.getDataModel().getTimers().indexOf(timer);
-                mViewPager.setCurrentItem(index);
+                showTimer(index, false);
 
                 animateToView(mTimersView, null, false);
             }
@@ -221,7 +236,7 @@ public final class TimerFragment extends DeskClockFragment {
     public void onDestroyView() {
         super.onDestroyView();
 
-        DataModel.getDataModel().removeTimerListener(mAdapter);
+        DataModel.getDataModel().removeTimerListener(getTimerListener());
         DataModel.getDataModel().removeTimerListener(mTimerWatcher);
     }
 
@@ -237,7 +252,12 @@ public final class TimerFragment extends DeskClockFragment {
     }
 
     private void updateFab(@NonNull ImageView fab, boolean animate) {
-        if (mCurrentView == mTimersView) {
+        if (mCurrentView == mTimersView && mListAdapter != null) {
+            // The list has no current timer; the fab adds a new timer instead.
+            fab.setImageResource(R.drawable.ic_add_white_24dp);
+            fab.setContentDescription(fab.getResources().getString(R.string.timer_add_timer));
+            fab.setVisibility(VISIBLE);
+        } else if (mCurrentView == mTimersView) {
             final Timer timer = getTimer();
             if (timer == null) {
                 fab.setVisibility(INVISIBLE);
@@ -303,7 +323,11 @@ public final class TimerFragment extends DeskClockFragment {
 
     @Override
     public void onUpdateFabButtons(@NonNull Button left, @NonNull Button right) {
-        if (mCurrentView == mTimersView) {
+        if (mCurrentView == mTimersView && mListAdapter != null) {
+            // Rows of the list offer their own stop and delete actions; the fab adds timers.
+            left.setVisibility(INVISIBLE);
+            right.setVisibility(INVISIBLE);
+        } else if (mCurrentView == mTimersView) {
             left.setClickable(true);
             left.setText(R.string.timer_delete);
             left.setContentDescription(left.getResources().getString(R.string.timer_delete));
@@ -327,7 +351,9 @@ public final class TimerFragment extends DeskClockFragment {
 
     @Override
     public void onFabClick(@NonNull ImageView fab) {
-        if (mCurrentView == mTimersView) {
+        if (mCurrentView == mTimersView && mListAdapter != null) {
+            animateToView(mCreateTimerView, null, true);
+        } else if (mCurrentView == mTimersView) {
             final Timer timer = getTimer();
 
             // If no timer is currently showing a fab action is meaningless.
@@ -375,7 +401,7 @@ public final class TimerFragment extends DeskClockFragment {
                 Events.sendTimerEvent(R.string.action_start, R.string.label_deskclock);
 
                 // Display the freshly created timer view.
-                mViewPager.setCurrentItem(0);
+                showTimer(0, false);
             } finally {
                 mCreatingTimer = false;
             }
@@ -433,7 +459,7 @@ public final class TimerFragment extends DeskClockFragment {
     private void updatePageIndicators() {
         final int page = mViewPager.getCurrentItem();
         final int pageIndicatorCount = mPageIndicators.length;
-        final int pageCount = mAdapter.getCount();
+        final int pageCount = mAdapter == null ? 0 : mAdapter.getCount();
 
         final int[] states = computePageIndicatorStates(page, pageIndicatorCount, pageCount);
         for (int i = 0; i < states.length; i++) {
@@ -675,17 +701,44 @@ public final class TimerFragment extends DeskClockFragment {
     }
 
     private boolean hasTimers() {
-        return mAdapter.getCount() > 0;
+        return !DataModel.getDataModel().getTimers().isEmpty();
     }
 
+    /**
+     * @return the timer displayed by the current page; {@code null} if no page is displayed or
+     *      timers are shown as a list
+     */
     private Timer getTimer() {
-        if (mViewPager == null) {
+        if (mViewPager == null || mAdapter == null) {
             return null;
         }
 
         return mAdapter.getCount() == 0 ? null : mAdapter.getTimer(mViewPager.getCurrentItem());
     }
 
+    /**
+     * @return the adapter displaying the timers, which must hear of all timer changes
+     */
+    private TimerListener getTimerListener() {
+        return mListAdapter != null ? mListAdapter : mAdapter;
+    }
+
+    /**
+     * @param index the position of the timer to bring into view
+     * @param smoothScroll {@code true} to scroll to the timer rather than jump to it
+     */
+    private void showTimer(int index, boolean smoothScroll) {
+        if (mListAdapter != null) {
+            if (smoothScroll) {
+                mTimerList.smoothScrollToPosition(index);
+            } else {
+                mTimerList.scrollToPosition(index);
+            }
+        } else {
+            mViewPager.setCurrentItem(index, smoothScroll);
+        }
+    }
+
     private void startUpdatingTime() {
         // Ensure only one copy of the runnable is ever scheduled by first stopping updates.
         stopUpdatingTime();
@@ -704,7 +757,9 @@ public final class TimerFragment extends DeskClockFragment {
         public void run() {
             final long startTime = SystemClock.elapsedRealtime();
             // If no timers require continuous updates, avoid scheduling the next update.
-            if (!mAdapter.updateTime()) {
+            final boolean continuousUpdates = mListAdapter != null
+                    ? mListAdapter.updateTime() : mAdapter.updateTime();
+            if (!continuousUpdates) {
                 return;
             }
             final long endTime = SystemClock.elapsedRealtime();
@@ -764,8 +819,14 @@ public final class TimerFragment extends DeskClockFragment {
             final int index = DataModel.getDataModel().getTimers().indexOf(after);
 
             // If the timer just expired but is not displayed, display it now.
-            if (!before.isExpired() && after.isExpired() && index != mViewPager.getCurrentItem()) {
-                mViewPager.setCurrentItem(index, true);
+            final boolean expired = !before.isExpired() && after.isExpired();
+            if (mListAdapter != null) {
+                if (expired) {
+                    showTimer(index, true);
+                }
+
+            } else if (expired && index != mViewPager.getCurrentItem()) {
+                showTimer(index, true);
 
             } else if (mCurrentView == mTimersView && index == mViewPager.getCurrentItem()) {
                 // Morph the fab from its old state to new state if necessary.
@@ -781,7 +842,7 @@ public final class TimerFragment extends DeskClockFragment {
             updatePageIndicators();
             updateFab(FAB_AND_BUTTONS_IMMEDIATE);
 
-            if (mCurrentView == mTimersView && mAdapter.getCount() == 0) {
+            if (mCurrentView == mTimersView && !hasTimers()) {
                 animateToView(mCreateTimerView, null, false);
             }
         }
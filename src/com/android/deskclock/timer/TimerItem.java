@@ -23,12 +23,14 @@ import android.support.v4.view.ViewCompat;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.widget.Button;
+import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import com.android.deskclock.R;
 import com.android.deskclock.ThemeUtils;
 import com.android.deskclock.TimerTextController;
+import com.android.deskclock.Utils;
 import com.android.deskclock.Utils.ClickAccessibilityDelegate;
 import com.android.deskclock.data.Timer;
 
@@ -55,6 +57,12 @@ public class TimerItem extends LinearLayout {
     /** Displays the label associated with the timer. Tapping it presents an edit dialog. */
     private TextView mLabelView;
 
+    /**
+     * A button that stops an expired or missed timer and deletes any other timer; only present
+     * in rows of the timer list, which lack the fab and delete button of the timer pager.
+     */
+    private ImageButton mStopDeleteButton;
+
     /** The last state of the timer that was rendered; used to avoid expensive operations. */
     private Timer.State mLastState;
 
@@ -73,6 +81,7 @@ public class TimerItem extends LinearLayout {
         mResetAddButton = (Button) findViewById(R.id.reset_add);
         mCircleView = (TimerCircleView) findViewById(R.id.timer_time);
         mTimerText = (TextView) findViewById(R.id.timer_time_text);
+        mStopDeleteButton = (ImageButton) findViewById(R.id.timer_stop_delete);
         mTimerTextController = new TimerTextController(mTimerText);
 
         final Context c = mTimerText.getContext();
@@ -87,8 +96,7 @@ public class TimerItem extends LinearLayout {
      * Updates this view to display the latest state of the {@code timer}.
      */
     void update(Timer timer) {
-        // Update the time.
-        mTimerTextController.setTimeString(timer.getRemainingTime());
+        updateTime(timer);
 
         // Update the label if it changed.
         final String label = timer.getLabel();
@@ -96,6 +104,21 @@ public class TimerItem extends LinearLayout {
             mLabelView.setText(label);
         }
 
+        // Update some potentially expensive areas of the user interface only on state changes.
+        if (timer.getState() != mLastState) {
+            mLastState = timer.getState();
+            updateState();
+        }
+    }
+
+    /**
+     * Updates only the time, progress and blinking of this view; the label and the controls must
+     * already match the state of the {@code timer}.
+     */
+    void updateTime(Timer timer) {
+        // Update the time.
+        mTimerTextController.setTimeString(timer.getRemainingTime());
+
         // Update visibility of things that may blink.
         final boolean blinkOff = SystemClock.elapsedRealtime() % 1000 < 500;
         if (mCircleView != null) {
@@ -112,45 +135,55 @@ public class TimerItem extends LinearLayout {
         } else {
             mTimerText.setAlpha(0f);
         }
+    }
 
-        // Update some potentially expensive areas of the user interface only on state changes.
-        if (timer.getState() != mLastState) {
-            mLastState = timer.getState();
-            final Context context = getContext();
-            switch (mLastState) {
-                case RESET:
-                case PAUSED: {
-                    mResetAddButton.setText(R.string.timer_reset);
-                    mResetAddButton.setContentDescription(null);
-                    mTimerText.setClickable(true);
-                    mTimerText.setActivated(false);
-                    mTimerText.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_YES);
-                    ViewCompat.setAccessibilityDelegate(mTimerText, new ClickAccessibilityDelegate(
-                            context.getString(R.string.timer_start), true));
-                    break;
-                }
-                case RUNNING: {
-                    final String addTimeDesc = context.getString(R.string.timer_plus_one);
-                    mResetAddButton.setText(R.string.timer_add_minute);
-                    mResetAddButton.setContentDescription(addTimeDesc);
-                    mTimerText.setClickable(true);
-                    mTimerText.setActivated(false);
-                    mTimerText.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_YES);
-                    ViewCompat.setAccessibilityDelegate(mTimerText, new ClickAccessibilityDelegate(
-                            context.getString(R.string.timer_pause)));
-                    break;
-                }
-                case EXPIRED:
-                case MISSED: {
-                    final String addTimeDesc = context.getString(R.string.timer_plus_one);
-                    mResetAddButton.setText(R.string.timer_add_minute);
-                    mResetAddButton.setContentDescription(addTimeDesc);
-                    mTimerText.setClickable(false);
-                    mTimerText.setActivated(true);
-                    mTimerText.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_NO);
-                    break;
-                }
+    /**
+     * Updates the controls to match the last rendered state of the timer.
+     */
+    private void updateState() {
+        final Context context = getContext();
+        switch (mLastState) {
+            case RESET:
+            case PAUSED: {
+                mResetAddButton.setText(R.string.timer_reset);
+                mResetAddButton.setContentDescription(null);
+                mTimerText.setClickable(true);
+                mTimerText.setActivated(false);
+                mTimerText.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_YES);
+                ViewCompat.setAccessibilityDelegate(mTimerText, new ClickAccessibilityDelegate(
+                        context.getString(R.string.timer_start), true));
+                break;
+            }
+            case RUNNING: {
+                final String addTimeDesc = context.getString(R.string.timer_plus_one);
+                mResetAddButton.setText(R.string.timer_add_minute);
+                mResetAddButton.setContentDescription(addTimeDesc);
+                mTimerText.setClickable(true);
+                mTimerText.setActivated(false);
+                mTimerText.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_YES);
+                ViewCompat.setAccessibilityDelegate(mTimerText, new ClickAccessibilityDelegate(
+                        context.getString(R.string.timer_pause)));
+                break;
             }
+            case EXPIRED:
+            case MISSED: {
+                final String addTimeDesc = context.getString(R.string.timer_plus_one);
+                mResetAddButton.setText(R.string.timer_add_minute);
+                mResetAddButton.setContentDescription(addTimeDesc);
+                mTimerText.setClickable(false);
+                mTimerText.setActivated(true);
+                mTimerText.setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_NO);
+                break;
+            }
+        }
+
+        if (mStopDeleteButton != null) {
+            final boolean stop = mLastState == Timer.State.EXPIRED
+                    || mLastState == Timer.State.MISSED;
+            final int iconId = stop ? R.drawable.ic_stop_24dp : R.drawable.ic_delete_small;
+            final int descriptionId = stop ? R.string.timer_stop : R.string.timer_delete;
+            mStopDeleteButton.setImageDrawable(Utils.getVectorDrawable(context, iconId));
+            mStopDeleteButton.setContentDescription(context.getString(descriptionId));
         }
     }
 }
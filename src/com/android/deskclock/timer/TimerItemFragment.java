@@ -17,24 +17,23 @@
 package com.android.deskclock.timer;
 
 import android.app.Fragment;
-import android.content.Context;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.android.deskclock.LabelDialogFragment;
 import com.android.deskclock.R;
 import com.android.deskclock.data.DataModel;
 import com.android.deskclock.data.Timer;
-import com.android.deskclock.data.TimerStringFormatter;
-import com.android.deskclock.events.Events;
 
 public class TimerItemFragment extends Fragment {
 
     private static final String KEY_TIMER_ID = "KEY_TIMER_ID";
     private int mTimerId;
 
+    /** Performs the actions offered by the timer view. */
+    private TimerClickHandler mClickHandler;
+
     /** The public no-arg constructor required by all fragments. */
     public TimerItemFragment() {}
 
@@ -61,6 +60,8 @@ public class TimerItemFragment extends Fragment {
             return null;
         }
 
+        mClickHandler = new TimerClickHandler(getFragmentManager());
+
         final TimerItem view = (TimerItem) inflater.inflate(R.layout.timer_item, container, false);
         view.findViewById(R.id.reset_add).setOnClickListener(new ResetAddListener());
         view.findViewById(R.id.timer_label).setOnClickListener(new EditLabelListener());
@@ -95,42 +96,21 @@ public class TimerItemFragment extends Fragment {
     private final class ResetAddListener implements View.OnClickListener {
         @Override
         public void onClick(View v) {
-            final Timer timer = getTimer();
-            if (timer.isPaused()) {
-                DataModel.getDataModel().resetOrDeleteTimer(timer, R.string.label_deskclock);
-            } else if (timer.isRunning() || timer.isExpired() || timer.isMissed()) {
-                DataModel.getDataModel().addTimerMinute(timer);
-                Events.sendTimerEvent(R.string.action_add_minute, R.string.label_deskclock);
-
-                final Context context = v.getContext();
-                // Must use getTimer() because old timer is no longer accurate.
-                final long currentTime = getTimer().getRemainingTime();
-                if (currentTime > 0) {
-                    v.announceForAccessibility(TimerStringFormatter.formatString(
-                            context, R.string.timer_accessibility_one_minute_added, currentTime,
-                            true));
-                }
-            }
+            mClickHandler.onResetAddClicked(v, getTimerId());
         }
     }
 
     private final class EditLabelListener implements View.OnClickListener {
         @Override
         public void onClick(View v) {
-            final LabelDialogFragment fragment = LabelDialogFragment.newInstance(getTimer());
-            LabelDialogFragment.show(getFragmentManager(), fragment);
+            mClickHandler.onLabelClicked(getTimerId());
         }
     }
 
     private final class TimeTextListener implements View.OnClickListener {
         @Override
         public void onClick(View view) {
-            final Timer clickedTimer = getTimer();
-            if (clickedTimer.isPaused() || clickedTimer.isReset()) {
-                DataModel.getDataModel().startTimer(clickedTimer);
-            } else if (clickedTimer.isRunning()) {
-                DataModel.getDataModel().pauseTimer(clickedTimer);
-            }
+            mClickHandler.onTimeTextClicked(getTimerId());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.timer;
+
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.android.deskclock.R;
+import com.android.deskclock.data.DataModel;
+import com.android.deskclock.data.Timer;
+import com.android.deskclock.data.TimerListener;
+
+import java.util.List;
+
+/**
+ * Displays all timers in a single list of recycled {@link TimerItem} rows. Unlike
+ * {@link TimerPagerAdapter}, no fragment or fragment transaction is required per timer, so many
+ * timers can be displayed at once with little memory. Changes that only affect the displayed time
+ * are bound as partial updates that leave the label and controls of the row untouched.
+ */
+class TimerListAdapter extends RecyclerView.Adapter<TimerListAdapter.TimerViewHolder>
+        implements TimerListener {
+
+    /** Payload indicating that only the time displayed by a row must be refreshed. */
+    private static final Object PAYLOAD_TIME = new Object();
+
+    private final TimerClickHandler mClickHandler;
+
+    /** Maps each timer id to the position of the timer within the list. */
+    private final SparseIntArray mPositions = new SparseIntArray();
+
+    /** The ids of the timers that are not reset and thus require continuous updates. */
+    private final SparseBooleanArray mActiveTimerIds = new SparseBooleanArray();
+
+    /** The list displaying the rows; {@code null} while this adapter is not attached. */
+    private RecyclerView mRecyclerView;
+
+    TimerListAdapter(TimerClickHandler clickHandler) {
+        mClickHandler = clickHandler;
+        setHasStableIds(true);
+        rebuildIndex();
+    }
+
+    @Override
+    public int getItemCount() {
+        return getTimers().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getTimers().get(position).getId();
+    }
+
+    @Override
+    public TimerViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        final LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        final View view = inflater.inflate(R.layout.timer_list_item, parent, false);
+        return new TimerViewHolder((TimerItem) view, mClickHandler);
+    }
+
+    @Override
+    public void onBindViewHolder(TimerViewHolder holder, int position) {
+        holder.bind(getTimers().get(position));
+    }
+
+    @Override
+    public void onBindViewHolder(TimerViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_TIME
+                && holder.mTimerId == getItemId(position)) {
+            holder.updateTime(getTimers().get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mRecyclerView = null;
+    }
+
+    @Override
+    public void timerAdded(Timer timer) {
+        rebuildIndex();
+        notifyItemInserted(mPositions.get(timer.getId()));
+    }
+
+    @Override
+    public void timerRemoved(Timer timer) {
+        final int position = mPositions.get(timer.getId(), RecyclerView.NO_POSITION);
+        rebuildIndex();
+        if (position == RecyclerView.NO_POSITION) {
+            notifyDataSetChanged();
+        } else {
+            notifyItemRemoved(position);
+        }
+    }
+
+    @Override
+    public void timerUpdated(Timer before, Timer after) {
+        if (after.isReset()) {
+            mActiveTimerIds.delete(after.getId());
+        } else {
+            mActiveTimerIds.put(after.getId(), true);
+        }
+
+        final int position = mPositions.get(after.getId(), RecyclerView.NO_POSITION);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        final boolean timeOnly = before.getState() == after.getState()
+                && TextUtils.equals(before.getLabel(), after.getLabel());
+        if (timeOnly) {
+            notifyItemChanged(position, PAYLOAD_TIME);
+        } else {
+            notifyItemChanged(position);
+        }
+    }
+
+    /**
+     * Redraws the rows currently attached to the list; detached rows are rebound with the latest
+     * state when they are scrolled back into view.
+     *
+     * @return {@code true} if at least one timer is in a state requiring continuous updates
+     */
+    boolean updateTime() {
+        if (mRecyclerView != null) {
+            final List<Timer> timers = getTimers();
+            for (int i = 0; i < mRecyclerView.getChildCount(); i++) {
+                final View child = mRecyclerView.getChildAt(i);
+                final TimerViewHolder holder =
+                        (TimerViewHolder) mRecyclerView.getChildViewHolder(child);
+                // Rows awaiting a pending structural change are rebound by that change.
+                final int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && position < timers.size()) {
+                    holder.updateTime(timers.get(position));
+                }
+            }
+        }
+        return mActiveTimerIds.size() > 0;
+    }
+
+    /**
+     * @return the position of the timer with the given {@code timerId};
+     *      {@link RecyclerView#NO_POSITION} if no such timer exists
+     */
+    int getPosition(int timerId) {
+        return mPositions.get(timerId, RecyclerView.NO_POSITION);
+    }
+
+    private List<Timer> getTimers() {
+        return DataModel.getDataModel().getTimers();
+    }
+
+    /**
+     * Recomputes the position of each timer and the set of timers that are not reset.
+     */
+    private void rebuildIndex() {
+        mPositions.clear();
+        mActiveTimerIds.clear();
+
+        final List<Timer> timers = getTimers();
+        for (int position = 0; position < timers.size(); position++) {
+            final Timer timer = timers.get(position);
+            mPositions.put(timer.getId(), position);
+            if (!timer.isReset()) {
+                mActiveTimerIds.put(timer.getId(), true);
+            }
+        }
+    }
+
+    /**
+     * Holds a recycled {@link TimerItem} and the id of the timer it currently displays.
+     */
+    static final class TimerViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener {
+
+        private final TimerItem mTimerItem;
+        private final TimerClickHandler mClickHandler;
+
+        /** The id of the displayed timer; {@code -1} until the first bind. */
+        private int mTimerId = -1;
+
+        private TimerViewHolder(TimerItem itemView, TimerClickHandler clickHandler) {
+            super(itemView);
+            mTimerItem = itemView;
+            mClickHandler = clickHandler;
+
+            itemView.findViewById(R.id.reset_add).setOnClickListener(this);
+            itemView.findViewById(R.id.timer_label).setOnClickListener(this);
+            itemView.findViewById(R.id.timer_time_text).setOnClickListener(this);
+            itemView.findViewById(R.id.timer_stop_delete).setOnClickListener(this);
+        }
+
+        private void bind(Timer timer) {
+            mTimerId = timer.getId();
+            mTimerItem.update(timer);
+        }
+
+        private void updateTime(Timer timer) {
+            mTimerItem.updateTime(timer);
+        }
+
+        @Override
+        public void onClick(View view) {
+            switch (view.getId()) {
+                case R.id.reset_add:
+                    mClickHandler.onResetAddClicked(view, mTimerId);
+                    break;
+                case R.id.timer_label:
+                    mClickHandler.onLabelClicked(mTimerId);
+                    break;
+                case R.id.timer_time_text:
+                    mClickHandler.onTimeTextClicked(mTimerId);
+                    break;
+                case R.id.timer_stop_delete:
+                    mClickHandler.onStopOrDeleteClicked(view, mTimerId);
+                    break;
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@ import android.app.FragmentTransaction;
 import android.support.v13.app.FragmentCompat;
 import android.support.v4.view.PagerAdapter;
 import android.util.ArrayMap;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -34,7 +36,9 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * This adapter produces a {@link TimerItemFragment} for each timer.
+ * This adapter produces a {@link TimerItemFragment} for each timer. Only the primary page and its
+ * neighbors are redrawn by {@link #updateTime()}; whether redrawing must continue is answered from
+ * an index of the timers that are not reset, which is kept current by timer change events.
  */
 class TimerPagerAdapter extends PagerAdapter implements TimerListener {
 
@@ -49,8 +53,18 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
     /** The {@link TimerItemFragment} that is current visible on screen. */
     private Fragment mCurrentPrimaryItem;
 
+    /** The position of {@link #mCurrentPrimaryItem}; {@code -1} if no page is visible. */
+    private int mCurrentPrimaryPosition = -1;
+
+    /** Maps each timer id to the position of the timer within the pager. */
+    private final SparseIntArray mPositions = new SparseIntArray();
+
+    /** The ids of the timers that are not reset and thus require continuous updates. */
+    private final SparseBooleanArray mActiveTimerIds = new SparseBooleanArray();
+
     public TimerPagerAdapter(FragmentManager fragmentManager) {
         mFragmentManager = fragmentManager;
+        rebuildIndex();
     }
 
     @Override
@@ -66,10 +80,7 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
     @Override
     public int getItemPosition(Object object) {
         final TimerItemFragment fragment = (TimerItemFragment) object;
-        final Timer timer = fragment.getTimer();
-
-        final int position = getTimers().indexOf(timer);
-        return position == -1 ? POSITION_NONE : position;
+        return mPositions.get(fragment.getTimerId(), POSITION_NONE);
     }
 
     @Override
@@ -125,6 +136,7 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
             }
 
             mCurrentPrimaryItem = fragment;
+            mCurrentPrimaryPosition = fragment == null ? -1 : position;
 
             if (mCurrentPrimaryItem != null) {
                 setItemVisible(mCurrentPrimaryItem, true);
@@ -141,6 +153,12 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
         }
     }
 
+    @Override
+    public void notifyDataSetChanged() {
+        rebuildIndex();
+        super.notifyDataSetChanged();
+    }
+
     @Override
     public void timerAdded(Timer timer) {
         notifyDataSetChanged();
@@ -153,6 +171,12 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
 
     @Override
     public void timerUpdated(Timer before, Timer after) {
+        if (after.isReset()) {
+            mActiveTimerIds.delete(after.getId());
+        } else {
+            mActiveTimerIds.put(after.getId(), true);
+        }
+
         final TimerItemFragment timerItemFragment = mFragments.get(after.getId());
         if (timerItemFragment != null) {
             timerItemFragment.updateTime();
@@ -160,14 +184,25 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
     }
 
     /**
+     * Redraws the visible page and the pages adjacent to it, which may be partially visible while
+     * the pager scrolls. Other pages are brought up to date by {@link #timerUpdated} and when
+     * they become adjacent to the visible page.
+     *
      * @return {@code true} if at least one timer is in a state requiring continuous updates
      */
     boolean updateTime() {
-        boolean continuousUpdates = false;
-        for (TimerItemFragment fragment : mFragments.values()) {
-            continuousUpdates |= fragment.updateTime();
+        if (mCurrentPrimaryPosition != -1) {
+            final List<Timer> timers = getTimers();
+            final int first = Math.max(0, mCurrentPrimaryPosition - 1);
+            final int last = Math.min(timers.size() - 1, mCurrentPrimaryPosition + 1);
+            for (int position = first; position <= last; position++) {
+                final TimerItemFragment fragment = mFragments.get(timers.get(position).getId());
+                if (fragment != null) {
+                    fragment.updateTime();
+                }
+            }
         }
-        return continuousUpdates;
+        return mActiveTimerIds.size() > 0;
     }
 
     Timer getTimer(int index) {
@@ -178,6 +213,23 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
         return DataModel.getDataModel().getTimers();
     }
 
+    /**
+     * Recomputes the position of each timer and the set of timers that are not reset.
+     */
+    private void rebuildIndex() {
+        mPositions.clear();
+        mActiveTimerIds.clear();
+
+        final List<Timer> timers = getTimers();
+        for (int position = 0; position < timers.size(); position++) {
+            final Timer timer = timers.get(position);
+            mPositions.put(timer.getId(), position);
+            if (!timer.isReset()) {
+                mActiveTimerIds.put(timer.getId(), true);
+            }
+        }
+    }
+
     private static void setItemVisible(Fragment item, boolean visible) {
         FragmentCompat.setMenuVisibility(item, visible);
         FragmentCompat.setUserVisibleHint(item, visible);
@@ -23,6 +23,7 @@ import android.os.IBinder;
 
 import com.android.deskclock.DeskClock;
 import com.android.deskclock.R;
+import com.android.deskclock.StartupTrace;
 import com.android.deskclock.data.DataModel;
 import com.android.deskclock.data.Timer;
 import com.android.deskclock.events.Events;
@@ -111,6 +112,8 @@ public final class TimerService extends Service {
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
+        StartupTrace.recordLaunch("TimerService");
+        final StartupTrace.Phase phase = StartupTrace.beginPhase("TimerService.onStartCommand");
         try {
             final String action = intent.getAction();
             final int label = intent.getIntExtra(Events.EXTRA_EVENT_LABEL, R.string.label_intent);
@@ -179,10 +182,15 @@ public final class TimerService extends Service {
                 }
             }
         } finally {
+            // The process may be stopped at any time, even while this service is foreground.
+            DataModel.getDataModel().flushPendingWrites();
+
             // This service is foreground when expired timers exist and stopped when none exist.
             if (DataModel.getDataModel().getExpiredTimers().isEmpty()) {
                 stopSelf();
             }
+            phase.end();
+            StartupTrace.endStartup();
         }
 
         return START_NOT_STICKY;
@@ -22,18 +22,22 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Handler;
 import android.support.annotation.VisibleForTesting;
+import android.support.v4.util.ArrayMap;
 
 import com.android.deskclock.LogUtils;
 
 import java.util.Calendar;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static android.content.Intent.ACTION_DATE_CHANGED;
 import static android.content.Intent.ACTION_TIMEZONE_CHANGED;
 import static android.content.Intent.ACTION_TIME_CHANGED;
 import static android.text.format.DateUtils.HOUR_IN_MILLIS;
 import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
+import static android.text.format.DateUtils.SECOND_IN_MILLIS;
 import static com.android.deskclock.Utils.enforceMainLooper;
 import static java.util.Calendar.DATE;
 import static java.util.Calendar.HOUR_OF_DAY;
@@ -44,13 +48,19 @@ import static java.util.Calendar.SECOND;
 /**
  * All callbacks to be delivered at requested times on the main thread if the application is in the
  * foreground when the callback time passes.
+ *
+ * <p>Callbacks that share a period and offset are due at exactly the same instant, so they are
+ * grouped into a single {@link CallbackGroup} that posts one Handler message per period boundary
+ * and runs all of its callbacks in registration order. Adding and removing a callback are constant
+ * time operations. The next midnight boundary is computed once and reused by all midnight groups
+ * until it passes or the device time/time zone changes.</p>
  */
 final class PeriodicCallbackModel {
 
     private static final LogUtils.Logger LOGGER = new LogUtils.Logger("Periodic");
 
     @VisibleForTesting
-    enum Period {MINUTE, QUARTER_HOUR, HOUR, MIDNIGHT}
+    enum Period {SECOND, MINUTE, QUARTER_HOUR, HOUR, MIDNIGHT}
 
     private static final long QUARTER_HOUR_IN_MILLIS = 15 * MINUTE_IN_MILLIS;
 
@@ -60,7 +70,17 @@ final class PeriodicCallbackModel {
     @SuppressWarnings("FieldCanBeLocal")
     private final BroadcastReceiver mTimeChangedReceiver = new TimeChangedReceiver();
 
-    private final List<PeriodicRunnable> mPeriodicRunnables = new CopyOnWriteArrayList<>();
+    /** Maps each (period, offset) pair to the group of callbacks due at its boundaries. */
+    private final Map<GroupKey, CallbackGroup> mGroups = new ArrayMap<>();
+
+    /** Maps each registered callback to the group that runs it. */
+    private final Map<Runnable, CallbackGroup> mCallbackGroups = new IdentityHashMap<>();
+
+    /** The start of the current day in the default time zone; valid with {@link #mNextMidnight}. */
+    private long mLastMidnight = Long.MAX_VALUE;
+
+    /** The start of the next day in the default time zone. */
+    private long mNextMidnight = Long.MIN_VALUE;
 
     PeriodicCallbackModel(Context context) {
         // Reschedules callbacks when the device time changes.
@@ -71,6 +91,14 @@ final class PeriodicCallbackModel {
         context.registerReceiver(mTimeChangedReceiver, timeChangedBroadcastFilter);
     }
 
+    /**
+     * @param runnable to be called every second
+     * @param offset an offset applied to the second to control when the callback occurs
+     */
+    void addSecondCallback(Runnable runnable, long offset) {
+        addPeriodicCallback(runnable, Period.SECOND, offset);
+    }
+
     /**
      * @param runnable to be called every minute
      * @param offset an offset applied to the minute to control when the callback occurs
@@ -104,24 +132,32 @@ final class PeriodicCallbackModel {
     }
 
     /**
-     * @param runnable to be called periodically
+     * @param runnable to be called periodically; replaces any prior registration of the runnable
      */
     private void addPeriodicCallback(Runnable runnable, Period period, long offset) {
-        final PeriodicRunnable periodicRunnable = new PeriodicRunnable(runnable, period, offset);
-        mPeriodicRunnables.add(periodicRunnable);
-        periodicRunnable.schedule();
+        removePeriodicCallback(runnable);
+
+        final GroupKey key = new GroupKey(period, offset);
+        CallbackGroup group = mGroups.get(key);
+        if (group == null) {
+            group = new CallbackGroup(key);
+            mGroups.put(key, group);
+        }
+
+        mCallbackGroups.put(runnable, group);
+        if (group.add(runnable)) {
+            group.schedule();
+        }
     }
 
     /**
      * @param runnable to no longer be called periodically
      */
     void removePeriodicCallback(Runnable runnable) {
-        for (PeriodicRunnable periodicRunnable : mPeriodicRunnables) {
-            if (periodicRunnable.mDelegate == runnable) {
-                periodicRunnable.unSchedule();
-                mPeriodicRunnables.remove(periodicRunnable);
-                return;
-            }
+        final CallbackGroup group = mCallbackGroups.remove(runnable);
+        if (group != null && group.remove(runnable)) {
+            group.unSchedule();
+            mGroups.remove(group.mKey);
         }
     }
 
@@ -139,6 +175,11 @@ final class PeriodicCallbackModel {
         final long periodStart = now - offset;
 
         switch (period) {
+            case SECOND:
+                final long lastSecond = periodStart - (periodStart % SECOND_IN_MILLIS);
+                final long nextSecond = lastSecond + SECOND_IN_MILLIS;
+                return nextSecond - now + offset;
+
             case MINUTE:
                 final long lastMinute = periodStart - (periodStart % MINUTE_IN_MILLIS);
                 final long nextMinute = lastMinute + MINUTE_IN_MILLIS;
@@ -155,20 +196,65 @@ final class PeriodicCallbackModel {
                 return nextHour - now + offset;
 
             case MIDNIGHT:
-                final Calendar nextMidnight = Calendar.getInstance();
-                nextMidnight.setTimeInMillis(periodStart);
-                nextMidnight.add(DATE, 1);
-                nextMidnight.set(HOUR_OF_DAY, 0);
-                nextMidnight.set(MINUTE, 0);
-                nextMidnight.set(SECOND, 0);
-                nextMidnight.set(MILLISECOND, 0);
-                return nextMidnight.getTimeInMillis() - now + offset;
+                return getNextMidnight(periodStart) - now + offset;
 
             default:
                 throw new IllegalArgumentException("unexpected period: " + period);
         }
     }
 
+    /**
+     * Like {@link #getDelay(long, Period, long)} but reuses the most recently computed midnight
+     * boundary while it remains valid, avoiding a Calendar computation for each midnight group.
+     */
+    private long getCachedDelay(long now, Period period, long offset) {
+        if (period != Period.MIDNIGHT) {
+            return getDelay(now, period, offset);
+        }
+
+        final long periodStart = now - offset;
+        if (periodStart < mLastMidnight || periodStart >= mNextMidnight) {
+            mNextMidnight = getNextMidnight(periodStart);
+            mLastMidnight = getLastMidnight(periodStart);
+        }
+        return mNextMidnight - now + offset;
+    }
+
+    /**
+     * Forgets the cached midnight boundary, e.g. because the time zone changed.
+     */
+    private void clearMidnightCache() {
+        mLastMidnight = Long.MAX_VALUE;
+        mNextMidnight = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the first midnight in the default time zone after the given {@code time}
+     */
+    private static long getNextMidnight(long time) {
+        final Calendar nextMidnight = Calendar.getInstance();
+        nextMidnight.setTimeInMillis(time);
+        nextMidnight.add(DATE, 1);
+        nextMidnight.set(HOUR_OF_DAY, 0);
+        nextMidnight.set(MINUTE, 0);
+        nextMidnight.set(SECOND, 0);
+        nextMidnight.set(MILLISECOND, 0);
+        return nextMidnight.getTimeInMillis();
+    }
+
+    /**
+     * @return the last midnight in the default time zone at or before the given {@code time}
+     */
+    private static long getLastMidnight(long time) {
+        final Calendar lastMidnight = Calendar.getInstance();
+        lastMidnight.setTimeInMillis(time);
+        lastMidnight.set(HOUR_OF_DAY, 0);
+        lastMidnight.set(MINUTE, 0);
+        lastMidnight.set(SECOND, 0);
+        lastMidnight.set(MILLISECOND, 0);
+        return lastMidnight.getTimeInMillis();
+    }
+
     private static Handler getHandler() {
         enforceMainLooper();
         if (sHandler == null) {
@@ -178,36 +264,110 @@ final class PeriodicCallbackModel {
     }
 
     /**
-     * Schedules the execution of the given delegate Runnable at the next callback time.
+     * Identifies the boundaries at which a group of callbacks is due.
      */
-    private static final class PeriodicRunnable implements Runnable {
+    private static final class GroupKey {
 
-        private final Runnable mDelegate;
         private final Period mPeriod;
         private final long mOffset;
 
-        public PeriodicRunnable(Runnable delegate, Period period, long offset) {
-            mDelegate = delegate;
+        private GroupKey(Period period, long offset) {
             mPeriod = period;
             mOffset = offset;
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final GroupKey that = (GroupKey) o;
+            return mOffset == that.mOffset && mPeriod == that.mPeriod;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mPeriod.hashCode() + (int) (mOffset ^ (mOffset >>> 32));
+        }
+    }
+
+    /**
+     * Schedules the execution of all delegate Runnables sharing a period and offset with a single
+     * Handler message at the next callback time.
+     */
+    private final class CallbackGroup implements Runnable {
+
+        private final GroupKey mKey;
+
+        /** The delegates to run, in registration order. */
+        private final Set<Runnable> mDelegates = new LinkedHashSet<>();
+
+        /** A copy of {@link #mDelegates}; {@code null} once it changes until the next run. */
+        private Runnable[] mDelegateSnapshot;
+
+        private CallbackGroup(GroupKey key) {
+            mKey = key;
+        }
+
+        /**
+         * @return {@code true} if the group was empty before the delegate was added
+         */
+        private boolean add(Runnable delegate) {
+            if (mDelegates.add(delegate)) {
+                mDelegateSnapshot = null;
+            }
+            return mDelegates.size() == 1;
+        }
+
+        /**
+         * @return {@code true} if the group is empty after the delegate was removed
+         */
+        private boolean remove(Runnable delegate) {
+            if (mDelegates.remove(delegate)) {
+                mDelegateSnapshot = null;
+            }
+            return mDelegates.isEmpty();
+        }
+
         @Override
         public void run() {
-            LOGGER.i("Executing periodic callback for %s because the period ended", mPeriod);
-            mDelegate.run();
+            // Seconds elapse too often to be worth logging.
+            if (mKey.mPeriod != Period.SECOND) {
+                LOGGER.i("Executing periodic callbacks for %s because the period ended",
+                        mKey.mPeriod);
+            }
+            runDelegates();
             schedule();
         }
 
         private void runAndReschedule() {
-            LOGGER.i("Executing periodic callback for %s because the time changed", mPeriod);
+            LOGGER.i("Executing periodic callbacks for %s because the time changed", mKey.mPeriod);
             unSchedule();
-            mDelegate.run();
+            runDelegates();
             schedule();
         }
 
+        private void runDelegates() {
+            // Delegates may add or remove callbacks while running; iterate over a snapshot. The
+            // snapshot is only rebuilt after the delegates change so that ticks do not allocate.
+            if (mDelegateSnapshot == null) {
+                mDelegateSnapshot = mDelegates.toArray(new Runnable[mDelegates.size()]);
+            }
+            final Runnable[] delegates = mDelegateSnapshot;
+            for (Runnable delegate : delegates) {
+                // Skip delegates removed by an earlier delegate in this same pass.
+                if (mCallbackGroups.get(delegate) == this) {
+                    delegate.run();
+                }
+            }
+        }
+
         private void schedule() {
-            final long delay = getDelay(System.currentTimeMillis(), mPeriod, mOffset);
+            if (mDelegates.isEmpty()) {
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            final long delay = getCachedDelay(now, mKey.mPeriod, mKey.mOffset);
             getHandler().postDelayed(this, delay);
         }
 
@@ -222,9 +382,12 @@ final class PeriodicCallbackModel {
     private final class TimeChangedReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            for (PeriodicRunnable periodicRunnable : mPeriodicRunnables) {
-                periodicRunnable.runAndReschedule();
+            clearMidnightCache();
+
+            final CallbackGroup[] groups = mGroups.values().toArray(new CallbackGroup[0]);
+            for (CallbackGroup group : groups) {
+                group.runAndReschedule();
             }
         }
     }
-}
\ No newline at end of file
+}
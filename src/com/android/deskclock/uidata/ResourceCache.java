@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.deskclock.uidata;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.AnyRes;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.graphics.drawable.VectorDrawableCompat;
+import android.support.v4.util.ArrayMap;
+import android.support.v4.util.LruCache;
+import android.util.TypedValue;
+
+import com.android.deskclock.LogUtils;
+import com.android.deskclock.R;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Memoizes resources that are expensive to load or render: typefaces parsed from assets, vector
+ * drawables inflated from xml and bitmaps rendered at a particular size and color. Drawables and
+ * bitmaps are held in bounded least-recently-used caches that are trimmed when the system reports
+ * memory pressure. All methods are safe to call from any thread.
+ */
+final class ResourceCache {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("ResourceCache");
+
+    /** The maximum number of inflated drawables retained. */
+    private static final int MAX_DRAWABLES = 32;
+
+    /** The maximum number of bytes of rendered bitmaps retained. */
+    private static final int MAX_BITMAP_BYTES = 1024 * 1024;
+
+    /**
+     * The theme attributes referenced by the vector drawables of the application. Themes that
+     * resolve them identically inflate identical drawables, so they share cache entries.
+     */
+    private static final int[] DRAWABLE_THEME_ATTRS = {
+            R.attr.colorAccent,
+            R.attr.colorControlNormal
+    };
+
+    private final Context mContext;
+
+    /** Maps asset path to the typeface loaded from it; typefaces are small and never evicted. */
+    private final Map<String, Typeface> mTypefaces = new ArrayMap<>(1);
+
+    /** Maps (resource id, density, theme values) to the state of the drawable inflated from it. */
+    private final LruCache<DrawableKey, Drawable.ConstantState> mDrawables =
+            new LruCache<>(MAX_DRAWABLES);
+
+    /** Maps (resource id, size, color) to the bitmap rendered from it. */
+    private final LruCache<BitmapKey, Bitmap> mBitmaps =
+            new LruCache<BitmapKey, Bitmap>(MAX_BITMAP_BYTES) {
+                @Override
+                protected int sizeOf(BitmapKey key, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+
+    ResourceCache(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * @param assetPath the path of a font file within the application assets
+     * @return the typeface loaded from the given {@code assetPath}
+     */
+    synchronized Typeface getTypeface(String assetPath) {
+        Typeface typeface = mTypefaces.get(assetPath);
+        if (typeface == null) {
+            typeface = Typeface.createFromAsset(mContext.getAssets(), assetPath);
+            mTypefaces.put(assetPath, typeface);
+        }
+        return typeface;
+    }
+
+    /**
+     * Like drawables returned by {@link Resources#getDrawable}, the result shares its constant
+     * state with other drawables inflated from the same resource and theme; callers must
+     * {@link Drawable#mutate() mutate} it before changing that state, e.g. its tint.
+     *
+     * @param context supplies the resources and theme with which to inflate the drawable
+     * @param resId identifies the vector drawable resource
+     * @return a new drawable inflated from the given {@code resId}
+     */
+    VectorDrawableCompat getVectorDrawable(Context context, @DrawableRes int resId) {
+        final Resources resources = context.getResources();
+        final Resources.Theme theme = context.getTheme();
+        final DrawableKey key = new DrawableKey(resId,
+                resources.getConfiguration().densityDpi, getThemeValues(theme));
+
+        final Drawable.ConstantState state = mDrawables.get(key);
+        if (state != null) {
+            return (VectorDrawableCompat) state.newDrawable(resources, theme);
+        }
+
+        final VectorDrawableCompat drawable = VectorDrawableCompat.create(resources, resId, theme);
+        if (drawable != null && drawable.getConstantState() != null) {
+            mDrawables.put(key, drawable.getConstantState());
+        }
+        return drawable;
+    }
+
+    /**
+     * @return the resource ids and data of the {@link #DRAWABLE_THEME_ATTRS} in the given
+     *      {@code theme}, which identify the theme without retaining it
+     */
+    private static int[] getThemeValues(Resources.Theme theme) {
+        final TypedValue value = new TypedValue();
+        final int[] values = new int[DRAWABLE_THEME_ATTRS.length * 2];
+        for (int i = 0; i < DRAWABLE_THEME_ATTRS.length; i++) {
+            if (theme.resolveAttribute(DRAWABLE_THEME_ATTRS[i], value, true)) {
+                values[2 * i] = value.resourceId;
+                values[2 * i + 1] = value.data;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the bitmap previously rendered from {@code resId} at the given {@code size} and
+     *      {@code color}; {@code null} if no such bitmap is cached
+     */
+    Bitmap getBitmap(@AnyRes int resId, int size, @ColorInt int color) {
+        return mBitmaps.get(new BitmapKey(resId, size, color));
+    }
+
+    /**
+     * @param bitmap a bitmap rendered from {@code resId} at the given {@code size} and
+     *      {@code color}; it must not be modified after it is cached
+     */
+    void putBitmap(@AnyRes int resId, int size, @ColorInt int color, Bitmap bitmap) {
+        mBitmaps.put(new BitmapKey(resId, size, color), bitmap);
+    }
+
+    /**
+     * Releases cached resources in proportion to the memory pressure indicated by {@code level}.
+     *
+     * @param level one of the {@link ComponentCallbacks2} {@code TRIM_MEMORY_*} constants
+     */
+    void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            LOGGER.i("Evicting all cached drawables and bitmaps at trim level %d", level);
+            mDrawables.evictAll();
+            mBitmaps.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            LOGGER.i("Evicting half of the cached bitmaps at trim level %d", level);
+            mBitmaps.trimToSize(mBitmaps.size() / 2);
+        }
+    }
+
+    /**
+     * Identifies a drawable resource inflated at a particular density with a particular theme.
+     */
+    private static final class DrawableKey {
+
+        private final int mResId;
+        private final int mDensityDpi;
+        private final int[] mThemeValues;
+
+        private DrawableKey(int resId, int densityDpi, int[] themeValues) {
+            mResId = resId;
+            mDensityDpi = densityDpi;
+            mThemeValues = themeValues;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final DrawableKey that = (DrawableKey) o;
+            return mResId == that.mResId && mDensityDpi == that.mDensityDpi
+                    && Arrays.equals(mThemeValues, that.mThemeValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * mResId + mDensityDpi) + Arrays.hashCode(mThemeValues);
+        }
+    }
+
+    /**
+     * Identifies a resource rendered at a particular size and color.
+     */
+    private static final class BitmapKey {
+
+        private final int mResId;
+        private final int mSize;
+        private final int mColor;
+
+        private BitmapKey(int resId, int size, int color) {
+            mResId = resId;
+            mSize = size;
+            mColor = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final BitmapKey that = (BitmapKey) o;
+            return mResId == that.mResId && mSize == that.mSize && mColor == that.mColor;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * mResId + mSize) + mColor;
+        }
+    }
+}
@@ -18,9 +18,14 @@ package com.android.deskclock.uidata;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.AnyRes;
+import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.StringRes;
+import android.support.graphics.drawable.VectorDrawableCompat;
 
 import com.android.deskclock.AlarmClockFragment;
 import com.android.deskclock.ClockFragment;
@@ -77,6 +82,9 @@ public final class UiDataModel {
     /** The model from which timed callbacks originate. */
     private PeriodicCallbackModel mPeriodicCallbackModel;
 
+    /** The cache from which expensive typefaces, drawables and bitmaps are fetched. */
+    private ResourceCache mResourceCache;
+
     private UiDataModel() {}
 
     /**
@@ -89,6 +97,7 @@ public final class UiDataModel {
             mPeriodicCallbackModel = new PeriodicCallbackModel(mContext);
             mFormattedStringModel = new FormattedStringModel(mContext);
             mTabModel = new TabModel(prefs);
+            mResourceCache = new ResourceCache(mContext);
         }
     }
 
@@ -98,7 +107,53 @@ public final class UiDataModel {
      * @return a special font containing a glyph that draws an alarm clock
      */
     public Typeface getAlarmIconTypeface() {
-        return Typeface.createFromAsset(mContext.getAssets(), "fonts/clock.ttf");
+        return mResourceCache.getTypeface("fonts/clock.ttf");
+    }
+
+    //
+    // Cached Resources
+    //
+
+    /**
+     * The result shares its constant state with other drawables inflated from the same resource
+     * and theme; it must be {@link Drawable#mutate() mutated} before that state is changed.
+     *
+     * @param context supplies the resources and theme with which to inflate the drawable
+     * @param resId identifies the vector drawable resource
+     * @return a drawable inflated from the given {@code resId}
+     */
+    public VectorDrawableCompat getVectorDrawable(Context context, @DrawableRes int resId) {
+        return mResourceCache.getVectorDrawable(context, resId);
+    }
+
+    /**
+     * @param resId identifies the resource that was rendered
+     * @param size the size at which the resource was rendered
+     * @param color the color with which the resource was rendered
+     * @return the cached bitmap rendered from the resource; {@code null} if none is cached
+     */
+    public Bitmap getRenderedBitmap(@AnyRes int resId, int size, @ColorInt int color) {
+        return mResourceCache.getBitmap(resId, size, color);
+    }
+
+    /**
+     * @param resId identifies the resource that was rendered
+     * @param size the size at which the resource was rendered
+     * @param color the color with which the resource was rendered
+     * @param bitmap the rendered resource; it must not be modified once cached
+     */
+    public void putRenderedBitmap(@AnyRes int resId, int size, @ColorInt int color,
+            Bitmap bitmap) {
+        mResourceCache.putBitmap(resId, size, color, bitmap);
+    }
+
+    /**
+     * Releases cached resources in response to system memory pressure.
+     *
+     * @param level the trim level reported to {@link android.app.Application#onTrimMemory}
+     */
+    public void onTrimMemory(int level) {
+        mResourceCache.onTrimMemory(level);
     }
 
     //
@@ -327,6 +382,15 @@ public final class UiDataModel {
     // Timed Callbacks
     //
 
+    /**
+     * @param runnable to be called every second
+     * @param offset an offset applied to the second to control when the callback occurs
+     */
+    public void addSecondCallback(Runnable runnable, long offset) {
+        enforceMainLooper();
+        mPeriodicCallbackModel.addSecondCallback(runnable, offset);
+    }
+
     /**
      * @param runnable to be called every minute
      * @param offset an offset applied to the minute to control when the callback occurs
@@ -16,6 +16,8 @@
 
 package com.android.deskclock.widget;
 
+import android.graphics.Typeface;
+import android.support.v4.util.ArrayMap;
 import android.text.Layout;
 import android.text.TextPaint;
 import android.util.TypedValue;
@@ -26,9 +28,27 @@ import static java.lang.Integer.MAX_VALUE;
 
 /**
  * A TextView which automatically re-sizes its text to fit within its boundaries.
+ *
+ * <p>Clocks and timers change their text every second or minute without changing the shape of
+ * the text, so the size that fits a given text is cached by the glyph-width profile of the text:
+ * the text itself, with every digit replaced by {@code 0} when the typeface draws all digits with
+ * the same advance width. A text whose profile is not cached is measured once at the maximum size
+ * and its fitting size is derived from the width and height scaling linearly with the text size;
+ * only the few sizes adjacent to that estimate are measured to correct for hinting and rounding.
+ * </p>
  */
 public final class TextSizeHelper {
 
+    // The digits whose advance widths determine whether digits can share a profile.
+    private static final String DIGITS = "0123456789";
+
+    // The maximum number of profiles cached; the cache is cleared rather than evicted when full.
+    private static final int MAX_CACHED_FITS = 8;
+
+    // The maximum number of single steps taken from the analytic estimate before falling back to
+    // a binary search.
+    private static final int MAX_ESTIMATE_STEPS = 3;
+
     // The text view whose size this class controls.
     private final TextView mTextView;
 
@@ -47,6 +67,24 @@ public final class TextSizeHelper {
     // When {@code true} calls to {@link #requestLayout()} should be ignored.
     private boolean mIgnoreRequestLayout;
 
+    // Maps the glyph-width profile of previously fitted text to the text size that fit it.
+    private final ArrayMap<String, Float> mFitCache = new ArrayMap<>(MAX_CACHED_FITS);
+
+    // The typeface of the measurements in the fit cache; any change invalidates the cache.
+    private Typeface mCachedTypeface;
+
+    // The horizontal scale of the measurements in the fit cache; initially matches no scale.
+    private float mCachedTextScaleX = Float.NaN;
+
+    // {@code true} if all digits of {@link #mCachedTypeface} share the same advance width.
+    private boolean mMonospaceDigits;
+
+    // Reusable buffer in which the glyph-width profile of the text is built.
+    private final StringBuilder mProfile = new StringBuilder();
+
+    // Reusable buffer receiving the advance widths of the digits.
+    private final float[] mDigitWidths = new float[DIGITS.length()];
+
     public TextSizeHelper(TextView view) {
         mTextView = view;
         mMaxTextSize = view.getTextSize();
@@ -67,6 +105,9 @@ public final class TextSizeHelper {
 
         if (mTextView.isLayoutRequested() || mWidthConstraint != widthConstraint
                 || mHeightConstraint != heightConstraint) {
+            if (mWidthConstraint != widthConstraint || mHeightConstraint != heightConstraint) {
+                mFitCache.clear();
+            }
             mWidthConstraint = widthConstraint;
             mHeightConstraint = heightConstraint;
 
@@ -92,21 +133,18 @@ public final class TextSizeHelper {
         float textSize = mMaxTextSize;
         if (text.length() > 0 && (mWidthConstraint < MAX_VALUE || mHeightConstraint < MAX_VALUE)) {
             mMeasurePaint.set(mTextView.getPaint());
+            validateFitCache();
 
-            float minTextSize = 1f;
-            float maxTextSize = mMaxTextSize;
-            while (maxTextSize >= minTextSize) {
-                final float midTextSize = Math.round((maxTextSize + minTextSize) / 2f);
-                mMeasurePaint.setTextSize(midTextSize);
-
-                final float width = Layout.getDesiredWidth(text, mMeasurePaint);
-                final float height = mMeasurePaint.getFontMetricsInt(null);
-                if (width > mWidthConstraint || height > mHeightConstraint) {
-                    maxTextSize = midTextSize - 1f;
-                } else {
-                    textSize = midTextSize;
-                    minTextSize = midTextSize + 1f;
+            final String profile = getProfile(text);
+            final Float cachedTextSize = mFitCache.get(profile);
+            if (cachedTextSize != null) {
+                textSize = cachedTextSize;
+            } else {
+                textSize = computeTextSize(text);
+                if (mFitCache.size() >= MAX_CACHED_FITS) {
+                    mFitCache.clear();
                 }
+                mFitCache.put(profile, textSize);
             }
         }
 
@@ -116,4 +154,108 @@ public final class TextSizeHelper {
             mIgnoreRequestLayout = false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Clears the fit cache if the measuring paint no longer matches the paint of the cached fits.
+     */
+    private void validateFitCache() {
+        final Typeface typeface = mMeasurePaint.getTypeface();
+        final float textScaleX = mMeasurePaint.getTextScaleX();
+        if (mCachedTypeface == typeface && mCachedTextScaleX == textScaleX) {
+            return;
+        }
+
+        mFitCache.clear();
+        mCachedTypeface = typeface;
+        mCachedTextScaleX = textScaleX;
+
+        mMeasurePaint.setTextSize(mMaxTextSize);
+        mMeasurePaint.getTextWidths(DIGITS, mDigitWidths);
+        mMonospaceDigits = true;
+        for (float digitWidth : mDigitWidths) {
+            if (digitWidth != mDigitWidths[0]) {
+                mMonospaceDigits = false;
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return a key shared by all texts that measure identically in the current typeface
+     */
+    private String getProfile(CharSequence text) {
+        mProfile.setLength(0);
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            mProfile.append(mMonospaceDigits && c >= '0' && c <= '9' ? '0' : c);
+        }
+        return mProfile.toString();
+    }
+
+    /**
+     * @return the largest whole text size, at most {@link #mMaxTextSize}, at which the given
+     *      {@code text} fits within the constraints
+     */
+    private float computeTextSize(CharSequence text) {
+        mMeasurePaint.setTextSize(mMaxTextSize);
+        final float maxWidth = Layout.getDesiredWidth(text, mMeasurePaint);
+        final float maxHeight = mMeasurePaint.getFontMetricsInt(null);
+        if (maxWidth <= mWidthConstraint && maxHeight <= mHeightConstraint) {
+            return mMaxTextSize;
+        }
+
+        // Width and height are nearly proportional to the text size; start from that estimate.
+        final float widthScale = maxWidth > mWidthConstraint ? mWidthConstraint / maxWidth : 1f;
+        final float heightScale =
+                maxHeight > mHeightConstraint ? mHeightConstraint / maxHeight : 1f;
+        final float scale = Math.min(widthScale, heightScale);
+        float estimate = Math.max(1f, Math.min(mMaxTextSize - 1f,
+                (float) Math.floor(mMaxTextSize * scale)));
+        if (fits(text, estimate)) {
+            for (int step = 0; step < MAX_ESTIMATE_STEPS; step++) {
+                if (estimate + 1f >= mMaxTextSize || !fits(text, estimate + 1f)) {
+                    return estimate;
+                }
+                estimate += 1f;
+            }
+            return binarySearchTextSize(text, estimate + 1f, mMaxTextSize - 1f, estimate);
+        }
+
+        for (int step = 0; step < MAX_ESTIMATE_STEPS && estimate > 1f; step++) {
+            estimate -= 1f;
+            if (fits(text, estimate)) {
+                return estimate;
+            }
+        }
+        return binarySearchTextSize(text, 1f, estimate - 1f, 1f);
+    }
+
+    /**
+     * @return the largest whole text size in [{@code minTextSize}, {@code maxTextSize}] at which
+     *      the given {@code text} fits; {@code textSize} if none fits
+     */
+    private float binarySearchTextSize(CharSequence text, float minTextSize, float maxTextSize,
+            float textSize) {
+        while (maxTextSize >= minTextSize) {
+            final float midTextSize = Math.round((maxTextSize + minTextSize) / 2f);
+            if (fits(text, midTextSize)) {
+                textSize = midTextSize;
+                minTextSize = midTextSize + 1f;
+            } else {
+                maxTextSize = midTextSize - 1f;
+            }
+        }
+        return textSize;
+    }
+
+    /**
+     * @return {@code true} if the given {@code text} fits within the constraints at the given
+     *      {@code textSize}
+     */
+    private boolean fits(CharSequence text, float textSize) {
+        mMeasurePaint.setTextSize(textSize);
+        final float width = Layout.getDesiredWidth(text, mMeasurePaint);
+        final float height = mMeasurePaint.getFontMetricsInt(null);
+        return width <= mWidthConstraint && height <= mHeightConstraint;
+    }
+}